@@ -2,127 +2,209 @@ package com.arunge.unmei.iterators.io;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
- * 
- *<p>class_comment_here<p>
+ *
+ *<p>A single line read by a {@link DelimitedLineFileIterator}. The line is kept as read, along with the start and
+ *   end offsets of each of its columns, and columns are only converted when they are requested. Numeric columns are
+ *   parsed directly from the characters of the line without creating a String for the column.<p>
  *
  * @author Andrew Runge
  *
  */
 public class DelimitedLine {
 
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
     private Map<String, Integer> header;
-    private String[] line;
-    private SimpleDateFormat dateFormat;
-    
-    DelimitedLine(Map<String, Integer> header, String[] line, String dateFormat) {
+    private String line;
+    private int[] bounds;
+    private int columns;
+    private Function<String, Date> dateParser;
+
+    /**
+     * @param bounds The start and end offset of each column in the line, in pairs.
+     */
+    DelimitedLine(Map<String, Integer> header, String line, int[] bounds, int columns, Function<String, Date> dateParser) {
         this.header = header;
         this.line = line;
-        if(dateFormat != null) {
-            this.dateFormat = new SimpleDateFormat(dateFormat);
+        this.bounds = bounds;
+        this.columns = columns;
+        this.dateParser = dateParser;
+    }
+
+    void setHeader(Map<String, Integer> header) {
+        this.header = header;
+    }
+
+    void setDateParser(Function<String, Date> dateParser) {
+        this.dateParser = dateParser;
+    }
+
+    /**
+     * Creates a date parser that parses values with a {@link SimpleDateFormat} for the pattern, which keeps its 
+     * lenient parsing and ignores any text after the date. SimpleDateFormat is not thread-safe, so the parser 
+     * creates one format per thread that parses dates, rather than one per line or value.
+     */
+    static Function<String, Date> dateParser(String pattern) {
+        ThreadLocal<SimpleDateFormat> formats = ThreadLocal.withInitial(() -> new SimpleDateFormat(pattern));
+        //Validate the pattern up front, as the DateTimeFormatter path does
+        formats.get();
+        return value -> {
+            try {
+                return formats.get().parse(value);
+            } catch (ParseException e) {
+                throw new RuntimeException("Unable to parse date from string " + value);
+            }
+        };
+    }
+
+    /**
+     * Creates a date parser that uses the formatter, which is immutable and shared by all lines. Values without a
+     * zone or offset are interpreted in the system default time zone, and values without a time at midnight.
+     */
+    static Function<String, Date> dateParser(DateTimeFormatter dateFormat) {
+        return value -> {
+            try {
+                TemporalAccessor parsed = dateFormat.parse(value);
+                if(parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+                    return Date.from(Instant.from(parsed));
+                }
+                LocalTime time = parsed.query(TemporalQueries.localTime());
+                return Date.from(LocalDate.from(parsed).atTime(time == null ? LocalTime.MIDNIGHT : time).atZone(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeException e) {
+                throw new RuntimeException("Unable to parse date from string " + value);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of columns in the line. As with {@link String#split(String)}, trailing empty columns are not counted.
+     * @return
+     */
+    public int size() {
+        return columns;
+    }
+
+    private int start(int index) {
+        if(index < 0 || index >= columns) {
+            throw new ArrayIndexOutOfBoundsException(index);
         }
+        return bounds[2 * index];
+    }
+
+    private int end(int index) {
+        return bounds[2 * index + 1];
     }
-    
+
+    private int column(String columnKey) {
+        return header.get(columnKey);
+    }
+
     public String getString(int index) {
-        return line[index];
+        return line.substring(start(index), end(index));
     }
-    
+
     public String getString(String columnKey) {
-        return line[header.get(columnKey)];
+        return getString(column(columnKey));
     }
-    
+
     public int getInt(int index) {
-        return Integer.parseInt(line[index]);
+        return (int) parseLong(start(index), end(index), Integer.MIN_VALUE, Integer.MAX_VALUE);
     }
-    
+
     public int getInt(String columnKey) {
-        return Integer.parseInt(line[header.get(columnKey)]);
+        return getInt(column(columnKey));
     }
-    
-    public double getDouble(int index) { 
-        return Double.parseDouble(line[index]);
+
+    public double getDouble(int index) {
+        return parseDouble(start(index), end(index));
     }
-    
+
     public double getDouble(String columnKey) {
-        return Double.parseDouble(line[header.get(columnKey)]);
+        return getDouble(column(columnKey));
     }
-    
+
     public float getFloat(int index) {
-        return Float.parseFloat(line[index]);
+        return Float.parseFloat(getString(index));
     }
-    
+
     public float getFloat(String columnKey) {
-        return Float.parseFloat(line[header.get(columnKey)]);
+        return getFloat(column(columnKey));
     }
-    
+
     public long getLong(int index) {
-        return Long.parseLong(line[index]);
+        return parseLong(start(index), end(index), Long.MIN_VALUE, Long.MAX_VALUE);
     }
-    
+
     public long getLong(String columnKey) {
-        return Long.parseLong(line[header.get(columnKey)]);
+        return getLong(column(columnKey));
     }
-    
+
     public boolean getBoolean(int index) {
-        return Boolean.parseBoolean(line[index]);
+        int start = start(index);
+        int length = end(index) - start;
+        return length == 4 && line.regionMatches(true, start, "true", 0, 4);
     }
-    
+
     public boolean getBoolean(String columnKey) {
-        return Boolean.parseBoolean(line[header.get(columnKey)]);
+        return getBoolean(column(columnKey));
     }
-    
+
     public Date getDate(int index) {
-        try { 
-            return dateFormat.parse(line[index]);
-        } catch (ParseException e) {
-            throw new RuntimeException("Unable to parse date from string " + line[index]);
-        }
+        return dateParser.apply(getString(index));
     }
-    
+
     public Date getDate(String columnKey) {
-        try { 
-            return dateFormat.parse(line[header.get(columnKey)]);
-        } catch (ParseException e) {
-            throw new RuntimeException("Unable to parse date from string " + line[header.get(columnKey)]);
-        }
+        return getDate(column(columnKey));
     }
-    
+
     public String[] getStringArray(int index, String delimiter) {
-        return line[index].split(delimiter);
+        return getString(index).split(delimiter);
     }
-    
+
     public String[] getStringArray(String columnKey, String delimiter) {
-        return line[header.get(columnKey)].split(delimiter);
+        return getStringArray(column(columnKey), delimiter);
     }
-    
+
     public int[] getIntArray(int index, String delimiter) {
-        return Arrays.stream(line[index].split(delimiter)).mapToInt(s -> Integer.parseInt(s)).toArray();
+        return Arrays.stream(getString(index).split(delimiter)).mapToInt(s -> Integer.parseInt(s)).toArray();
     }
-    
-    public int[] getIntArray(String columnKey, String delimiter) { 
-        return Arrays.stream(line[header.get(columnKey)].split(delimiter)).mapToInt(s -> Integer.parseInt(s)).toArray();
+
+    public int[] getIntArray(String columnKey, String delimiter) {
+        return getIntArray(column(columnKey), delimiter);
     }
-    
-    public double[] getDoubleArray(int index, String delimiter) { 
-        return Arrays.stream(line[index].split(delimiter)).mapToDouble(s -> Integer.parseInt(s)).toArray();
+
+    public double[] getDoubleArray(int index, String delimiter) {
+        return Arrays.stream(getString(index).split(delimiter)).mapToDouble(s -> Double.parseDouble(s)).toArray();
     }
-    
+
     public double[] getDoubleArray(String columnKey, String delimiter) {
-        return Arrays.stream(line[header.get(columnKey)].split(delimiter)).mapToDouble(s -> Integer.parseInt(s)).toArray();
+        return getDoubleArray(column(columnKey), delimiter);
     }
-    
+
     public float[] getFloatArray(int index, String delimiter) {
-        return toFloatArray(line[index].split(delimiter));
+        return toFloatArray(getString(index).split(delimiter));
     }
-    
-    public float[] getFloatArray(String columnKey, String delimiter) { 
-        return toFloatArray(line[header.get(columnKey)].split(delimiter));
+
+    public float[] getFloatArray(String columnKey, String delimiter) {
+        return getFloatArray(column(columnKey), delimiter);
     }
-    
+
     private float[] toFloatArray(String[] value) {
         float[] ret = new float[value.length];
         for(int i = 0; i < ret.length; i++) {
@@ -130,5 +212,84 @@ public class DelimitedLine {
         }
         return ret;
     }
-    
+
+    /**
+     * Parses a decimal integer from the characters of the line, with the same rules as {@link Long#parseLong(String)}.
+     */
+    private long parseLong(int start, int end, long min, long max) {
+        if(start >= end) {
+            throw invalidNumber(start, end);
+        }
+        int i = start;
+        boolean negative = false;
+        char first = line.charAt(i);
+        if(first == '-' || first == '+') {
+            negative = first == '-';
+            if(++i == end) {
+                throw invalidNumber(start, end);
+            }
+        }
+        //Accumulate negatively so the minimum value can be parsed without overflow
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for(; i < end; i++) {
+            int digit = Character.digit(line.charAt(i), 10);
+            if(digit < 0 || result < multiplyLimit) {
+                throw invalidNumber(start, end);
+            }
+            result *= 10;
+            if(result < limit + digit) {
+                throw invalidNumber(start, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses plain decimals with at most 15 significant digits directly from the characters of the line. Both the
+     * digits and the power of ten are exactly representable, so one division gives the correctly rounded value.
+     * Any other number is parsed with {@link Double#parseDouble(String)}.
+     */
+    private double parseDouble(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if(i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for(; i < end; i++) {
+            char c = line.charAt(i);
+            if(c >= '0' && c <= '9') {
+                seenDigit = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if(mantissa != 0 && ++significantDigits > 15) {
+                    break;
+                }
+                if(seenPoint) {
+                    fractionDigits++;
+                }
+            } else if(c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if(i < end || !seenDigit || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(line.substring(start, end));
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private NumberFormatException invalidNumber(int start, int end) {
+        return new NumberFormatException("For input string: \"" + line.substring(start, end) + "\"");
+    }
+
 }
@@ -5,9 +5,15 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.arunge.unmei.iterators.CloseableIterator;
 
@@ -16,16 +22,22 @@ import com.arunge.unmei.iterators.CloseableIterator;
  *<p>A <code>DelimitedLineFileIterator</code> provides a convenient way to read the lines of a file, splitting them and returning {@link DelimitedLine}s
  *   that support retrieving values of particular types using either the index of the column or using the header labels. 
  *
+ *   Lines are split the same way as {@link String#split(String)}, but only the offsets of the columns are recorded, and
+ *   values are converted when they are read. Delimiters that are a single literal character are found with a plain
+ *   scan of the line; other delimiters are compiled once as a regular expression.<p>
+ *
  * @author Andrew Runge
  *
  */
 public class DelimitedLineFileIterator implements CloseableIterator<DelimitedLine> {
 
     private BufferedReader reader;
-    private String delimiter;
+    private char delimiterChar;
+    private Pattern delimiterPattern;
     private Map<String, Integer> header;
-    private String dateFormat;
+    private Function<String, Date> dateParser;
     private DelimitedLine next;
+    private int expectedColumns;
     
     /**
      * Creates a <code>DelimitedLineFileIterator</code> that reads lines from the given file and splits them
@@ -96,29 +108,89 @@ public class DelimitedLineFileIterator implements CloseableIterator<DelimitedLin
      * @throws IOException
      */
     public DelimitedLineFileIterator(File file, String delimiter, String header) throws IOException {
-        reader = new BufferedReader(new FileReader(file));
+        this(new BufferedReader(new FileReader(file)), delimiter, header);
+    }
+    
+    /**
+     * Creates a <code>DelimitedLineFileIterator</code> that reads lines from the provided reader and splits them
+     * using the provided delimiter, e.g. to read a compressed file or an archive entry. The reader is closed when
+     * this iterator is closed. <p>
+     * The provided header should use the same delimiter as the specified delimiter. 
+     * If header is null, the first line read will be treated as the header
+     * and subsequently not returned by this iterator.
+     * @param reader The reader to read lines from.
+     * @param delimiter Delimiter used to split each line.
+     * @param header Manually defined header for the file. Set to null to treat the first line as the header, or set to an empty string to declare no header.
+     * @throws IOException
+     */
+    public DelimitedLineFileIterator(BufferedReader reader, String delimiter, String header) throws IOException {
+        this.reader = reader;
+        if(isLiteral(delimiter)) {
+            this.delimiterChar = delimiter.charAt(delimiter.length() - 1);
+        } else {
+            this.delimiterPattern = Pattern.compile(delimiter);
+        }
         if(header == null) { 
             header = reader.readLine();
+            if(header == null) {
+                header = "";
+            }
         }
-        this.header = new HashMap<>();
-        String[] headerKeys = header.split(delimiter);
-        for(int i = 0; i < headerKeys.length; i++) {
-            this.header.put(headerKeys[i], i);
-        }
-        this.delimiter = delimiter;
-        this.dateFormat = null;
+        setHeader(header);
+        this.dateParser = null;
         this.next = loadNext();
     }
     
+    /**
+     * Returns true if the delimiter is a single character, or a single escaped character, that String.split
+     * would match literally.
+     */
+    private static boolean isLiteral(String delimiter) {
+        if(delimiter.length() == 1) {
+            return ".$|()[{^?*+\\".indexOf(delimiter.charAt(0)) < 0;
+        }
+        if(delimiter.length() == 2 && delimiter.charAt(0) == '\\') {
+            char c = delimiter.charAt(1);
+            return !(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z');
+        }
+        return false;
+    }
+    
+    /**
+     * Sets the format used to parse dates, as a {@link java.text.SimpleDateFormat} pattern. Dates are parsed with
+     * one SimpleDateFormat per thread, created once for this iterator, with its lenient parsing. For faster parsing, use
+     * {@link #setDateFormat(DateTimeFormatter)}, noting that {@link DateTimeFormatter} patterns differ from
+     * SimpleDateFormat patterns, e.g. in the meaning of Y, u and S, and that it rejects invalid or partial dates.
+     * @param dateFormat
+     */
     public void setDateFormat(String dateFormat) {
-        this.dateFormat = dateFormat;
+        setDateParser(DelimitedLine.dateParser(dateFormat));
+    }
+    
+    /**
+     * Sets the format used to parse dates. The formatter is shared by all lines read by this iterator. Dates without
+     * a zone or offset are interpreted in the system default time zone, and dates without a time at midnight.
+     * @param dateFormat
+     */
+    public void setDateFormat(DateTimeFormatter dateFormat) {
+        setDateParser(DelimitedLine.dateParser(dateFormat));
+    }
+    
+    private void setDateParser(Function<String, Date> dateParser) {
+        this.dateParser = dateParser;
+        if(next != null) {
+            next.setDateParser(dateParser);
+        }
     }
     
     public void setHeader(String header) { 
         this.header = new HashMap<>();
-        String[] headerKeys = header.split(delimiter);
-        for(int i = 0; i < headerKeys.length; i++) {
-            this.header.put(headerKeys[i], i);
+        DelimitedLine headerKeys = split(header);
+        for(int i = 0; i < headerKeys.size(); i++) {
+            this.header.put(headerKeys.getString(i), i);
+        }
+        if(next != null) {
+            next.setHeader(this.header);
         }
     }
     
@@ -128,14 +200,55 @@ public class DelimitedLineFileIterator implements CloseableIterator<DelimitedLin
             if(line == null) { 
                 return null;
             }
-            String[] lineParts = line.split(delimiter);
-            return new DelimitedLine(header, lineParts, dateFormat);
+            return split(line);
         } catch (IOException e) {
             return null;
         }
         
     }
     
+    private DelimitedLine split(String line) {
+        int[] bounds = new int[2 * Math.max(expectedColumns, 1)];
+        int columns = 0;
+        int start = 0;
+        boolean matched = false;
+        if(delimiterPattern == null) {
+            for(int i = line.indexOf(delimiterChar); i >= 0; i = line.indexOf(delimiterChar, start)) {
+                bounds = addColumn(bounds, columns++, start, i);
+                start = i + 1;
+                matched = true;
+            }
+        } else {
+            Matcher m = delimiterPattern.matcher(line);
+            while(m.find()) {
+                //A zero-width match at the beginning never produces an empty leading column
+                if(m.end() == 0) {
+                    continue;
+                }
+                bounds = addColumn(bounds, columns++, start, m.start());
+                start = m.end();
+                matched = true;
+            }
+        }
+        bounds = addColumn(bounds, columns++, start, line.length());
+        expectedColumns = Math.max(expectedColumns, columns);
+        if(matched) {
+            while(columns > 0 && bounds[2 * columns - 2] == bounds[2 * columns - 1]) {
+                columns--;
+            }
+        }
+        return new DelimitedLine(header, line, bounds, columns, dateParser);
+    }
+    
+    private static int[] addColumn(int[] bounds, int column, int start, int end) {
+        if(2 * column + 1 >= bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[2 * column] = start;
+        bounds[2 * column + 1] = end;
+        return bounds;
+    }
+    
     @Override
     public boolean hasNext() {
         return next != null;
@@ -0,0 +1,191 @@
+package com.arunge.unmei.iterators.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class TestDelimitedLineFileIterator {
+
+    private static final List<String> LINES = Arrays.asList("a,b,c", "a,b,,", ",,", "", ",a", "a,,b", "a", " a , b ,",
+            "a\tb\t\tc\t", "a|b||", "a, b,c,  d", "a  b c   ", "  a b");
+
+    private static final List<String> LONGS = Arrays.asList("0", "7", "+12", "-12", "-0", "007", "2147483647", "-2147483648",
+            "2147483648", "9223372036854775807", "-9223372036854775808", "9223372036854775808", "-9223372036854775809",
+            "", "-", "+", "1a", "1.0", " 1", "1 ", "--1", "+-1", "1e3", "\u0661\u0662");
+
+    private static final List<String> DOUBLES = Arrays.asList("0", "-0", "+0.0", "1.5", "-0.25", "+3", ".5", "5.", "1e10",
+            "-1.5E-3", "2E+2", "0.1", "0.3", "123456789012345", "1234567890123456789", "0.1234567890123456789",
+            "0.0000000000000000000000001", "999999999999999.9", "4.35", "NaN", "-Infinity", "0x1p3", "1d", "1f", " 2.5 ",
+            "", "abc", "1.2.3", "--1", "e5", ".", "1e", "1,5", "+", "-.");
+
+    @Test
+    public void testSplitMatchesStringSplit() throws Exception {
+        for(String delimiter : Arrays.asList(",", "\t", "\\|", "\\s+", ",\\s*", " ", "|", "\\.")) {
+            try(DelimitedLineFileIterator iter = iterator(String.join("\n", LINES), delimiter)) {
+                for(String line : LINES) {
+                    assertTrue(iter.hasNext());
+                    DelimitedLine parsed = iter.next();
+                    String[] expected = line.split(delimiter);
+                    assertEquals(String.format("Columns of '%s' split by '%s'", line, delimiter), expected.length, parsed.size());
+                    for(int i = 0; i < expected.length; i++) {
+                        assertEquals(expected[i], parsed.getString(i));
+                    }
+                    try {
+                        parsed.getString(expected.length);
+                        fail("Trailing empty columns should not be accessible");
+                    } catch (ArrayIndexOutOfBoundsException e) {
+                    }
+                }
+                assertFalse(iter.hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void testHeader() throws Exception {
+        try(DelimitedLineFileIterator iter = new DelimitedLineFileIterator(new BufferedReader(new StringReader("id,value\n1,2.5\n2,")), ",", null)) {
+            DelimitedLine first = iter.next();
+            assertEquals(1, first.getInt("id"));
+            assertEquals(2.5, first.getDouble("value"), 0.0);
+            DelimitedLine second = iter.next();
+            assertEquals(1, second.size());
+            assertEquals(2L, second.getLong("id"));
+            assertFalse(iter.hasNext());
+        }
+    }
+
+    @Test
+    public void testParseLong() throws Exception {
+        try(DelimitedLineFileIterator iter = iterator(String.join("\n", LONGS), ",")) {
+            for(String value : LONGS) {
+                DelimitedLine line = iter.next();
+                //An empty line has a single empty column
+                assertEquals(1, line.size());
+                Long expectedLong = null;
+                try {
+                    expectedLong = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                }
+                try {
+                    long actual = line.getLong(0);
+                    assertEquals("Parsed " + value, expectedLong, Long.valueOf(actual));
+                } catch (NumberFormatException e) {
+                    assertEquals("Rejected " + value, null, expectedLong);
+                }
+                Integer expectedInt = null;
+                try {
+                    expectedInt = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                }
+                try {
+                    int actual = line.getInt(0);
+                    assertEquals("Parsed " + value, expectedInt, Integer.valueOf(actual));
+                } catch (NumberFormatException e) {
+                    assertEquals("Rejected " + value, null, expectedInt);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseDouble() throws Exception {
+        try(DelimitedLineFileIterator iter = iterator(String.join("\n", DOUBLES), ";")) {
+            for(String value : DOUBLES) {
+                DelimitedLine line = iter.next();
+                Double expected = null;
+                try {
+                    expected = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                }
+                try {
+                    double actual = line.getDouble(0);
+                    //Compare the bits, so that the values must be rounded identically and keep the sign of zero
+                    assertEquals("Parsed " + value, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+                } catch (NumberFormatException e) {
+                    assertEquals("Rejected " + value, null, expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSimpleDateFormat() throws Exception {
+        String pattern = "dd/MM/yyyy HH:mm";
+        String[] dates = {"04/03/2018 10:15", "31/02/2018 10:15", "04/03/2018 10:15 trailing text"};
+        try(DelimitedLineFileIterator iter = iterator(String.join("\n", dates), ",")) {
+            iter.setDateFormat(pattern);
+            for(String date : dates) {
+                //Lenient parsing and trailing text are handled as by SimpleDateFormat
+                assertEquals(new SimpleDateFormat(pattern).parse(date), iter.next().getDate(0));
+            }
+        }
+        try(DelimitedLineFileIterator iter = iterator("2018-03-04", ",")) {
+            iter.setDateFormat(pattern);
+            iter.next().getDate(0);
+            fail("Invalid date should be rejected");
+        } catch (RuntimeException e) {
+        }
+    }
+
+    @Test
+    public void testSimpleDateFormatThreads() throws Exception {
+        String pattern = "dd/MM/yyyy HH:mm:ss";
+        List<String> dates = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            dates.add(String.format("%02d/%02d/%d %02d:%02d:%02d", i % 28 + 1, i % 12 + 1, 1990 + i % 40, i % 24, i % 60, i % 59));
+        }
+        List<DelimitedLine> lines = new ArrayList<>();
+        try(DelimitedLineFileIterator iter = iterator(String.join("\n", dates), ",")) {
+            iter.setDateFormat(pattern);
+            while(iter.hasNext()) {
+                lines.add(iter.next());
+            }
+        }
+        //The lines share the iterator's formats, which must not be used by two threads at once
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        List<Date> parsed = lines.parallelStream().map(line -> line.getDate(0)).collect(Collectors.toList());
+        for(int i = 0; i < dates.size(); i++) {
+            assertEquals(format.parse(dates.get(i)), parsed.get(i));
+        }
+    }
+
+    @Test
+    public void testDateTimeFormatter() throws Exception {
+        try(DelimitedLineFileIterator iter = iterator("2018-03-04,not a date\n2018-03-04T10:15:30+01:00", ",")) {
+            iter.setDateFormat(DateTimeFormatter.ISO_LOCAL_DATE);
+            DelimitedLine line = iter.next();
+            //Dates without a time or zone are at midnight in the default time zone
+            Date expected = Date.from(LocalDate.of(2018, 3, 4).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            assertEquals(expected, line.getDate(0));
+            try {
+                line.getDate(1);
+                fail("Invalid date should be rejected");
+            } catch (RuntimeException e) {
+            }
+            //The format applies to lines that have not been returned yet
+            iter.setDateFormat(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            assertEquals(Date.from(OffsetDateTime.parse("2018-03-04T10:15:30+01:00").toInstant()), iter.next().getDate(0));
+        }
+    }
+
+    private DelimitedLineFileIterator iterator(String text, String delimiter) throws Exception {
+        return new DelimitedLineFileIterator(new BufferedReader(new StringReader(text)), delimiter, "");
+    }
+
+}
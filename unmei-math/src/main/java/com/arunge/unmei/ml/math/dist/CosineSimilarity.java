@@ -19,14 +19,16 @@ public class CosineSimilarity {
         double firstNorm = 0.0;
         double secondNorm = 0.0;
         double dot = 0.0;
-        for(Integer key : v1.keySet()) {
-            if(v2.containsKey(key)) { 
-                dot += (v1.get(key) * v2.get(key));
+        for(Map.Entry<Integer, Double> entry : v1.entrySet()) {
+            double val1 = entry.getValue();
+            Double val2 = v2.get(entry.getKey());
+            if(val2 != null) { 
+                dot += val1 * val2;
             }
-            firstNorm += (v1.get(key) * v1.get(key));
+            firstNorm += val1 * val1;
         }
-        for(Integer key : v2.keySet()) {
-            secondNorm += (v2.get(key) * v2.get(key));
+        for(double val2 : v2.values()) {
+            secondNorm += val2 * val2;
         }
         if(firstNorm == 0 || secondNorm == 0) { 
             return 0.0;
@@ -59,6 +61,50 @@ public class CosineSimilarity {
         return cosine;
     }
     
+    /**
+     * Computes the cosine similarity between two sparse vectors, each given as a pair of parallel arrays of 
+     * indices and values with the indices sorted in ascending order.
+     * @param indices1
+     * @param values1
+     * @param indices2
+     * @param values2
+     * @return
+     */
+    public double eval(int[] indices1, double[] values1, int[] indices2, double[] values2) {
+        if(indices1.length == 0 || indices2.length == 0) {
+            return 0.0;
+        }
+        double firstNorm = 0.0;
+        double secondNorm = 0.0;
+        double dot = 0.0;
+        int i = 0;
+        int j = 0;
+        while(i < indices1.length && j < indices2.length) {
+            if(indices1[i] == indices2[j]) {
+                dot += values1[i] * values2[j];
+                i++;
+                j++;
+            } else if(indices1[i] < indices2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        for(i = 0; i < values1.length; i++) {
+            firstNorm += values1[i] * values1[i];
+        }
+        for(j = 0; j < values2.length; j++) {
+            secondNorm += values2[j] * values2[j];
+        }
+        if(firstNorm == 0 || secondNorm == 0) { 
+            return 0.0;
+        }
+        firstNorm = Math.sqrt(firstNorm);
+        secondNorm = Math.sqrt(secondNorm);
+        double cosine = dot / (firstNorm * secondNorm);
+        return cosine;
+    }
+    
     public double eval(double[] v1, double[] v2) {
         if(v1 == null || v1.length == 0 || v2 == null || v2.length == 0 || v1.length != v2.length) {
             return 0.0;
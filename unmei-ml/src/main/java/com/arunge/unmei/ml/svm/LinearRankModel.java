@@ -0,0 +1,160 @@
+package com.arunge.unmei.ml.svm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ *<p>A linear ranking function, scoring each instance by the dot product of its features with a weight vector.
+ *   Models are immutable, so a single model can score instances from any number of threads.
+ *
+ *   Models are read and written in the SVM-light format used by <code>svm_rank_learn</code> for linear kernels, so
+ *   models trained by {@link LinearRankSVM} can be used by <code>svm_rank_classify</code> and vice versa.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class LinearRankModel {
+
+    private final double[] weights;
+    private final int numTrainingInstances;
+
+    /**
+     * @param weights Weight of each feature, indexed by feature index. Index 0 is unused. The array is copied.
+     */
+    public LinearRankModel(double[] weights) {
+        this(Arrays.copyOf(weights, weights.length), 0);
+    }
+
+    LinearRankModel(double[] weights, int numTrainingInstances) {
+        this.weights = weights;
+        this.numTrainingInstances = numTrainingInstances;
+    }
+
+    public double score(RankInstance instance) {
+        return instance.dot(weights);
+    }
+
+    /**
+     * Scores each of the instances, in order.
+     * @param instances
+     * @return
+     */
+    public List<Double> score(List<RankInstance> instances) {
+        List<Double> scores = new ArrayList<>(instances.size());
+        for(RankInstance instance : instances) {
+            scores.add(score(instance));
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the weight of the feature, or 0 if the feature is not in the model.
+     * @param index
+     * @return
+     */
+    public double getWeight(int index) {
+        return index < weights.length ? weights[index] : 0.0;
+    }
+
+    /**
+     * Returns a copy of the weights, indexed by feature index.
+     * @return
+     */
+    public double[] getWeights() {
+        return Arrays.copyOf(weights, weights.length);
+    }
+
+    public void write(Path file) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("SVM-light Version V6.20\n");
+            writer.write("0 # kernel type\n");
+            writer.write("3 # kernel parameter -d \n");
+            writer.write("1 # kernel parameter -g \n");
+            writer.write("1 # kernel parameter -s \n");
+            writer.write("1 # kernel parameter -r \n");
+            writer.write("empty# kernel parameter -u \n");
+            //Index 0 of the weights is unused
+            writer.write(Math.max(weights.length - 1, 0) + " # highest feature index \n");
+            writer.write(numTrainingInstances + " # number of training documents \n");
+            writer.write("2 # number of support vectors plus 1 \n");
+            writer.write("0 # threshold b, each following line is a SV (starting with alpha*y)\n");
+            StringBuilder sv = new StringBuilder("1");
+            for(int i = 1; i < weights.length; i++) {
+                if(weights[i] != 0.0) {
+                    sv.append(' ').append(i).append(':').append(weights[i]);
+                }
+            }
+            writer.write(sv.append(" #\n").toString());
+        }
+    }
+
+    /**
+     * Reads a linear model in SVM-light format. The weight vector is the sum of the support vectors, each scaled by
+     * its alpha*y coefficient.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static LinearRankModel read(Path file) throws IOException {
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if(line == null || !line.startsWith("SVM-light")) {
+                throw new IOException("Not an SVM-light model file: " + file);
+            }
+            if(Integer.parseInt(value(reader.readLine())) != 0) {
+                throw new UnsupportedOperationException("Only models with a linear kernel can be read");
+            }
+            //Kernel parameters
+            for(int i = 0; i < 5; i++) {
+                reader.readLine();
+            }
+            int maxIndex = Integer.parseInt(value(reader.readLine()));
+            int numTrainingInstances = Integer.parseInt(value(reader.readLine()));
+            //Number of support vectors and threshold
+            reader.readLine();
+            reader.readLine();
+            double[] weights = new double[maxIndex + 1];
+            while((line = reader.readLine()) != null) {
+                RankInstance sv = parseSupportVector(line);
+                if(sv == null) {
+                    continue;
+                }
+                if(sv.maxIndex() >= weights.length) {
+                    weights = Arrays.copyOf(weights, sv.maxIndex() + 1);
+                }
+                sv.addTo(weights, sv.getRank());
+            }
+            return new LinearRankModel(weights, numTrainingInstances);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("Invalid SVM-light model file: " + file, e);
+        }
+    }
+
+    private static String value(String line) {
+        int comment = line.indexOf('#');
+        return (comment >= 0 ? line.substring(0, comment) : line).trim();
+    }
+
+    /**
+     * Parses a support vector line, "alpha*y index:value ... #", reusing the instance format with a dummy query id.
+     */
+    private static RankInstance parseSupportVector(String line) {
+        String sv = value(line);
+        if(sv.isEmpty()) {
+            return null;
+        }
+        int space = sv.indexOf(' ');
+        String features = space < 0 ? "" : sv.substring(space);
+        String coefficient = space < 0 ? sv : sv.substring(0, space);
+        return RankInstance.parse(coefficient + " qid:0" + features);
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.arunge.unmei.ml.svm;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ *<p>An in-process alternative to {@link SVMRank} for linear models. Trains a ranking SVM on the preference pairs
+ *   within each query, i.e. all pairs of instances of the same query with different ranks, by minimizing
+ *
+ *   <pre>1/2 |w|^2 + C/q * sum(max(0, 1 - w.(x_i - x_j)))</pre>
+ *
+ *   over pairs where x_i is ranked above x_j and q is the number of queries, which matches the scaling of the
+ *   <code>-c</code> option of <code>svm_rank_learn</code>. The problem is solved with dual coordinate descent over
+ *   the pairs, which only needs the sparse instances and a dense weight vector, and the pair differences are never
+ *   materialized. Training stops once the spread of the projected gradient falls below epsilon or after the maximum
+ *   number of passes over the pairs.
+ *
+ *   The file based {@link #train(Path, Path, String...)} and {@link #eval(Path, Path, Path)} methods accept the same
+ *   files and options as {@link SVMRank}, while {@link #train(List)} and {@link LinearRankModel#score(RankInstance)}
+ *   work directly on instances held in memory.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class LinearRankSVM {
+
+    private static Logger LOG = LoggerFactory.getLogger(LinearRankSVM.class);
+
+    private double c;
+    private double epsilon;
+    private int maxIterations;
+    private long seed;
+
+    public LinearRankSVM() {
+        this(0.01);
+    }
+
+    public LinearRankSVM(double c) {
+        if(c <= 0) {
+            throw new IllegalArgumentException("C must be positive");
+        }
+        this.c = c;
+        this.epsilon = 0.001;
+        this.maxIterations = 1000;
+        this.seed = 1;
+    }
+
+    /**
+     * Sets the trade-off between training error and margin, as with the <code>-c</code> option of SVMrank.
+     * @param c
+     * @return
+     */
+    public LinearRankSVM withC(double c) {
+        if(c <= 0) {
+            throw new IllegalArgumentException("C must be positive");
+        }
+        this.c = c;
+        return this;
+    }
+
+    /**
+     * Sets the stopping tolerance on the projected gradient.
+     * @param epsilon
+     * @return
+     */
+    public LinearRankSVM withEpsilon(double epsilon) {
+        if(epsilon <= 0) {
+            throw new IllegalArgumentException("Epsilon must be positive");
+        }
+        this.epsilon = epsilon;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of passes over the preference pairs.
+     * @param maxIterations
+     * @return
+     */
+    public LinearRankSVM withMaxIterations(int maxIterations) {
+        if(maxIterations < 1) {
+            throw new IllegalArgumentException("The maximum number of iterations must be at least 1");
+        }
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Sets the seed used to shuffle the order the pairs are visited in each pass.
+     * @param seed
+     * @return
+     */
+    public LinearRankSVM withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Trains a model from an SVMrank data file and writes it to the model file. Of the options of
+     * <code>svm_rank_learn</code>, <code>-c</code>, <code>-e</code> and <code>-#</code> (maximum iterations) are
+     * supported, and <code>-t</code> is accepted for the linear kernel only. Other options are ignored.
+     * @param trainFile
+     * @param modelFile
+     * @param args
+     * @throws IOException
+     */
+    public void train(Path trainFile, Path modelFile, String...args) throws IOException {
+        if(args.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected a value for each option: " + String.join(" ", args));
+        }
+        for(int i = 0; i < args.length; i += 2) {
+            switch(args[i]) {
+            case "-c":
+                withC(Double.parseDouble(args[i + 1]));
+                break;
+            case "-e":
+                withEpsilon(Double.parseDouble(args[i + 1]));
+                break;
+            case "-#":
+                withMaxIterations(Integer.parseInt(args[i + 1]));
+                break;
+            case "-t":
+                if(!args[i + 1].equals("0")) {
+                    throw new UnsupportedOperationException("Only the linear kernel is supported");
+                }
+                break;
+            default:
+                LOG.warn("Ignoring unsupported option {} {}", args[i], args[i + 1]);
+            }
+        }
+        LinearRankModel model = train(RankInstance.read(trainFile));
+        model.write(modelFile);
+        LOG.info("Finished training SVMRank model.");
+    }
+
+    /**
+     * Scores the instances of an SVMrank data file with the model, writing one score per line to the output file
+     * as <code>svm_rank_classify</code> does.
+     * @param evalFile
+     * @param modelFile
+     * @param outputFile
+     * @return
+     * @throws IOException
+     */
+    public List<Double> eval(Path evalFile, Path modelFile, Path outputFile) throws IOException {
+        LinearRankModel model = LinearRankModel.read(modelFile);
+        List<Double> scores = model.score(RankInstance.read(evalFile));
+        try(BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            for(double score : scores) {
+                writer.write(Double.toString(score));
+                writer.write("\n");
+            }
+        }
+        return scores;
+    }
+
+    public LinearRankModel train(List<RankInstance> instances) {
+        RankInstance[] insts = instances.toArray(new RankInstance[instances.size()]);
+        Map<Integer, List<Integer>> queries = new LinkedHashMap<>();
+        int maxIndex = 0;
+        for(int i = 0; i < insts.length; i++) {
+            queries.computeIfAbsent(insts[i].getQueryId(), k -> new ArrayList<>()).add(i);
+            maxIndex = Math.max(maxIndex, insts[i].maxIndex());
+        }
+        long total = 0;
+        for(List<Integer> query : queries.values()) {
+            total += countPairs(insts, query);
+        }
+        if(total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Too many preference pairs to train on: %d", total));
+        }
+        int[] above = new int[(int) total];
+        int[] below = new int[(int) total];
+        double[] qd = new double[(int) total];
+        double[] squaredNorms = new double[insts.length];
+        for(int i = 0; i < insts.length; i++) {
+            squaredNorms[i] = insts[i].dot(insts[i]);
+        }
+        int numPairs = 0;
+        for(List<Integer> query : queries.values()) {
+            for(int a : query) {
+                for(int b : query) {
+                    if(insts[a].getRank() <= insts[b].getRank()) {
+                        continue;
+                    }
+                    double q = squaredNorms[a] + squaredNorms[b] - 2 * insts[a].dot(insts[b]);
+                    //Identical instances with different ranks can't be separated and never move the weights
+                    if(q <= 0) {
+                        continue;
+                    }
+                    above[numPairs] = a;
+                    below[numPairs] = b;
+                    qd[numPairs] = q;
+                    numPairs++;
+                }
+            }
+        }
+        double upper = c / Math.max(1, queries.size());
+        double[] weights = new double[maxIndex + 1];
+        double[] alpha = new double[numPairs];
+        int[] order = new int[numPairs];
+        for(int p = 0; p < numPairs; p++) {
+            order[p] = p;
+        }
+        Random random = new Random(seed);
+        int iter = 0;
+        double spread = 0.0;
+        while(iter < maxIterations) {
+            for(int p = numPairs - 1; p > 0; p--) {
+                int swap = random.nextInt(p + 1);
+                int tmp = order[p];
+                order[p] = order[swap];
+                order[swap] = tmp;
+            }
+            double maxPG = Double.NEGATIVE_INFINITY;
+            double minPG = Double.POSITIVE_INFINITY;
+            for(int k = 0; k < numPairs; k++) {
+                int p = order[k];
+                RankInstance a = insts[above[p]];
+                RankInstance b = insts[below[p]];
+                double g = a.dot(weights) - b.dot(weights) - 1;
+                double pg = g;
+                if(alpha[p] == 0) {
+                    pg = Math.min(g, 0);
+                } else if(alpha[p] == upper) {
+                    pg = Math.max(g, 0);
+                }
+                maxPG = Math.max(maxPG, pg);
+                minPG = Math.min(minPG, pg);
+                if(Math.abs(pg) > 1e-12) {
+                    double old = alpha[p];
+                    alpha[p] = Math.min(Math.max(old - g / qd[p], 0), upper);
+                    double delta = alpha[p] - old;
+                    a.addTo(weights, delta);
+                    b.addTo(weights, -delta);
+                }
+            }
+            iter++;
+            spread = numPairs == 0 ? 0.0 : maxPG - minPG;
+            if(spread <= epsilon) {
+                break;
+            }
+        }
+        if(spread > epsilon) {
+            LOG.warn("Reached the maximum of {} iterations before converging, projected gradient spread {}", maxIterations, spread);
+        }
+        LOG.info("Trained ranking model on {} instances, {} queries and {} pairs in {} iterations", insts.length, queries.size(), numPairs, iter);
+        return new LinearRankModel(weights, insts.length);
+    }
+
+    private static long countPairs(RankInstance[] insts, List<Integer> query) {
+        long count = 0;
+        for(int a : query) {
+            for(int b : query) {
+                if(insts[a].getRank() > insts[b].getRank()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+}
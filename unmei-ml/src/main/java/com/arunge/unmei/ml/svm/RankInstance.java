@@ -0,0 +1,223 @@
+package com.arunge.unmei.ml.svm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *<p>A single example for ranking: a sparse feature vector belonging to a query, with a target rank that orders it
+ *   relative to the other examples of the same query (higher ranks should be scored higher). This is the in-memory
+ *   form of one line of an SVMrank data file, e.g. <code>3 qid:1 1:0.5 4:1 # info</code>.
+ *
+ *   Feature indices are stored sorted in ascending order and must be positive, as in SVMrank.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class RankInstance {
+
+    private final int queryId;
+    private final double rank;
+    private final int[] indices;
+    private final double[] values;
+    private final String info;
+
+    /**
+     * Creates an instance from parallel arrays of feature indices and values. The arrays are used directly, not copied,
+     * and the indices must be sorted in strictly ascending order.
+     * @param queryId
+     * @param rank
+     * @param indices
+     * @param values
+     */
+    public RankInstance(int queryId, double rank, int[] indices, double[] values) {
+        this(queryId, rank, indices, values, null);
+    }
+
+    public RankInstance(int queryId, double rank, int[] indices, double[] values, String info) {
+        if(indices.length != values.length) {
+            throw new IllegalArgumentException(String.format("Mismatched number of indices and values: %d, %d", indices.length, values.length));
+        }
+        for(int i = 0; i < indices.length; i++) {
+            if(indices[i] <= 0 || (i > 0 && indices[i] <= indices[i - 1])) {
+                throw new IllegalArgumentException(String.format("Feature indices must be positive and strictly ascending, found %d at position %d", indices[i], i));
+            }
+        }
+        this.queryId = queryId;
+        this.rank = rank;
+        this.indices = indices;
+        this.values = values;
+        this.info = info;
+    }
+
+    /**
+     * Creates an instance from a map of feature index to value, as accepted by {@link SVMRank#instanceToString(int, int, Map)}.
+     * @param queryId
+     * @param rank
+     * @param features
+     * @return
+     */
+    public static RankInstance of(int queryId, double rank, Map<Integer, Double> features) {
+        int[] indices = new int[features.size()];
+        int n = 0;
+        for(int index : features.keySet()) {
+            indices[n++] = index;
+        }
+        Arrays.sort(indices);
+        double[] values = new double[indices.length];
+        for(int i = 0; i < indices.length; i++) {
+            values[i] = features.get(indices[i]);
+        }
+        return new RankInstance(queryId, rank, indices, values);
+    }
+
+    /**
+     * Parses a line of an SVMrank data file. Returns null for blank lines and comment lines.
+     * @param line
+     * @return
+     */
+    public static RankInstance parse(String line) {
+        String info = null;
+        int comment = line.indexOf('#');
+        if(comment >= 0) {
+            info = line.substring(comment + 1).trim();
+            line = line.substring(0, comment);
+        }
+        String[] parts = line.trim().split("\\s+");
+        if(parts.length == 0 || parts[0].isEmpty()) {
+            return null;
+        }
+        if(parts.length < 2 || !parts[1].startsWith("qid:")) {
+            throw new IllegalArgumentException("Missing query id in line: " + line);
+        }
+        try {
+            double rank = Double.parseDouble(parts[0]);
+            int queryId = Integer.parseInt(parts[1].substring(4));
+            int[] indices = new int[parts.length - 2];
+            double[] values = new double[parts.length - 2];
+            for(int i = 2; i < parts.length; i++) {
+                int sep = parts[i].indexOf(':');
+                if(sep < 0) {
+                    throw new IllegalArgumentException(String.format("Invalid feature %s in line: %s", parts[i], line));
+                }
+                indices[i - 2] = Integer.parseInt(parts[i].substring(0, sep));
+                values[i - 2] = Double.parseDouble(parts[i].substring(sep + 1));
+            }
+            return new RankInstance(queryId, rank, indices, values, info == null || info.isEmpty() ? null : info);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in line: " + line, e);
+        }
+    }
+
+    /**
+     * Reads all instances from an SVMrank data file.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static List<RankInstance> read(Path file) throws IOException {
+        List<RankInstance> instances = new ArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                RankInstance instance = parse(line);
+                if(instance != null) {
+                    instances.add(instance);
+                }
+            }
+        }
+        return instances;
+    }
+
+    public int getQueryId() {
+        return queryId;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    /**
+     * Returns the number of non-zero features stored for the instance.
+     * @return
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    public int indexAt(int pos) {
+        return indices[pos];
+    }
+
+    public double valueAt(int pos) {
+        return values[pos];
+    }
+
+    /**
+     * Returns the largest feature index of the instance, or 0 if it has no features.
+     * @return
+     */
+    public int maxIndex() {
+        return indices.length == 0 ? 0 : indices[indices.length - 1];
+    }
+
+    /**
+     * Computes the dot product of the instance with a dense weight vector indexed by feature index. Features beyond
+     * the end of the weight vector are ignored.
+     * @param weights
+     * @return
+     */
+    public double dot(double[] weights) {
+        double sum = 0.0;
+        for(int i = 0; i < indices.length && indices[i] < weights.length; i++) {
+            sum += weights[indices[i]] * values[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Computes the dot product of two instances by merging their sorted indices.
+     * @param other
+     * @return
+     */
+    public double dot(RankInstance other) {
+        double sum = 0.0;
+        int i = 0;
+        int j = 0;
+        while(i < indices.length && j < other.indices.length) {
+            int a = indices[i];
+            int b = other.indices[j];
+            if(a == b) {
+                sum += values[i++] * other.values[j++];
+            } else if(a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Adds scale times this instance to a dense weight vector indexed by feature index.
+     * @param weights
+     * @param scale
+     */
+    void addTo(double[] weights, double scale) {
+        for(int i = 0; i < indices.length; i++) {
+            weights[indices[i]] += scale * values[i];
+        }
+    }
+
+}
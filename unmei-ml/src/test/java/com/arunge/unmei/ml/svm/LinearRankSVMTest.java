@@ -0,0 +1,122 @@
+package com.arunge.unmei.ml.svm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LinearRankSVMTest {
+
+    @Test
+    public void testLinearRankSVM() throws Exception {
+        LinearRankSVM rank = new LinearRankSVM();
+        Path trainFile = Paths.get("src/test/resources/svmrank/train.dat");
+        Path evalFile = Paths.get("src/test/resources/svmrank/test.dat");
+        Path modelFile = Paths.get("src/test/resources/svmrank/linear.model");
+        Path outputFile = Paths.get("src/test/resources/svmrank/linear.out");
+        try {
+            rank.train(trainFile, modelFile, "-c", "20");
+            List<Double> scores = rank.eval(evalFile, modelFile, outputFile);
+            assertEquals(4, scores.size());
+            for(int i = 1; i < scores.size(); i++) {
+                assertTrue(scores.get(i - 1) > scores.get(i));
+            }
+            assertEquals(4, Files.readAllLines(outputFile).size());
+        } finally {
+            Files.deleteIfExists(modelFile);
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        List<RankInstance> train = RankInstance.read(Paths.get("src/test/resources/svmrank/train.dat"));
+        List<RankInstance> test = RankInstance.read(Paths.get("src/test/resources/svmrank/test.dat"));
+        LinearRankModel model = new LinearRankSVM(20).train(train);
+        for(int i = 1; i < test.size(); i++) {
+            assertTrue(model.score(test.get(i - 1)) > model.score(test.get(i)));
+        }
+    }
+
+    @Test
+    public void testReadSVMRankModel() throws Exception {
+        LinearRankModel model = LinearRankModel.read(Paths.get("src/test/resources/svmrank/model"));
+        List<Double> scores = model.score(RankInstance.read(Paths.get("src/test/resources/svmrank/test.dat")));
+        assertEquals(4, scores.size());
+        for(int i = 1; i < scores.size(); i++) {
+            assertTrue(scores.get(i - 1) > scores.get(i));
+        }
+    }
+
+    @Test
+    public void testModelWeights() throws Exception {
+        double[] weights = {0.0, 0.5, 0.0, -1.5};
+        LinearRankModel model = new LinearRankModel(weights);
+        //The model is not affected by later changes to the caller's array
+        weights[1] = 10.0;
+        assertEquals(0.5, model.getWeight(1), 0.0);
+        Path modelFile = Paths.get("src/test/resources/svmrank/weights.model");
+        try {
+            model.write(modelFile);
+            List<String> lines = Files.readAllLines(modelFile);
+            assertEquals("3 # highest feature index ", lines.get(7));
+            LinearRankModel read = LinearRankModel.read(modelFile);
+            assertEquals(4, read.getWeights().length);
+            assertEquals(0.5, read.getWeight(1), 0.0);
+            assertEquals(-1.5, read.getWeight(3), 0.0);
+        } finally {
+            Files.deleteIfExists(modelFile);
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        try {
+            new LinearRankSVM(0);
+            fail("C must be positive");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new LinearRankSVM().withEpsilon(-0.1);
+            fail("Epsilon must be positive");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new LinearRankSVM().withMaxIterations(0);
+            fail("Maximum iterations must be at least 1");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testInstanceConversion() {
+        Map<Integer, Double> inst1 = new HashMap<>();
+        inst1.put(4, 0.0000001);
+        inst1.put(1, 0.7);
+        inst1.put(2, 0.3);
+        RankInstance instance = RankInstance.parse(SVMRank.instanceToString(1, 2, inst1, "doc1"));
+        assertEquals(1, instance.getQueryId());
+        assertEquals(2.0, instance.getRank(), 0.0);
+        assertEquals("doc1", instance.getInfo());
+        assertEquals(3, instance.size());
+        assertEquals(4, instance.maxIndex());
+        assertEquals(0.3, instance.valueAt(1), 0.0);
+        assertEquals(0.7 * 0.7 + 0.3 * 0.3 + 0.0000001 * 0.0000001, instance.dot(RankInstance.of(1, 2, inst1)), 1e-12);
+        assertNull(RankInstance.parse("# comment line"));
+        try {
+            RankInstance.parse("1 qid:1 3:1 2:1");
+            fail("Unsorted feature indices should be rejected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.arunge.ingest.common;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arunge.ingest.TextSource;
+import com.arunge.nlp.text.TextDocument;
+import com.arunge.unmei.iterators.io.DelimitedLine;
+import com.arunge.unmei.iterators.io.DelimitedLineFileIterator;
+
+/**
+ *
+ *<p>A {@link TextSource} that reads one document per line from a delimited file, optionally gzipped, taking the
+ *   id and text of each document from the named columns. The first line of the file is used as the header
+ *   unless one is provided with {@link #withHeader(String)}. Lines are split with a
+ *   {@link DelimitedLineFileIterator}, so the text column cannot contain the delimiter.
+ *
+ *   The file is read and decompressed on a background thread with {@link ReadAheadInputStream}. Streams returned
+ *   by {@link #getDocuments()} should be closed to release the file.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class DelimitedTextSource implements TextSource {
+
+    private static Logger LOG = LoggerFactory.getLogger(DelimitedTextSource.class);
+
+    private File file;
+    private String delimiter;
+    private String idColumn;
+    private String textColumn;
+    private String header;
+
+    /**
+     * Creates a source that reads a tab separated file.
+     * @param file
+     * @param idColumn
+     * @param textColumn
+     */
+    public DelimitedTextSource(File file, String idColumn, String textColumn) {
+        this(file, "\t", idColumn, textColumn);
+    }
+
+    public DelimitedTextSource(File file, String delimiter, String idColumn, String textColumn) {
+        this.file = file;
+        this.delimiter = delimiter;
+        this.idColumn = idColumn;
+        this.textColumn = textColumn;
+    }
+
+    /**
+     * Uses the provided header, separated by the same delimiter as the file, instead of reading the header from
+     * the first line of the file.
+     * @param header
+     * @return
+     */
+    public DelimitedTextSource withHeader(String header) {
+        this.header = header;
+        return this;
+    }
+
+    @Override
+    public Stream<TextDocument> getDocuments() {
+        DelimitedLineFileIterator lines;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(ReadAheadInputStream.open(file), StandardCharsets.UTF_8), 1 << 16);
+            lines = new DelimitedLineFileIterator(reader, delimiter, header);
+        } catch (IOException e) {
+            closeQuietly(reader);
+            throw new RuntimeException("Unable to open file " + file.getAbsolutePath(), e);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lines, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(line -> toDocument(line))
+                .onClose(() -> {
+                    try {
+                        lines.close();
+                    } catch (Exception e) {
+                        LOG.warn("Unable to close file {}", file);
+                    }
+                });
+    }
+
+    private TextDocument toDocument(DelimitedLine line) {
+        return new TextDocument(line.getString(idColumn), line.getString(textColumn));
+    }
+
+    private void closeQuietly(BufferedReader reader) {
+        if(reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close file {}", file);
+        }
+    }
+
+}
@@ -2,57 +2,216 @@ package com.arunge.ingest.common;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.arunge.ingest.TextSource;
 import com.arunge.nlp.text.TextDocument;
-import com.google.common.base.Charsets;
-import com.google.common.io.CharSource;
-import com.google.common.io.Files;
 
 /**
- * 
- *<p>A {@link TextSource} that loads documents from a directory. Each document in the directory <p>
+ *
+ *<p>A {@link TextSource} that loads documents from a directory. Each file in the directory is loaded as a single
+ *   document, using the file name as the document id.
+ *
+ *   The directory is listed lazily as the stream is consumed, so only the files currently being read are held in
+ *   memory. Subdirectories can be included with {@link #recursive()}, and files can be selected by suffix or with
+ *   a glob over their file names. With {@link #withPrefetch(int, int)}, files are read ahead of the consumer on a
+ *   small pool of I/O threads, and the returned stream can be split in batches of already loaded documents for
+ *   parallel consumers. Streams returned by {@link #getDocuments()} should be closed to release the directory
+ *   handles and I/O threads.<p>
  *
  * @author Andrew Runge
  *
  */
 public class DirectoryTextSource implements TextSource {
 
+    private static Logger LOG = LoggerFactory.getLogger(DirectoryTextSource.class);
+
     private File textDir;
     private String typeSuffix;
-    
+    private boolean recursive;
+    private PathMatcher globMatcher;
+    private int ioThreads;
+    private int prefetch;
+
     public DirectoryTextSource(File textDir) {
         this(textDir, "");
     }
-    
-    public DirectoryTextSource(File textDir, String typeSuffix) { 
+
+    public DirectoryTextSource(File textDir, String typeSuffix) {
         this.textDir = textDir;
         this.typeSuffix = typeSuffix;
     }
-    
+
+    /**
+     * Includes the files in all subdirectories of the directory.
+     * @return
+     */
+    public DirectoryTextSource recursive() {
+        this.recursive = true;
+        return this;
+    }
+
+    /**
+     * Only loads files whose names match the provided glob, e.g. "*.{txt,text}".
+     * @param glob
+     * @return
+     */
+    public DirectoryTextSource withGlob(String glob) {
+        this.globMatcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return this;
+    }
+
+    /**
+     * Reads files on a pool of the specified number of I/O threads, keeping up to prefetch documents loaded
+     * ahead of the consumer.
+     * @param ioThreads
+     * @param prefetch
+     * @return
+     */
+    public DirectoryTextSource withPrefetch(int ioThreads, int prefetch) {
+        if(ioThreads < 1 || prefetch < 1) {
+            throw new IllegalArgumentException(String.format("Invalid prefetch configuration: %d threads, %d documents", ioThreads, prefetch));
+        }
+        this.ioThreads = ioThreads;
+        this.prefetch = prefetch;
+        return this;
+    }
+
     @Override
     public Stream<TextDocument> getDocuments() {
-        Stream<File> fileList = Arrays.stream(textDir.listFiles());
-        return fileList.filter(f -> matchesType(f))
-                .map(f -> loadText(f))
-                .filter(f -> f.isPresent())
-                .map(f -> f.get());
+        Stream<Path> paths = listFiles().filter(p -> matches(p));
+        if(ioThreads == 0) {
+            return paths.map(p -> loadText(p))
+                    .filter(d -> d.isPresent())
+                    .map(d -> d.get());
+        }
+        PrefetchingIterator docs = new PrefetchingIterator(paths.iterator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(docs, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(docs::close)
+                .onClose(paths::close);
     }
 
-    private boolean matchesType(File f) {
-        return typeSuffix.isEmpty() || f.getName().endsWith(typeSuffix);
+    private Stream<Path> listFiles() {
+        Path root = textDir.toPath();
+        try {
+            if(recursive) {
+                return Files.walk(root).filter(p -> Files.isRegularFile(p));
+            }
+            DirectoryStream<Path> dirStream = Files.newDirectoryStream(root, p -> Files.isRegularFile(p));
+            return StreamSupport.stream(dirStream.spliterator(), false).onClose(() -> {
+                try {
+                    dirStream.close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close directory {}", root);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to list files in directory " + textDir.getAbsolutePath(), e);
+        }
     }
-    
-    private Optional<TextDocument> loadText(File file) {
+
+    private boolean matches(Path p) {
+        Path fileName = p.getFileName();
+        if(!typeSuffix.isEmpty() && !fileName.toString().endsWith(typeSuffix)) {
+            return false;
+        }
+        return globMatcher == null || globMatcher.matches(fileName);
+    }
+
+    private Optional<TextDocument> loadText(Path file) {
         try {
-            String content = Files.asCharSource(file, Charsets.UTF_8).read();
-            return Optional.of(new TextDocument(file.getName(), content));
-        } catch (IOException e) { 
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            return Optional.of(new TextDocument(file.getFileName().toString(), content));
+        } catch (IOException e) {
+            LOG.warn("Unable to read file {}", file);
             return Optional.empty();
         }
     }
-    
+
+    /**
+     * Iterates over the documents of a sequence of files, reading up to prefetch files ahead on a pool of
+     * daemon threads. Documents are returned in the order of the files.
+     */
+    private class PrefetchingIterator implements Iterator<TextDocument> {
+
+        private Iterator<Path> paths;
+        private ExecutorService pool;
+        private ArrayDeque<Future<Optional<TextDocument>>> inFlight;
+        private TextDocument next;
+
+        PrefetchingIterator(Iterator<Path> paths) {
+            this.paths = paths;
+            this.inFlight = new ArrayDeque<>(prefetch);
+            this.pool = Executors.newFixedThreadPool(ioThreads, r -> {
+                Thread t = new Thread(r, "directory-text-source-io");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            while(next == null) {
+                while(inFlight.size() < prefetch && paths.hasNext()) {
+                    Path p = paths.next();
+                    inFlight.add(pool.submit(() -> loadText(p)));
+                }
+                if(inFlight.isEmpty()) {
+                    close();
+                    return false;
+                }
+                Optional<TextDocument> doc = await(inFlight.poll());
+                if(doc.isPresent()) {
+                    next = doc.get();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public TextDocument next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextDocument doc = next;
+            next = null;
+            return doc;
+        }
+
+        private Optional<TextDocument> await(Future<Optional<TextDocument>> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while reading documents", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error reading document", e.getCause());
+            }
+        }
+
+        void close() {
+            pool.shutdownNow();
+        }
+    }
+
 }
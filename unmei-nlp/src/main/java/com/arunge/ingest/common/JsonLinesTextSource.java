@@ -0,0 +1,283 @@
+package com.arunge.ingest.common;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arunge.ingest.TextSource;
+import com.arunge.nlp.text.TextDocument;
+
+/**
+ *
+ *<p>A {@link TextSource} that reads one document per line from a JSON lines file, optionally gzipped. Each line
+ *   must be a JSON object; the document text is taken from a string field and the id from a string or number
+ *   field. Lines without an id are given the id file:line.
+ *
+ *   The file is read and decompressed on a background thread with {@link ReadAheadInputStream}, and only the
+ *   id and text fields of each object are decoded. Lines that are not valid objects or have no text are logged
+ *   and skipped. Streams returned by {@link #getDocuments()} should be closed to release the file.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class JsonLinesTextSource implements TextSource {
+
+    private static Logger LOG = LoggerFactory.getLogger(JsonLinesTextSource.class);
+
+    private File file;
+    private String idField;
+    private String textField;
+
+    public JsonLinesTextSource(File file) {
+        this(file, "id", "text");
+    }
+
+    public JsonLinesTextSource(File file, String idField, String textField) {
+        this.file = file;
+        this.idField = idField;
+        this.textField = textField;
+    }
+
+    @Override
+    public Stream<TextDocument> getDocuments() {
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(ReadAheadInputStream.open(file), StandardCharsets.UTF_8), 1 << 16);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open file " + file.getAbsolutePath(), e);
+        }
+        DocumentIterator docs = new DocumentIterator(reader);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(docs, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        LOG.warn("Unable to close file {}", file);
+                    }
+                });
+    }
+
+    /**
+     * Extracts the id and text fields from a single JSON object. Returns null if the line has no text.
+     */
+    TextDocument parse(String line, int lineNumber) {
+        JsonScanner scanner = new JsonScanner(line);
+        String id = null;
+        String text = null;
+        scanner.expect('{');
+        if(!scanner.consume('}')) {
+            do {
+                String key = scanner.readString();
+                scanner.expect(':');
+                if(key.equals(textField)) {
+                    text = scanner.readScalar();
+                } else if(key.equals(idField)) {
+                    id = scanner.readScalar();
+                } else {
+                    scanner.skipValue();
+                }
+            } while(scanner.consume(','));
+            scanner.expect('}');
+        }
+        if(text == null) {
+            return null;
+        }
+        if(id == null) {
+            id = file.getName() + ":" + lineNumber;
+        }
+        return new TextDocument(id, text);
+    }
+
+    private class DocumentIterator implements Iterator<TextDocument> {
+
+        private BufferedReader reader;
+        private int lineNumber;
+        private TextDocument next;
+
+        DocumentIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while(next == null) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error reading file " + file.getAbsolutePath(), e);
+                }
+                if(line == null) {
+                    return false;
+                }
+                lineNumber++;
+                if(line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    next = parse(line, lineNumber);
+                    if(next == null) {
+                        LOG.warn("No {} field on line {} of {}", textField, lineNumber, file);
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("Unable to parse line {} of {}: {}", lineNumber, file, e.getMessage());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public TextDocument next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextDocument doc = next;
+            next = null;
+            return doc;
+        }
+    }
+
+    /**
+     * Minimal scanner over a single line of JSON that decodes strings and skips over any other values.
+     */
+    private static class JsonScanner {
+
+        private String json;
+        private int pos;
+
+        JsonScanner(String json) {
+            this.json = json;
+        }
+
+        private void skipWhitespace() {
+            while(pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if(pos < json.length() && json.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if(!consume(c)) {
+                throw new IllegalArgumentException(String.format("Expected '%c' at position %d", c, pos));
+            }
+        }
+
+        /**
+         * Reads a string, number or literal value, returning null for JSON null.
+         */
+        String readScalar() {
+            skipWhitespace();
+            if(pos < json.length() && json.charAt(pos) == '"') {
+                return readString();
+            }
+            int start = pos;
+            skipValue();
+            String value = json.substring(start, pos).trim();
+            return value.equals("null") ? null : value;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = null;
+            int start = pos;
+            while(pos < json.length()) {
+                char c = json.charAt(pos);
+                if(c == '"') {
+                    String s = sb == null ? json.substring(start, pos) : sb.append(json, start, pos).toString();
+                    pos++;
+                    return s;
+                }
+                if(c != '\\') {
+                    pos++;
+                    continue;
+                }
+                if(sb == null) {
+                    sb = new StringBuilder(json.length() - start);
+                }
+                sb.append(json, start, pos);
+                if(pos + 1 >= json.length()) {
+                    break;
+                }
+                char escaped = json.charAt(pos + 1);
+                pos += 2;
+                switch(escaped) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if(pos + 4 > json.length()) {
+                        throw new IllegalArgumentException("Truncated unicode escape at position " + pos);
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid unicode escape at position " + pos);
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(escaped);
+                }
+                start = pos;
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+
+        void skipValue() {
+            skipWhitespace();
+            if(pos >= json.length()) {
+                throw new IllegalArgumentException("Missing value at end of line");
+            }
+            char c = json.charAt(pos);
+            if(c == '"') {
+                readString();
+            } else if(c == '{' || c == '[') {
+                int depth = 0;
+                while(pos < json.length()) {
+                    c = json.charAt(pos);
+                    if(c == '"') {
+                        readString();
+                        continue;
+                    }
+                    pos++;
+                    if(c == '{' || c == '[') {
+                        depth++;
+                    } else if((c == '}' || c == ']') && --depth == 0) {
+                        return;
+                    }
+                }
+                throw new IllegalArgumentException("Unterminated object or array");
+            } else {
+                int start = pos;
+                while(pos < json.length() && ",}] \t".indexOf(json.charAt(pos)) < 0) {
+                    pos++;
+                }
+                if(pos == start) {
+                    throw new IllegalArgumentException(String.format("Unexpected '%c' at position %d", c, pos));
+                }
+            }
+        }
+    }
+
+}
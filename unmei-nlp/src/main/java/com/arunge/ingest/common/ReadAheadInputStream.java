@@ -0,0 +1,205 @@
+package com.arunge.ingest.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ *
+ *<p>An {@link InputStream} that reads its source on a background thread into a small ring of large buffers, so
+ *   that reading and decompressing a file overlaps with the parsing done by the consumer.
+ *
+ *   {@link #open(File)} opens a file for reading this way, decompressing it on the background thread if its name
+ *   ends with .gz or .tgz. Errors from the source are rethrown to the consumer on the next read. Closing the stream
+ *   stops the background thread and closes the source.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_BUFFERS = 4;
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<byte[]> free;
+    private final Thread reader;
+    private volatile boolean closed;
+    private Chunk current;
+    private int pos;
+
+    public ReadAheadInputStream(InputStream source) {
+        this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+    }
+
+    public ReadAheadInputStream(InputStream source, int bufferSize, int buffers) {
+        if(bufferSize < 1 || buffers < 1) {
+            throw new IllegalArgumentException(String.format("Invalid read ahead configuration: %d buffers of %d bytes", buffers, bufferSize));
+        }
+        this.source = source;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        //One extra slot so the end of stream marker never blocks the background thread
+        this.filled = new ArrayBlockingQueue<>(buffers + 1);
+        for(int i = 0; i < buffers; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        this.reader = new Thread(() -> fill(), "read-ahead-input");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Opens the file for reading on a background thread, decompressing it if it is gzipped.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        String name = file.getName();
+        if(name.endsWith(".gz") || name.endsWith(".tgz")) {
+            try {
+                in = new GZIPInputStream(in, 1 << 16);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+        return new ReadAheadInputStream(in);
+    }
+
+    private void fill() {
+        try {
+            while(!closed) {
+                byte[] buffer = free.take();
+                int length = 0;
+                int read = 0;
+                while(length < buffer.length && (read = source.read(buffer, length, buffer.length - length)) != -1) {
+                    length += read;
+                }
+                if(length > 0) {
+                    filled.put(new Chunk(buffer, length, null));
+                }
+                if(read == -1) {
+                    filled.put(Chunk.END);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            //Closed by the consumer
+        } catch (IOException e) {
+            if(!closed) {
+                filled.offer(new Chunk(null, 0, e));
+            }
+        }
+    }
+
+    /**
+     * Returns the chunk with unread bytes, or null at the end of the stream.
+     */
+    private Chunk current() throws IOException {
+        if(closed) {
+            throw new IOException("Stream closed");
+        }
+        if(current != null && pos < current.length) {
+            return current;
+        }
+        if(current == Chunk.END) {
+            return null;
+        }
+        if(current != null) {
+            free.add(current.data);
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for data", e);
+        }
+        pos = 0;
+        if(current.error != null) {
+            IOException error = current.error;
+            current = Chunk.END;
+            throw error;
+        }
+        return current == Chunk.END ? null : current;
+    }
+
+    @Override
+    public int read() throws IOException {
+        Chunk chunk = current();
+        if(chunk == null) {
+            return -1;
+        }
+        return chunk.data[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if(len == 0) {
+            return 0;
+        }
+        Chunk chunk = current();
+        if(chunk == null) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - pos);
+        System.arraycopy(chunk.data, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while(skipped < n) {
+            Chunk chunk = current();
+            if(chunk == null) {
+                break;
+            }
+            int step = (int) Math.min(n - skipped, chunk.length - pos);
+            pos += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current != null && current != Chunk.END ? current.length - pos : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        source.close();
+    }
+
+    private static class Chunk {
+
+        static final Chunk END = new Chunk(new byte[0], 0, null);
+
+        final byte[] data;
+        final int length;
+        final IOException error;
+
+        Chunk(byte[] data, int length, IOException error) {
+            this.data = data;
+            this.length = length;
+            this.error = error;
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.arunge.ingest.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arunge.ingest.TextSource;
+import com.arunge.nlp.text.TextDocument;
+
+/**
+ *
+ *<p>A {@link TextSource} that reads documents directly from a tar archive, optionally gzipped, without unpacking
+ *   it to disk. Each regular file in the archive is loaded as a single document, using its path within the
+ *   archive as the document id.
+ *
+ *   The archive is read and decompressed on a background thread with {@link ReadAheadInputStream}, and entries
+ *   are read in archive order as the stream is consumed. Long names in GNU and pax format are supported. Streams
+ *   returned by {@link #getDocuments()} should be closed to release the archive.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class TarTextSource implements TextSource {
+
+    private static Logger LOG = LoggerFactory.getLogger(TarTextSource.class);
+
+    private static final int BLOCK_SIZE = 512;
+
+    private File archive;
+    private String typeSuffix;
+
+    public TarTextSource(File archive) {
+        this(archive, "");
+    }
+
+    public TarTextSource(File archive, String typeSuffix) {
+        this.archive = archive;
+        this.typeSuffix = typeSuffix;
+    }
+
+    @Override
+    public Stream<TextDocument> getDocuments() {
+        InputStream in;
+        try {
+            in = ReadAheadInputStream.open(archive);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open archive " + archive.getAbsolutePath(), e);
+        }
+        EntryIterator docs = new EntryIterator(in);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(docs, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        LOG.warn("Unable to close archive {}", archive);
+                    }
+                });
+    }
+
+    private class EntryIterator implements Iterator<TextDocument> {
+
+        private InputStream in;
+        private byte[] header;
+        private TextDocument next;
+        private boolean done;
+
+        EntryIterator(InputStream in) {
+            this.in = in;
+            this.header = new byte[BLOCK_SIZE];
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while(next == null && !done) {
+                    next = readEntry();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading archive " + archive.getAbsolutePath(), e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public TextDocument next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextDocument doc = next;
+            next = null;
+            return doc;
+        }
+
+        /**
+         * Reads the next entry in the archive, returning null if it is not a document.
+         */
+        private TextDocument readEntry() throws IOException {
+            String longName = null;
+            while(true) {
+                if(!readFully(header, BLOCK_SIZE) || isZeroBlock(header)) {
+                    done = true;
+                    return null;
+                }
+                char type = (char) header[156];
+                long size = parseSize(header);
+                if(type == 'L') {
+                    longName = trimName(readContent(size));
+                } else if(type == 'x') {
+                    String path = paxPath(readContent(size));
+                    if(path != null) {
+                        longName = path;
+                    }
+                } else if(type == '0' || type == '\0' || type == '7') {
+                    String name = longName != null ? longName : headerName(header);
+                    if(!name.endsWith(typeSuffix)) {
+                        skip(padded(size));
+                        return null;
+                    }
+                    return new TextDocument(name, new String(readContent(size), StandardCharsets.UTF_8));
+                } else {
+                    //Directories, links and global headers
+                    skip(padded(size));
+                    return null;
+                }
+            }
+        }
+
+        private byte[] readContent(long size) throws IOException {
+            if(size > Integer.MAX_VALUE - BLOCK_SIZE) {
+                throw new IOException(String.format("Entry of %d bytes is too large to load as a document", size));
+            }
+            int length = (int) padded(size);
+            byte[] content = new byte[length];
+            if(!readFully(content, length)) {
+                throw new IOException("Unexpected end of archive");
+            }
+            return size == length ? content : Arrays.copyOf(content, (int) size);
+        }
+
+        private boolean readFully(byte[] buffer, int length) throws IOException {
+            int read = 0;
+            while(read < length) {
+                int n = in.read(buffer, read, length - read);
+                if(n == -1) {
+                    if(read == 0) {
+                        return false;
+                    }
+                    throw new IOException("Unexpected end of archive");
+                }
+                read += n;
+            }
+            return true;
+        }
+
+        private void skip(long n) throws IOException {
+            while(n > 0) {
+                long skipped = in.skip(n);
+                if(skipped <= 0) {
+                    throw new IOException("Unexpected end of archive");
+                }
+                n -= skipped;
+            }
+        }
+    }
+
+    private static long padded(long size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for(byte b : block) {
+            if(b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String headerName(byte[] header) {
+        String name = field(header, 0, 100);
+        //The POSIX ustar prefix field holds the leading directories of long paths. GNU headers, whose magic is
+        //"ustar  " instead of "ustar\0", store access and change times at the same offset.
+        if(field(header, 257, 5).equals("ustar") && header[262] == 0) {
+            String prefix = field(header, 345, 155);
+            if(!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while(end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimName(byte[] content) {
+        int end = 0;
+        while(end < content.length && content[end] != 0) {
+            end++;
+        }
+        return new String(content, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private static long parseSize(byte[] header) throws IOException {
+        //GNU base-256 encoding for entries of 8GB or more
+        if((header[124] & 0x80) != 0) {
+            long size = header[124] & 0x7f;
+            for(int i = 125; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xff);
+            }
+            return size;
+        }
+        long size = 0;
+        for(int i = 124; i < 136; i++) {
+            byte b = header[i];
+            if(b == 0 || b == ' ') {
+                if(size == 0) {
+                    continue;
+                }
+                break;
+            }
+            if(b < '0' || b > '7') {
+                throw new IOException("Invalid entry size in archive header");
+            }
+            size = (size << 3) + (b - '0');
+        }
+        return size;
+    }
+
+    /**
+     * Returns the path from a pax extended header, made up of records of the form "length key=value\n".
+     */
+    private static String paxPath(byte[] content) {
+        int pos = 0;
+        while(pos < content.length && content[pos] != 0) {
+            int length = 0;
+            int i = pos;
+            while(i < content.length && content[i] >= '0' && content[i] <= '9') {
+                length = length * 10 + (content[i++] - '0');
+            }
+            if(i == pos || i >= content.length || content[i] != ' ' || pos + length > content.length) {
+                break;
+            }
+            String record = new String(content, i + 1, pos + length - i - 1, StandardCharsets.UTF_8);
+            if(record.startsWith("path=")) {
+                return record.substring(5, record.endsWith("\n") ? record.length() - 1 : record.length());
+            }
+            pos += length;
+        }
+        return null;
+    }
+
+}
@@ -1,6 +1,6 @@
 package com.arunge.nlp.api;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,7 +10,7 @@ public class AnnotatedToken extends Token{
     
     public AnnotatedToken(String text, int start, int end) {
         super(text, start, end);
-        this.annotations = new HashMap<>();
+        this.annotations = new EnumMap<>(Annotator.class);
     }
 
     public AnnotatedToken(String text, int start, int end, Map<Annotator, String> annotations) { 
@@ -18,6 +18,23 @@ public class AnnotatedToken extends Token{
         this.annotations = annotations;
     }
     
+    /**
+     * Used by views over token data that is stored elsewhere, which override the accessors.
+     */
+    protected AnnotatedToken() {
+    }
+    
+    /**
+     * Creates a token for a piece split from this token, with its own copy of this token's annotations.
+     * @param piece
+     * @return
+     */
+    public AnnotatedToken split(Token piece) {
+        AnnotatedToken token = new AnnotatedToken(piece.text(), piece.start(), piece.end());
+        token.annotations.putAll(getAnnotations());
+        return token;
+    }
+    
     public void addAnnotation(Annotator annotator, String value) {
         this.annotations.put(annotator, value);
     }
@@ -42,7 +59,7 @@ public class AnnotatedToken extends Token{
         sb.append(super.toString());
         sb.append(" {");
         for(Annotator a : annotators) {
-            sb.append(a.name() + " : " + annotations.get(a) + ", ");
+            sb.append(a.name() + " : " + getAnnotation(a).orElse(null) + ", ");
         }
         return sb.append("} ").toString();
     }
@@ -0,0 +1,247 @@
+package com.arunge.nlp.api;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ *
+ *<p>A compact mapping between strings and dense integer ids. The characters of all stored strings are kept in a single
+ *   contiguous char arena, indexed by an offset array, and lookups go through an open-addressing (linear probing) table
+ *   of ids. Compared to a <code>HashMap&lt;String, Integer&gt;</code> and <code>List&lt;String&gt;</code> pair, no
+ *   per-entry objects are kept at all, and strings can be looked up by any {@link CharSequence} without first creating
+ *   a <code>String</code>.
+ *
+ *   Ids are assigned in insertion order, starting at 0. Entries cannot be removed.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class CompactStringTable implements Serializable {
+
+    private static final long serialVersionUID = -3147704931420575128L;
+
+    private char[] chars;
+    private int numChars;
+    //Start offset of each string in the arena; offsets[size] is the end of the last string
+    private int[] offsets;
+    private int[] hashes;
+    //Open addressing table storing id + 1 for each occupied slot, 0 for empty slots
+    private int[] table;
+    private int mask;
+    private int size;
+
+    public CompactStringTable() {
+        this(16);
+    }
+
+    public CompactStringTable(int expectedSize) {
+        expectedSize = Math.max(expectedSize, 4);
+        int capacity = Integer.highestOneBit(expectedSize * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        this.chars = new char[expectedSize * 8];
+        this.offsets = new int[expectedSize + 1];
+        this.hashes = new int[expectedSize];
+    }
+
+    public CompactStringTable(CompactStringTable other) {
+        this.chars = Arrays.copyOf(other.chars, other.numChars);
+        this.numChars = other.numChars;
+        this.offsets = Arrays.copyOf(other.offsets, other.size + 1);
+        this.hashes = Arrays.copyOf(other.hashes, Math.max(other.size, 1));
+        this.table = Arrays.copyOf(other.table, other.table.length);
+        this.mask = other.mask;
+        this.size = other.size;
+    }
+
+    /**
+     * Returns the id of the provided string, or -1 if it is not present.
+     * @param str
+     * @return
+     */
+    public int get(CharSequence str) {
+        int hash = StringHashing.hash(str);
+        int slot = hash & mask;
+        while(true) {
+            int entry = table[slot];
+            if(entry == 0) {
+                return -1;
+            }
+            int id = entry - 1;
+            if(hashes[id] == hash && matches(id, str)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the id of the provided string, adding it to the table with the next available id if it is not present.
+     * @param str
+     * @return
+     */
+    public int add(CharSequence str) {
+        int hash = StringHashing.hash(str);
+        int slot = hash & mask;
+        while(true) {
+            int entry = table[slot];
+            if(entry == 0) {
+                break;
+            }
+            int id = entry - 1;
+            if(hashes[id] == hash && matches(id, str)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size;
+        append(str, hash);
+        table[slot] = id + 1;
+        if(size > table.length / 4 * 3) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the string with the provided id.
+     * @param id
+     * @return
+     */
+    public String getString(int id) {
+        checkId(id);
+        return new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+    }
+
+    /**
+     * Returns the length of the string with the provided id.
+     * @param id
+     * @return
+     */
+    public int length(int id) {
+        checkId(id);
+        return offsets[id + 1] - offsets[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a new table containing the first n strings with the provided ids, where the string with id ids[i] 
+     * is assigned the id i in the new table. Characters and hashes are copied directly, without creating any strings.
+     * @param ids
+     * @param n
+     * @return
+     */
+    public CompactStringTable select(int[] ids, int n) {
+        CompactStringTable selected = new CompactStringTable(n);
+        for(int i = 0; i < n; i++) {
+            int id = ids[i];
+            checkId(id);
+            int start = offsets[id];
+            int len = offsets[id + 1] - start;
+            if(selected.numChars + len > selected.chars.length) {
+                selected.chars = Arrays.copyOf(selected.chars, Math.max(selected.chars.length * 3 / 2 + 1, selected.numChars + len));
+            }
+            System.arraycopy(chars, start, selected.chars, selected.numChars, len);
+            selected.hashes[i] = hashes[id];
+            selected.offsets[i] = selected.numChars;
+            selected.numChars += len;
+            selected.offsets[i + 1] = selected.numChars;
+        }
+        selected.size = n;
+        selected.rehash(selected.table.length);
+        return selected;
+    }
+    
+    /**
+     * Shrinks the arena and per-entry arrays to the number of stored strings.
+     */
+    public void trim() {
+        this.chars = Arrays.copyOf(chars, numChars);
+        this.offsets = Arrays.copyOf(offsets, size + 1);
+        this.hashes = Arrays.copyOf(hashes, size);
+    }
+
+    private void append(CharSequence str, int hash) {
+        int len = str.length();
+        if(numChars + len > chars.length) {
+            long newLength = Math.max((long) chars.length * 3 / 2 + 1, (long) numChars + len);
+            if(newLength > Integer.MAX_VALUE - 8) {
+                throw new UnsupportedOperationException("String table exceeded the maximum number of characters that can be stored: " + (Integer.MAX_VALUE - 8));
+            }
+            chars = Arrays.copyOf(chars, (int) newLength);
+        }
+        if(size + 1 >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 3 / 2 + 2);
+        }
+        if(size >= hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 3 / 2 + 1);
+        }
+        if(str instanceof String) {
+            ((String) str).getChars(0, len, chars, numChars);
+        } else {
+            for(int i = 0; i < len; i++) {
+                chars[numChars + i] = str.charAt(i);
+            }
+        }
+        hashes[size] = hash;
+        offsets[size] = numChars;
+        numChars += len;
+        size += 1;
+        offsets[size] = numChars;
+    }
+
+    private boolean matches(int id, CharSequence str) {
+        int start = offsets[id];
+        int len = offsets[id + 1] - start;
+        if(len != str.length()) {
+            return false;
+        }
+        for(int i = 0; i < len; i++) {
+            if(chars[start + i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int newMask = capacity - 1;
+        for(int id = 0; id < size; id++) {
+            int slot = hashes[id] & newMask;
+            while(newTable[slot] != 0) {
+                slot = (slot + 1) & newMask;
+            }
+            newTable[slot] = id + 1;
+        }
+        this.table = newTable;
+        this.mask = newMask;
+    }
+
+    private void checkId(int id) {
+        if(id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", id, size));
+        }
+    }
+
+    /**
+     * Writes only the used prefix of the arena and per-entry arrays, in the same form as the default serialized fields,
+     * without trimming the table itself.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("chars", chars.length == numChars ? chars : Arrays.copyOf(chars, numChars));
+        fields.put("numChars", numChars);
+        fields.put("offsets", offsets.length == size + 1 ? offsets : Arrays.copyOf(offsets, size + 1));
+        fields.put("hashes", hashes.length == size ? hashes : Arrays.copyOf(hashes, size));
+        fields.put("table", table);
+        fields.put("mask", mask);
+        fields.put("size", size);
+        out.writeFields();
+    }
+}
@@ -0,0 +1,16 @@
+package com.arunge.nlp.api;
+
+/**
+ *
+ *<p>Functional interface for consuming (index, value) pairs, such as the n-gram or feature values of a
+ *   document, without boxing either argument.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+@FunctionalInterface
+public interface IntDoubleConsumer {
+
+    public void accept(int index, double value);
+
+}
@@ -0,0 +1,66 @@
+package com.arunge.nlp.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * 
+ *<p>A read-only, memory mapped region of a file, addressed by element index. Regions larger than a single
+ *   mapping can address are split into multiple mappings; since the chunk size is a power of two, values 
+ *   never span two chunks as long as the region starts at an offset aligned to the size of the values read.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class MappedRegion {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+    
+    private ByteBuffer[] chunks;
+    private long length;
+    
+    public MappedRegion(FileChannel channel, long offset, long length) throws IOException {
+        int numChunks = (int) ((length + CHUNK_MASK) >>> CHUNK_BITS);
+        this.chunks = new ByteBuffer[numChunks];
+        this.length = length;
+        for(int i = 0; i < numChunks; i++) {
+            long start = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(MapMode.READ_ONLY, offset + start, Math.min(1L << CHUNK_BITS, length - start));
+        }
+    }
+    
+    /**
+     * Returns the length of the region in bytes.
+     * @return
+     */
+    public long length() {
+        return length;
+    }
+    
+    public long getLong(long index) {
+        long pos = index << 3;
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+    }
+    
+    public double getDouble(long index) {
+        long pos = index << 3;
+        return chunks[(int) (pos >>> CHUNK_BITS)].getDouble((int) (pos & CHUNK_MASK));
+    }
+    
+    public int getInt(long index) {
+        long pos = index << 2;
+        return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+    }
+    
+    public char getChar(long index) {
+        long pos = index << 1;
+        return chunks[(int) (pos >>> CHUNK_BITS)].getChar((int) (pos & CHUNK_MASK));
+    }
+    
+    public byte getByte(long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+    }
+}
@@ -1,11 +1,19 @@
 package com.arunge.nlp.api;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
 import com.arunge.nlp.text.AnnotatedTextDocument;
 import com.arunge.nlp.text.TextDocument;
 
 /**
- * 
- *<p>Describes the core interface for a preprocessing pipeline for text documents composed of multiple sections.<p>
+ *
+ *<p>Describes the core interface for a preprocessing pipeline for text documents composed of multiple sections.
+ *
+ *   Pipelines can also process documents in batches, which allows implementations backed by heavyweight models
+ *   to amortize their setup costs and annotate the documents of a batch in parallel. By default, batches are
+ *   processed one document at a time.<p>
  *
  * @author Andrew Runge
  *
@@ -13,5 +21,26 @@ import com.arunge.nlp.text.TextDocument;
 public interface NLPPreprocessingPipeline {
 
     AnnotatedTextDocument apply(TextDocument doc);
- 
+
+    /**
+     * Processes a batch of documents, returning the processed documents in the same order.
+     * @param docs
+     * @return
+     */
+    default List<AnnotatedTextDocument> applyAll(List<? extends TextDocument> docs) {
+        List<AnnotatedTextDocument> processed = new ArrayList<>(docs.size());
+        for(TextDocument doc : docs) {
+            processed.add(apply(doc));
+        }
+        return processed;
+    }
+
+    /**
+     * Lazily processes a stream of documents, preserving their order.
+     * @param docs
+     * @return
+     */
+    default Stream<AnnotatedTextDocument> apply(Stream<? extends TextDocument> docs) {
+        return docs.map(this::apply);
+    }
 }
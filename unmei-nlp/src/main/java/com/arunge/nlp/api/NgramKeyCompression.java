@@ -94,7 +94,56 @@ public class NgramKeyCompression {
         return new int[] {prevPrev, prev, curr};
     }
     
-    private static int extractOrder(long key) {
+    /**
+     * Returns the word index at the provided position (0 being the first word) of the n-gram represented by 
+     * the key, without unpacking the other word indices.
+     * @param key
+     * @param position
+     * @return
+     */
+    public static int extractWord(long key, int position) {
+        int order = extractOrder(key);
+        if(position < 0 || position >= order) {
+            throw new IndexOutOfBoundsException(String.format("Position %d is out of bounds for an n-gram of order %d", position, order));
+        }
+        if(order == 1) {
+            return (int) key;
+        }
+        long bits = key << 2 >>> 2;
+        if(order == 2) {
+            return position == 0 ? (int) (bits >> 32) : (int) bits;
+        }
+        return (int) ((bits << (4 + 20 * position)) >>> 44);
+    }
+    
+    /**
+     * Returns the key of the same n-gram with each word index w replaced by wordMap[w], without unpacking the
+     * word indices into an array.
+     * @param key
+     * @param wordMap
+     * @return
+     */
+    public static long remapKey(long key, int[] wordMap) {
+        int order = extractOrder(key);
+        if(order == 1) {
+            return (long) wordMap[(int) key];
+        } else if(order == 2) {
+            long bits = key << 2 >>> 2;
+            return generateBigramKey(wordMap[(int) (bits >> 32)], wordMap[(int) bits]);
+        } else if(order == 3) {
+            long bits = key << 2 >>> 2;
+            return generateTrigramKey(wordMap[(int) (bits >>> 40)], wordMap[(int) ((bits << 24) >>> 44)], wordMap[(int) ((bits << 44) >>> 44)]);
+        } else {
+            return -1;
+        }
+    }
+    
+    /**
+     * Returns the order of the n-gram represented by the key, without unpacking the word indices.
+     * @param key
+     * @return
+     */
+    public static int extractOrder(long key) {
         return (int) (key >>> 62) + 1;
     }
     
@@ -0,0 +1,45 @@
+package com.arunge.nlp.api;
+
+/**
+ *
+ *<p>Hash functions for the open addressing string tables used by {@link CompactStringTable}, the mapped n-gram index
+ *   and the stopword filter. The hashes take any {@link CharSequence}, so a token can be looked up without creating a
+ *   String for it, and spread their bits so that linear probing on the low bits is well distributed.
+ *
+ *   {@link #hash(CharSequence)} is stored as part of the mapped n-gram index format, so it must not change.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class StringHashing {
+
+    private StringHashing() {
+    }
+
+    public static int hash(CharSequence str) {
+        int h = 0;
+        for(int i = 0; i < str.length(); i++) {
+            h = 31 * h + str.charAt(i);
+        }
+        return spread(h);
+    }
+
+    /**
+     * Hashes the lowercase form of the characters, so that strings differing only in case have the same hash.
+     * @param str
+     * @return
+     */
+    public static int hashIgnoreCase(CharSequence str) {
+        int h = 0;
+        for(int i = 0; i < str.length(); i++) {
+            h = 31 * h + Character.toLowerCase(str.charAt(i));
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
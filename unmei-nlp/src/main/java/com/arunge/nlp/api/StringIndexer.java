@@ -1,66 +1,92 @@
 package com.arunge.nlp.api;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.AbstractMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import com.google.common.collect.ImmutableMap;
 
 public class StringIndexer implements Iterable<Map.Entry<String, Integer>>, Serializable {
 
-    private static final long serialVersionUID = -8690097609915330833L;
-    protected Map<String, Integer> vocab;
-    protected List<String> index2Word;
+    private static final long serialVersionUID = 5323049716834519217L;
+    protected CompactStringTable strings;
     
     public StringIndexer() {
-        this.vocab = new HashMap<>();
-        this.index2Word = new ArrayList<>();
+        this.strings = new CompactStringTable();
     }
     
     public StringIndexer(int initSize) {
-        this.vocab = new HashMap<>(initSize);
-        this.index2Word = new ArrayList<>(initSize);
+        this.strings = new CompactStringTable(initSize);
     }
     
     public StringIndexer(StringIndexer other) {
-        this.vocab = new HashMap<>(other.vocab);
-        this.index2Word = new ArrayList<>(other.index2Word);
+        this.strings = new CompactStringTable(other.strings);
+    }
+    
+    protected StringIndexer(CompactStringTable strings) {
+        this.strings = strings;
     }
     
     public String getWord(int index) {
-        return index2Word.get(index);
+        return strings.getString(index);
     }
     
     public int getOrAdd(String word) {
-        if(!vocab.containsKey(word)) {
-            vocab.put(word, index2Word.size());
-            index2Word.add(word);
-        }
-        return vocab.get(word);
+        return getOrAdd((CharSequence) word);
+    }
+    
+    /**
+     * Retrieves the index of the word, adding it if it is not present. The word is only copied into 
+     * the indexer if it is added, so lookups can be done using a reusable buffer such as a StringBuilder.
+     * @param word
+     * @return
+     */
+    public int getOrAdd(CharSequence word) {
+        return strings.add(word);
     }
  
     public int getIndex(String word) {
-        if(vocab.containsKey(word)) {
-            return vocab.get(word);
-        } else {
-            return -1;
-        }
+        return getIndex((CharSequence) word);
+    }
+    
+    public int getIndex(CharSequence word) {
+        return strings.get(word);
     }
     
     public int size() {
-        return vocab.size();
+        return strings.size();
     }
     
     public Map<String, Integer> getIndexes() {
-        return ImmutableMap.copyOf(vocab);
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for(int i = 0; i < size(); i++) {
+            builder.put(getWord(i), i);
+        }
+        return builder.build();
     }
 
     @Override
     public Iterator<Entry<String, Integer>> iterator() {
-        return vocab.entrySet().iterator();
+        return new Iterator<Entry<String, Integer>>() {
+            private int next = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public Entry<String, Integer> next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<String, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(getWord(next), next);
+                next += 1;
+                return entry;
+            }
+        };
     }
 }
@@ -0,0 +1,74 @@
+package com.arunge.nlp.api;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ *<p>Thread-safe pool that assigns a stable integer id to each distinct string added to it and holds a single
+ *   canonical instance of each. Lookups of existing strings do not lock, so one pool can be shared by
+ *   pipelines running on multiple worker threads.
+ *
+ *   Strings are never removed, so a pool should live only as long as the documents that reference it.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class StringPool {
+
+    private final ConcurrentHashMap<String, Integer> ids;
+    private volatile String[] strings;
+    private int size;
+
+    public StringPool() {
+        this(1024);
+    }
+
+    public StringPool(int expectedSize) {
+        this.ids = new ConcurrentHashMap<>(expectedSize);
+        this.strings = new String[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * Returns the id of the string, adding it to the pool if it is not already present.
+     * @param str
+     * @return
+     */
+    public int getOrAdd(String str) {
+        Integer id = ids.get(str);
+        if(id != null) {
+            return id;
+        }
+        return add(str);
+    }
+
+    private synchronized int add(String str) {
+        Integer id = ids.get(str);
+        if(id != null) {
+            return id;
+        }
+        String[] current = strings;
+        if(size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = str;
+        strings = current;
+        //Publishing the id after the string is stored makes the string visible to any thread that sees the id
+        ids.put(str, size);
+        return size++;
+    }
+
+    /**
+     * Returns the canonical instance of the string with the provided id.
+     * @param id
+     * @return
+     */
+    public String getString(int id) {
+        return strings[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+}
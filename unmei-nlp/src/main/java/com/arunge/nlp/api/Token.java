@@ -22,6 +22,12 @@ public class Token {
         this.range = range;
     }
     
+    /**
+     * Used by views over token data that is stored elsewhere, which override the accessors.
+     */
+    protected Token() {
+    }
+    
     public String text() {
         return text;
     }
@@ -40,6 +46,6 @@ public class Token {
     
     @Override
     public String toString() {
-        return text + " " + range;
+        return text() + " " + range();
     }
 }
@@ -63,6 +63,7 @@ public class BasicCorpus extends Corpus {
 
     @Override
     public List<CorpusDocument> getDocuments() {
+        seal();
         return documents;
     }
 
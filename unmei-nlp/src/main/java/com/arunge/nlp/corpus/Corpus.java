@@ -20,6 +20,8 @@ import com.arunge.nlp.api.FeatureIndexer;
 import com.arunge.nlp.api.FeatureWeightType;
 import com.arunge.nlp.api.TokenForms;
 import com.arunge.nlp.api.TokenForms.TokenForm;
+import com.arunge.nlp.corpus.io.ColumnarCorpusReader;
+import com.arunge.nlp.corpus.io.ColumnarCorpusWriter;
 import com.arunge.nlp.text.AnnotatedTextDocument;
 import com.arunge.nlp.text.TextDocument;
 import com.arunge.nlp.vocab.Vocabulary;
@@ -41,6 +43,7 @@ public abstract class Corpus implements Iterable<CorpusDocument>, Serializable {
     private static final long serialVersionUID = 3725392330208037564L;
     protected Set<String> classLabels;
     protected boolean finalized;
+    protected boolean sealed;
     protected FeatureIndexer featureIndexer;
     protected TokenForm tokenFormExtractor;
     
@@ -95,6 +98,7 @@ public abstract class Corpus implements Iterable<CorpusDocument>, Serializable {
     }
     
     public void export(String outputPath, String fileName) throws IOException {
+        seal();
         Vocabulary vocab = getVocabulary();
         vocab.write(new File(outputPath + "\\" + fileName + ".vocab"));
         try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(outputPath + "\\" + fileName + ".corpus")))) {
@@ -103,6 +107,29 @@ public abstract class Corpus implements Iterable<CorpusDocument>, Serializable {
         
     }
     
+    /**
+     * Export the documents of the corpus to the provided directory in the columnar format written by 
+     * {@link ColumnarCorpusWriter}, along with the vocabulary. The exported documents can be read lazily 
+     * by range using {@link ColumnarCorpusReader}. N-gram corpora write their vocabulary as a mapped index, 
+     * which can be opened with {@link ColumnarCorpusReader#openNgramIndexer()}. The structured feature indexer is
+     * also written, and can be read back with {@link ColumnarCorpusReader#getFeatures()}.
+     * @param outputDir
+     * @throws IOException
+     */
+    public void exportColumnar(File outputDir) throws IOException {
+        List<CorpusDocument> docs = getDocuments();
+        int order = docs.stream().mapToInt(CorpusDocument::getOrder).max().orElse(1);
+        ColumnarCorpusWriter.write(docs, order, outputDir);
+        exportVocabulary(new File(outputDir, ColumnarCorpusWriter.VOCAB_FILE));
+        try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(outputDir, ColumnarCorpusWriter.FEATURES_FILE)))) {
+            out.writeObject(featureIndexer);
+        }
+    }
+    
+    protected void exportVocabulary(File vocabFile) throws IOException {
+        getVocabulary().write(vocabFile);
+    }
+    
     public static Corpus loadCorpus(File file) throws IOException {
         try(ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
             try {
@@ -122,6 +149,17 @@ public abstract class Corpus implements Iterable<CorpusDocument>, Serializable {
      */
     public abstract void trimTail(int minCount, int minDocs);
     
+    /**
+     * Trim the vocabulary as in {@link #trimTail(int, int)}, allowing corpora that support it to rewrite
+     * their documents in parallel. By default the parallel flag is ignored.
+     * @param minCount
+     * @param minDocs
+     * @param parallel
+     */
+    public void trimTail(int minCount, int minDocs, boolean parallel) {
+        trimTail(minCount, minDocs);
+    }
+    
     /**
      * Certain types of corpora can execute corpus-wide operations that permanently modify their internal representations.
      * This method proides a way to indicate that the corpus is completed and that the user will no longer manually
@@ -162,6 +200,28 @@ public abstract class Corpus implements Iterable<CorpusDocument>, Serializable {
 //        }
     }
     
+    /**
+     * Freezes the documents of a finalized corpus into their compact representation (see {@link CorpusDocument#freeze()}).
+     * Corpora seal themselves when their documents are requested or exported, after any corpus-wide operations run by 
+     * {@link #finalize()}, such as tf-idf weighting, have been applied. Has no effect if the corpus has not been 
+     * finalized or has already been sealed.
+     */
+    public void seal() {
+        if(finalized && !sealed) {
+            this.sealed = true;
+            freezeDocuments();
+        }
+    }
+    
+    /**
+     * Converts all documents in the corpus to their compact, frozen representation.
+     */
+    protected void freezeDocuments() {
+        for(CorpusDocument doc : getDocuments()) {
+            doc.freeze();
+        }
+    }
+    
     @Override
     public Iterator<CorpusDocument> iterator() {
         return getDocuments().iterator();
@@ -2,10 +2,17 @@ package com.arunge.nlp.corpus;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +30,7 @@ import com.arunge.nlp.text.TextDocument;
 import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
 import com.arunge.nlp.tokenization.TokenSplitter;
 import com.arunge.nlp.vocab.CountingNGramIndexer;
+import com.google.common.collect.Iterators;
 
 public class CorpusBuilder {
 
@@ -46,12 +54,20 @@ public class CorpusBuilder {
     
     private int trimEvery;
     
+    private int parallelism;
+    
+    private int batchSize;
+    
     private boolean lemmaTag;
     
     private boolean posTag;
     
     private boolean stemTag;
     
+    private boolean coreNLPTokenization;
+    
+    private boolean singlePassAnnotation;
+    
     private List<CorpusTransformer> corpusTransformers;
     
     private List<FeatureExtractor<AnnotatedTextDocument>> textFeatureExtractors;
@@ -117,6 +133,8 @@ public class CorpusBuilder {
         this.tokenSplitters = new ArrayList<>();
         this.textFeatureExtractors = new LinkedList<>();
         this.trimEvery = -1;
+        this.parallelism = 1;
+        this.batchSize = 1;
         this.corpusTransformers = new ArrayList<>();
     }
     
@@ -240,6 +258,60 @@ public class CorpusBuilder {
         return this;
     }
     
+    /**
+     * Runs the preprocessing pipeline and text feature extractors for documents on a pool 
+     * of the specified number of worker threads. Processed documents are still added to the 
+     * corpus one at a time, in the order provided by the {@link TextSource}s, so the resulting
+     * corpus is identical to one built sequentially. This includes documents annotated with CoreNLP, 
+     * where each worker annotates, POS tags and lemmatizes its own batches with a single annotation thread.
+     * @param threads
+     * @return
+     */
+    public CorpusBuilder withParallelism(int threads) {
+        if(threads < 1) { 
+            throw new IllegalArgumentException(String.format("Parallelism must be at least 1, was %d", threads));
+        }
+        this.parallelism = threads;
+        return this;
+    }
+    
+    /**
+     * Passes documents to the preprocessing pipeline in batches of the specified size, allowing the
+     * pipeline to annotate the documents of a batch together. When combined with {@link #withParallelism(int)},
+     * each batch is processed as a single task by one of the worker threads.
+     * @param batchSize
+     * @return
+     */
+    public CorpusBuilder withBatchSize(int batchSize) {
+        if(batchSize < 1) { 
+            throw new IllegalArgumentException(String.format("Batch size must be at least 1, was %d", batchSize));
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+    
+    /**
+     * Tokenizes and sentence splits documents with CoreNLP even when no POS tags or lemmas are needed. 
+     * By default, corpora that only need the token text use the much faster {@link BasicNLPPreprocessingPipeline}.
+     * @return
+     */
+    public CorpusBuilder withCoreNLPTokenization() {
+        this.coreNLPTokenization = true;
+        return this;
+    }
+    
+    /**
+     * Annotates documents with CoreNLP in a single pass, running tokenization, sentence splitting and any POS
+     * tagging and lemmatization together over each text field, as described in 
+     * {@link StanfordNLPPreprocessingPipeline#singlePass(Annotator...)}. Implies {@link #withCoreNLPTokenization()}.
+     * @return
+     */
+    public CorpusBuilder withSinglePassAnnotation() {
+        this.coreNLPTokenization = true;
+        this.singlePassAnnotation = true;
+        return this;
+    }
+    
     public CorpusBuilder addLemmas() {
         this.posTag = true;
         this.lemmaTag = true;
@@ -260,54 +332,128 @@ public class CorpusBuilder {
         if(sources.size() == 0) { 
             throw new UnsupportedOperationException("Cannot build a corpus without at least one TextSource.");
         }
-        List<Annotator> annotators = new ArrayList<>();
-        if(posTag) {
-            annotators.add(Annotator.POS);
-        }
-        if(lemmaTag) { 
-            annotators.add(Annotator.LEMMA);
+        if(posTag || lemmaTag || coreNLPTokenization) {
+            List<Annotator> annotators = new ArrayList<>();
+            if(posTag) {
+                annotators.add(Annotator.POS);
+            }
+            if(lemmaTag) { 
+                annotators.add(Annotator.LEMMA);
+            }
+            Annotator[] anns = annotators.stream().toArray(Annotator[]::new);
+            this.pipeline = singlePassAnnotation ? StanfordNLPPreprocessingPipeline.singlePass(anns) 
+                    : new StanfordNLPPreprocessingPipeline(anns);
+        } else {
+            this.pipeline = new BasicNLPPreprocessingPipeline();
         }
-        Annotator[] anns = annotators.stream().toArray(Annotator[]::new);
-        this.pipeline = new StanfordNLPPreprocessingPipeline(anns)
-                .withTokenFilters(tokenFilters)
-                .withTokenSplitters(tokenSplitters);
+        //Each document's tokens are stored column-wise, with a string pool that is released along with the document
+        this.pipeline = pipeline.withTokenFilters(tokenFilters)
+                .withTokenSplitters(tokenSplitters)
+                .withColumnarFields();
         if(stemTag) { 
             this.pipeline = pipeline.withStemmer(new PorterStemmerImpl());
         }
         
 //        TextDocumentTokenizer docTokenizer = new TextDocumentTokenizer(tokenizer, tokenFilters);
 //        docTokenizer.setTokenSplitters(this.tokenSplitters);
-        for(TextSource source : sources) {
-            source.getDocuments().forEach(d -> tokenizeAndAdd(d));
-            LOG.info("Finished processing text source");
+        if(parallelism > 1) { 
+            buildParallel();
+        } else {
+            for(TextSource source : sources) {
+                try(Stream<TextDocument> docs = source.getDocuments()) {
+                    Iterator<List<TextDocument>> batches = Iterators.partition(docs.iterator(), batchSize);
+                    while(batches.hasNext()) {
+                        for(AnnotatedTextDocument processed : annotateAll(batches.next())) {
+                            addToCorpus(processed);
+                        }
+                    }
+                }
+                LOG.info("Finished processing text source");
+            }
         }
         if(minDocs > 0 || minCount > 0) {
-            corpus.trimTail(minCount, minDocs);
+            corpus.trimTail(minCount, minDocs, parallelism > 1);
         }
         for(CorpusTransformer transformer : corpusTransformers) {
             transformer.transform(corpus);
         }
         corpus.finalize();
+        corpus.seal();
         return corpus;
     }
     
     /**
-     * Tokenize the document and add it to the corpus.
-     * @param vocab
-     * @param doc
+     * Processes batches of documents from all sources on a pool of worker threads. Up to a bounded
+     * number of batches are kept in flight; the calling thread waits on them in submission
+     * order and is the only thread that writes to the corpus.
+     */
+    private void buildParallel() {
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        int maxInFlight = parallelism * 4;
+        ArrayDeque<Future<List<AnnotatedTextDocument>>> inFlight = new ArrayDeque<>(maxInFlight);
+        try {
+            for(TextSource source : sources) {
+                try(Stream<TextDocument> docs = source.getDocuments()) {
+                    Iterator<List<TextDocument>> batches = Iterators.partition(docs.iterator(), batchSize);
+                    while(batches.hasNext()) {
+                        List<TextDocument> batch = batches.next();
+                        inFlight.add(workers.submit(() -> annotateAll(batch)));
+                        if(inFlight.size() >= maxInFlight) {
+                            awaitNext(inFlight).forEach(this::addToCorpus);
+                        }
+                    }
+                }
+                while(!inFlight.isEmpty()) { 
+                    awaitNext(inFlight).forEach(this::addToCorpus);
+                }
+                LOG.info("Finished processing text source");
+            }
+        } finally {
+            for(Future<List<AnnotatedTextDocument>> f : inFlight) {
+                f.cancel(true);
+            }
+            workers.shutdownNow();
+        }
+    }
+    
+    private List<AnnotatedTextDocument> awaitNext(ArrayDeque<Future<List<AnnotatedTextDocument>>> inFlight) {
+        Future<List<AnnotatedTextDocument>> next = inFlight.poll();
+        try {
+            return next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for document processing to complete", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error processing document", e.getCause());
+        }
+    }
+    
+    /**
+     * Run the preprocessing pipeline and text feature extractors over a batch of documents.
+     * Does not modify any builder or corpus state, so it can be called from multiple threads as long as the pipeline 
+     * components and feature extractors are safe to share between threads. The stemmer added for 
+     * {@link #withStemTokenForms()} keeps a separate stemmer for each thread.
+     * @param docs
+     * @return
      */
-    private void tokenizeAndAdd(TextDocument doc) {
-        AnnotatedTextDocument processed = pipeline.apply(doc);
-        for(FeatureExtractor<AnnotatedTextDocument> extractor : textFeatureExtractors) { 
-            processed.addFeatures(extractor.extractFeatures(processed));
+    private List<AnnotatedTextDocument> annotateAll(List<TextDocument> docs) {
+        List<AnnotatedTextDocument> processed = pipeline.applyAll(docs);
+        for(AnnotatedTextDocument doc : processed) {
+            for(FeatureExtractor<AnnotatedTextDocument> extractor : textFeatureExtractors) { 
+                doc.addFeatures(extractor.extractFeatures(doc));
+            }
         }
+        return processed;
+    }
+    
+    private void addToCorpus(AnnotatedTextDocument processed) {
         corpus.addTokenizedDocument(processed);
         processedDocs += 1;
         if(processedDocs % 500 == 0) { 
             LOG.info("Processed {} documents. Vocabulary size: {}", processedDocs, corpus.getVocabulary().size());
         }
         if(trimEvery > 0 && processedDocs % trimEvery == 0) { 
-            corpus.trimTail(minCount, minDocs);
+            corpus.trimTail(minCount, minDocs, parallelism > 1);
         }
     }
     
@@ -5,15 +5,24 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.DoubleUnaryOperator;
 
+import com.arunge.nlp.api.IntDoubleConsumer;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 /**
  * 
  *<p>A <code>CorpusDocument</code> is an indexed representation of a text document. The text of the document
  *   is represented using a bag-of-words model, where each word (or n-gram) is simply represented as an index
  *   in an external vocabulary and a value. The value may be a count, or it may be transformed by an external
- *   application to be something such as a weight for the term for this document.<p>
+ *   application to be something such as a weight for the term for this document.
+ *   
+ *   While a document is being built its values are kept in hash maps. Once it is complete, {@link #freeze()} 
+ *   converts it to a compact {@link SparseVector} per n-gram order, after which values of existing n-grams and
+ *   features can still be updated (e.g. reweighted), but new n-grams and features can no longer be added.<p>
  *
  * @author Andrew Runge
  *
@@ -26,6 +35,10 @@ public class CorpusDocument implements Serializable {
     private final String docId;
     private String label;
     private Int2DoubleOpenHashMap docFeatures;
+    private SparseVector[] frozenNgrams;
+    private SparseVector frozenFeatures;
+    //Cached sum of the n-gram values for each order, NaN if it needs to be recomputed
+    private transient double[] ngramLengths;
     
     /**
      * Create a 
@@ -44,11 +57,58 @@ public class CorpusDocument implements Serializable {
         this.docFeatures = new Int2DoubleOpenHashMap();
     }
 
+    /**
+     * Creates a frozen document directly from its sorted n-gram vectors, one per order starting at unigrams,
+     * and its feature vector, e.g. when reading a stored corpus. The vectors are used directly, not copied.
+     * @param docId
+     * @param ngrams
+     * @param features
+     */
+    public CorpusDocument(String docId, SparseVector[] ngrams, SparseVector features) {
+        this.docId = docId;
+        this.frozenNgrams = ngrams;
+        this.frozenFeatures = features;
+    }
+
     public CorpusDocument(CorpusDocument copy) { 
         this.docId = copy.docId;
-        this.docNgrams = Arrays.copyOf(copy.docNgrams, copy.docNgrams.length);
-        this.docFeatures = new Int2DoubleOpenHashMap(copy.docFeatures);
         this.label = copy.label;
+        if(copy.isFrozen()) {
+            this.frozenNgrams = new SparseVector[copy.frozenNgrams.length];
+            for(int i = 0; i < frozenNgrams.length; i++) {
+                frozenNgrams[i] = copy.frozenNgrams[i].copy();
+            }
+            this.frozenFeatures = copy.frozenFeatures.copy();
+        } else {
+            this.docNgrams = new Int2DoubleOpenHashMap[copy.docNgrams.length];
+            for(int i = 0; i < docNgrams.length; i++) {
+                docNgrams[i] = new Int2DoubleOpenHashMap(copy.docNgrams[i]);
+            }
+            this.docFeatures = new Int2DoubleOpenHashMap(copy.docFeatures);
+        }
+    }
+    
+    /**
+     * Converts the n-grams and features of this document to their compact, sorted representation. After freezing, 
+     * values of n-grams and features already in the document can be updated, but new ones cannot be added.
+     * Freezing an already frozen document has no effect.
+     */
+    public void freeze() {
+        if(isFrozen()) {
+            return;
+        }
+        SparseVector[] vectors = new SparseVector[docNgrams.length];
+        for(int i = 0; i < docNgrams.length; i++) {
+            vectors[i] = SparseVector.fromMap(docNgrams[i]);
+        }
+        this.frozenFeatures = SparseVector.fromMap(docFeatures);
+        this.frozenNgrams = vectors;
+        this.docNgrams = null;
+        this.docFeatures = null;
+    }
+    
+    public boolean isFrozen() {
+        return frozenNgrams != null;
     }
     
     public boolean addOrIncrementNgram(int ngramIndex, int order) {
@@ -56,8 +116,12 @@ public class CorpusDocument implements Serializable {
     }
     
     public boolean addOrIncrementNgram(int ngramIndex, int order, double count) {
+        if(isFrozen()) {
+            throw new UnsupportedOperationException("Cannot add n-grams to a document after it has been frozen.");
+        }
         int orderIndex = order - 1;
-        double result = docNgrams[orderIndex].merge(ngramIndex, count, (a, b) -> a + b);
+        invalidateLength(orderIndex);
+        double result = docNgrams[orderIndex].addTo(ngramIndex, count) + count;
         if(result > count) { 
             return false;
         }
@@ -79,11 +143,29 @@ public class CorpusDocument implements Serializable {
         if(order <= 0 || order > getOrder()) {
             throw new IndexOutOfBoundsException(String.format("Invalid n-gram order: %d, expected 1 <= input <= %d", order, getOrder()));
         }
-        return docNgrams[order - 1].values().stream().reduce(0.0, (a, b) -> a + b);
+        if(ngramLengths == null) {
+            double[] lengths = new double[getOrder()];
+            Arrays.fill(lengths, Double.NaN);
+            this.ngramLengths = lengths;
+        }
+        double length = ngramLengths[order - 1];
+        if(Double.isNaN(length)) {
+            if(isFrozen()) {
+                length = frozenNgrams[order - 1].sum();
+            } else {
+                length = 0.0;
+                ObjectIterator<Int2DoubleMap.Entry> iter = docNgrams[order - 1].int2DoubleEntrySet().fastIterator();
+                while(iter.hasNext()) {
+                    length += iter.next().getDoubleValue();
+                }
+            }
+            ngramLengths[order - 1] = length;
+        }
+        return length;
     }
     
     public int getOrder() {
-        return docNgrams.length;
+        return isFrozen() ? frozenNgrams.length : docNgrams.length;
     }
     
     /**
@@ -93,13 +175,81 @@ public class CorpusDocument implements Serializable {
      * @return
      */
     public double getNgramValue(int ngramIndex, int order) {
+        if(isFrozen()) {
+            return frozenNgrams[order - 1].get(ngramIndex);
+        }
         return docNgrams[order - 1].get(ngramIndex);
     }
     
     public Map<Integer, Double> getNgrams(int order){ 
+        if(isFrozen()) {
+            return frozenNgrams[order - 1].asMap();
+        }
         return Collections.unmodifiableMap(docNgrams[order - 1]);
     }
     
+    /**
+     * Passes each (n-gram index, value) pair of the specified order to the consumer. Frozen documents
+     * are visited in ascending index order, otherwise the order is unspecified.
+     * @param order
+     * @param consumer
+     */
+    public void forEachNgram(int order, IntDoubleConsumer consumer) {
+        if(isFrozen()) {
+            frozenNgrams[order - 1].forEach(consumer);
+        } else {
+            forEach(docNgrams[order - 1], consumer);
+        }
+    }
+    
+    /**
+     * Returns the number of distinct n-grams of the specified order in the document.
+     * @param order
+     * @return
+     */
+    public int getNumNgrams(int order) {
+        return isFrozen() ? frozenNgrams[order - 1].size() : docNgrams[order - 1].size();
+    }
+    
+    /**
+     * Rewrites the n-gram indices of every order in the document, replacing each index i with indexMap[i] 
+     * and dropping n-grams whose index maps to a negative value, e.g. after trimming the n-gram indexer. 
+     * The map must preserve the relative order of the retained n-grams. Works on both frozen and unfrozen documents.
+     * @param indexMap
+     */
+    public void remapNgrams(int[] indexMap) {
+        for(int i = 0; i < getOrder(); i++) {
+            invalidateLength(i);
+            if(isFrozen()) {
+                frozenNgrams[i] = frozenNgrams[i].remap(indexMap);
+            } else {
+                Int2DoubleOpenHashMap remapped = new Int2DoubleOpenHashMap(docNgrams[i].size());
+                ObjectIterator<Int2DoubleMap.Entry> iter = docNgrams[i].int2DoubleEntrySet().fastIterator();
+                while(iter.hasNext()) {
+                    Int2DoubleMap.Entry entry = iter.next();
+                    int newIndex = indexMap[entry.getIntKey()];
+                    if(newIndex >= 0) {
+                        remapped.put(newIndex, entry.getDoubleValue());
+                    }
+                }
+                docNgrams[i] = remapped;
+            }
+        }
+    }
+    
+    /**
+     * Returns the n-grams of the specified order as a sparse vector sorted by n-gram index. For frozen documents
+     * this is the document's own representation, otherwise a snapshot of the current values is created.
+     * @param order
+     * @return
+     */
+    public SparseVector getNgramVector(int order) {
+        if(isFrozen()) {
+            return frozenNgrams[order - 1];
+        }
+        return SparseVector.fromMap(docNgrams[order - 1]);
+    }
+    
     /**
      * Update the value associated with this ngram index.
      * @param ngramIndex
@@ -107,14 +257,49 @@ public class CorpusDocument implements Serializable {
      * @return
      */
     public void setNgramValue(int ngramIndex, int order, double count) { 
+        invalidateLength(order - 1);
+        if(isFrozen()) {
+            setFrozenValue(frozenNgrams[order - 1], ngramIndex, count, "n-gram");
+            return;
+        }
         docNgrams[order - 1].put(ngramIndex, count);
     }
     
     public Map<Integer, Double> getFeatures() {
+        if(isFrozen()) {
+            return frozenFeatures.asMap();
+        }
         return Collections.unmodifiableMap(docFeatures);
     }
     
+    /**
+     * Passes each (feature index, value) pair of the document to the consumer.
+     * @param consumer
+     */
+    public void forEachFeature(IntDoubleConsumer consumer) {
+        if(isFrozen()) {
+            frozenFeatures.forEach(consumer);
+        } else {
+            forEach(docFeatures, consumer);
+        }
+    }
+    
+    /**
+     * Returns the features of the document as a sparse vector sorted by feature index.
+     * @return
+     */
+    public SparseVector getFeatureVector() {
+        if(isFrozen()) {
+            return frozenFeatures;
+        }
+        return SparseVector.fromMap(docFeatures);
+    }
+    
     public Optional<Double> getFeature(int feature) {
+        if(isFrozen()) {
+            int pos = frozenFeatures.positionOf(feature);
+            return pos >= 0 ? Optional.of(frozenFeatures.valueAt(pos)) : Optional.empty();
+        }
         if(docFeatures.containsKey(feature)) {
             return Optional.of(docFeatures.get(feature));
         } else {
@@ -123,10 +308,18 @@ public class CorpusDocument implements Serializable {
     }
     
     public void setFeature(int feature, double value) {
+        if(isFrozen()) {
+            setFrozenValue(frozenFeatures, feature, value, "feature");
+            return;
+        }
         this.docFeatures.put(feature, value);
     }
     
     public void setFeatures(Map<Integer, Double> features) {
+        if(isFrozen()) {
+            this.frozenFeatures = SparseVector.fromMap(features);
+            return;
+        }
         this.docFeatures = new Int2DoubleOpenHashMap(features);
     }
        
@@ -140,23 +333,58 @@ public class CorpusDocument implements Serializable {
     
     public CorpusDocument buildLengthNormCountDoc() { 
         CorpusDocument copy = new CorpusDocument(this);
-        for(int i = 0; i < docNgrams.length; i++) {
+        for(int i = 0; i < getOrder(); i++) {
             double length = getNgramLength(i + 1);
-            copy.docNgrams[i].replaceAll((key, value) -> value / length);
+            copy.replaceNgramValues(i, value -> value / length);
         }
         return copy;
     }
     
     public CorpusDocument buildLogLengthNormCountDoc() { 
         CorpusDocument copy = new CorpusDocument(this);
-        for(int i = 0; i < docNgrams.length; i++) {
+        for(int i = 0; i < getOrder(); i++) {
             double length = getNgramLength(i + 1);
-            copy.docNgrams[i].replaceAll((key, value) -> 1 + Math.log(value / length));
+            copy.replaceNgramValues(i, value -> 1 + Math.log(value / length));
         }
         return copy;
     }
     
+    private void replaceNgramValues(int orderIndex, DoubleUnaryOperator op) {
+        invalidateLength(orderIndex);
+        if(isFrozen()) {
+            SparseVector vector = frozenNgrams[orderIndex];
+            for(int pos = 0; pos < vector.size(); pos++) {
+                vector.setValueAt(pos, op.applyAsDouble(vector.valueAt(pos)));
+            }
+        } else {
+            ObjectIterator<Int2DoubleMap.Entry> iter = docNgrams[orderIndex].int2DoubleEntrySet().fastIterator();
+            while(iter.hasNext()) {
+                Int2DoubleMap.Entry entry = iter.next();
+                entry.setValue(op.applyAsDouble(entry.getDoubleValue()));
+            }
+        }
+    }
     
+    private void invalidateLength(int orderIndex) {
+        if(ngramLengths != null) {
+            ngramLengths[orderIndex] = Double.NaN;
+        }
+    }
     
+    private static void forEach(Int2DoubleOpenHashMap map, IntDoubleConsumer consumer) {
+        ObjectIterator<Int2DoubleMap.Entry> iter = map.int2DoubleEntrySet().fastIterator();
+        while(iter.hasNext()) {
+            Int2DoubleMap.Entry entry = iter.next();
+            consumer.accept(entry.getIntKey(), entry.getDoubleValue());
+        }
+    }
+    
+    private void setFrozenValue(SparseVector vector, int index, double value, String type) {
+        int pos = vector.positionOf(index);
+        if(pos < 0) {
+            throw new UnsupportedOperationException(String.format("Cannot add %s %d to a document after it has been frozen.", type, index));
+        }
+        vector.setValueAt(pos, value);
+    }
     
 }
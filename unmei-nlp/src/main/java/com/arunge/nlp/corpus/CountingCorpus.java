@@ -67,6 +67,7 @@ public class CountingCorpus extends Corpus{
 
     @Override
     public List<CorpusDocument> getDocuments() {
+        seal();
         return documents;
     }
 
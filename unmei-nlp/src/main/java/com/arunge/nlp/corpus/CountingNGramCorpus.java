@@ -6,14 +6,13 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 
 import com.arunge.nlp.api.FeatureDescriptor;
 import com.arunge.nlp.api.FeatureIndexer;
 import com.arunge.nlp.api.TokenForms;
 import com.arunge.nlp.text.AnnotatedTextDocument;
-import com.arunge.nlp.text.NGramIterator;
+import com.arunge.nlp.text.NGramKeyCursor;
 import com.arunge.nlp.vocab.CountingNGramIndexer;
 import com.arunge.nlp.vocab.NGramIndexer;
 import com.arunge.nlp.vocab.Vocabulary;
@@ -97,19 +96,16 @@ public class CountingNGramCorpus extends NGramCorpus {
         String label = doc.getLabel().orElse("");
         document.setLabel(label);
         
-        NGramIterator ngramIter = new NGramIterator(doc, this.tokenFormExtractor, this.order);
-        while(ngramIter.hasNext()) { 
-            String[] ngram = ngramIter.next();
-            int index;
-            if(freezeVocab) {
-                index = indexer.getIndex(ngram);
-                if(index == -1) {
-                    continue;
-                }
-            } else {
-                index = indexer.getOrAdd(ngram);
+        Vocabulary vocab = indexer.getVocabulary();
+        NGramKeyCursor cursor = new NGramKeyCursor(doc, this.tokenFormExtractor, this.order, 
+                freezeVocab ? vocab::getIndex : vocab::getOrAdd);
+        while(cursor.next()) { 
+            //Returns -1 for n-grams not already in the vocabulary if it is frozen
+            int index = indexer.getOrAdd(cursor.key(), cursor.order());
+            if(index == -1) {
+                continue;
             }
-            boolean added = document.addOrIncrementNgram(index, ngram.length);
+            boolean added = document.addOrIncrementNgram(index, cursor.order());
             indexer.incrementNgramFrequency(index);
             if(added) {
                 indexer.incrementDocFrequency(index);
@@ -136,6 +132,47 @@ public class CountingNGramCorpus extends NGramCorpus {
         return documents.size() - 1;
     }
 
+    /**
+     * Merges corpora that were built independently (e.g. one per thread or machine over disjoint
+     * partitions of the input) into a single corpus with a shared n-gram index. Documents are added 
+     * in shard order and their n-gram and feature indices are rewritten against the merged indexers.
+     * All shards must have the same n-gram order and their indexers must be loaded.
+     * @param shards
+     * @return
+     */
+    public static CountingNGramCorpus mergeShards(List<CountingNGramCorpus> shards) {
+        if(shards.isEmpty()) {
+            throw new UnsupportedOperationException("Cannot merge an empty list of corpus shards.");
+        }
+        CountingNGramCorpus first = shards.get(0);
+        CountingNGramCorpus merged = new CountingNGramCorpus(first.order);
+        merged.tokenFormExtractor = first.tokenFormExtractor;
+        merged.indexOnly = shards.stream().allMatch(s -> s.indexOnly);
+        for(CountingNGramCorpus shard : shards) {
+            if(shard.indexer == null) { 
+                throw new UnsupportedOperationException("Cannot merge a corpus shard without a loaded n-gram indexer.");
+            }
+            int[] ngramMap = merged.indexer.mergeFrom(shard.indexer);
+            int[] featureMap = new int[shard.featureIndexer.size()];
+            for(int f = 0; f < featureMap.length; f++) {
+                featureMap[f] = merged.featureIndexer.getOrAdd(shard.featureIndexer.getFeature(f));
+                merged.featureIndexer.setWeight(featureMap[f], shard.featureIndexer.getWeight(f));
+            }
+            for(CorpusDocument doc : shard.documents) {
+                CorpusDocument newDoc = new CorpusDocument(doc.getDocId(), merged.order);
+                newDoc.setLabel(doc.getLabel());
+                for(int o = 1; o <= doc.getOrder(); o++) {
+                    final int order = o;
+                    doc.forEachNgram(o, (ngram, value) -> newDoc.setNgramValue(ngramMap[ngram], order, value));
+                }
+                doc.forEachFeature((feat, value) -> newDoc.setFeature(featureMap[feat], value));
+                merged.documents.add(newDoc);
+            }
+            merged.classLabels.addAll(shard.classLabels);
+        }
+        return merged;
+    }
+
     @Override
     public Vocabulary getVocabulary() {
         return indexer.getVocabulary();
@@ -151,6 +188,7 @@ public class CountingNGramCorpus extends NGramCorpus {
         if(!finalized) {
             finalize();
         }
+        seal();
         List<CorpusDocument> docs = new ArrayList<>();
         docs.addAll(documents);
         return docs;
@@ -170,6 +208,7 @@ public class CountingNGramCorpus extends NGramCorpus {
         if(!finalized) {
             finalize();
         }
+        seal();
         indexer.write(new File(outputPath + "\\" + fileName + ".vocab"));
         try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(outputPath + "\\" + fileName + ".corpus")))) {
             out.writeObject(this);
@@ -178,24 +217,26 @@ public class CountingNGramCorpus extends NGramCorpus {
 
     @Override
     public void trimTail(int minCount, int minDocs) {
-        CountingNGramIndexer newIndexer = indexer.trimTail(minCount, minDocs);
-        for(int i = 0; i < documents.size(); i++) {
-            CorpusDocument d = documents.get(i);
-            CorpusDocument newDoc = new CorpusDocument(d.getDocId(), d.getOrder());
-            newDoc.setLabel(d.getLabel());
-            newDoc.setFeatures(d.getFeatures());
-            for(int o = 1; o <= d.getOrder(); o++) {
-                Map<Integer, Double> ngramCounts = d.getNgrams(o);
-                for(int key : ngramCounts.keySet()) {
-                    String[] ngram = indexer.getNgram(key);
-                    int newNgramIndex = newIndexer.getIndex(ngram);
-                    if(newNgramIndex != -1 ) {
-                        newDoc.addOrIncrementNgram(newNgramIndex, o, ngramCounts.get(key));
-                    }
-                }
+        trimTail(minCount, minDocs, false);
+    }
+    
+    /**
+     * Trims the n-gram indexer in place (see {@link CountingNGramIndexer#trimTailInPlace(int, int)}) and rewrites 
+     * the n-gram indices of every document using the resulting index map, optionally in parallel across documents.
+     * Note that the indexer is modified directly, including when it was provided to the corpus by the caller.
+     * @param minCount
+     * @param minDocs
+     * @param parallel
+     */
+    @Override
+    public void trimTail(int minCount, int minDocs, boolean parallel) {
+        int[] oldToNew = indexer.trimTailInPlace(minCount, minDocs);
+        if(parallel) {
+            documents.parallelStream().forEach(d -> d.remapNgrams(oldToNew));
+        } else {
+            for(CorpusDocument d : documents) {
+                d.remapNgrams(oldToNew);
             }
-            documents.set(i, newDoc);
         }
-        this.indexer = newIndexer;
     }
 }
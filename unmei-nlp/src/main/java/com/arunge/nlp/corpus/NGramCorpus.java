@@ -1,5 +1,9 @@
 package com.arunge.nlp.corpus;
 
+import java.io.File;
+import java.io.IOException;
+
+import com.arunge.nlp.vocab.MappedNGramIndexer;
 import com.arunge.nlp.vocab.NGramIndexer;
 
 public abstract class NGramCorpus extends Corpus {
@@ -8,4 +12,12 @@ public abstract class NGramCorpus extends Corpus {
 
     public abstract NGramIndexer getNgramIndexer();
     
+    /**
+     * Writes the n-gram indexer in the {@link MappedNGramIndexer} format, so that the vocabulary of an exported 
+     * corpus can be opened without deserializing it.
+     */
+    @Override
+    protected void exportVocabulary(File vocabFile) throws IOException {
+        MappedNGramIndexer.write(getNgramIndexer(), vocabFile);
+    }
 }
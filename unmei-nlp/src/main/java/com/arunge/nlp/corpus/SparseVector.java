@@ -0,0 +1,315 @@
+package com.arunge.nlp.corpus;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.arunge.nlp.api.IntDoubleConsumer;
+
+/**
+ *
+ *<p>Compact sparse vector of (index, value) pairs, stored as a pair of parallel arrays sorted by index.
+ *   The set of indices is fixed when the vector is created, which makes lookups a binary search, iteration
+ *   a linear scan and dot products a single merge of two sorted arrays.
+ *
+ *   Used by {@link CorpusDocument} to hold n-gram and feature values once a document has been frozen.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public final class SparseVector implements Serializable {
+
+    private static final long serialVersionUID = -6386429467880302715L;
+
+    private static final int[] EMPTY_INDICES = new int[0];
+    private static final double[] EMPTY_VALUES = new double[0];
+
+    private final int[] indices;
+    private final double[] values;
+
+    /**
+     * Creates a vector from parallel arrays of indices and values. The arrays are used directly, not copied,
+     * and the indices must be sorted in strictly ascending order.
+     * @param indices
+     * @param values
+     */
+    public SparseVector(int[] indices, double[] values) {
+        if(indices.length != values.length) {
+            throw new IllegalArgumentException(String.format("Mismatched number of indices and values: %d, %d", indices.length, values.length));
+        }
+        for(int i = 1; i < indices.length; i++) {
+            if(indices[i] <= indices[i - 1]) {
+                throw new IllegalArgumentException(String.format("Indices must be strictly ascending, found %d after %d", indices[i], indices[i - 1]));
+            }
+        }
+        this.indices = indices;
+        this.values = values;
+    }
+
+    private SparseVector(int[] indices, double[] values, boolean unchecked) {
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * Creates a vector containing the entries of the provided map.
+     * @param map
+     * @return
+     */
+    public static SparseVector fromMap(Map<Integer, Double> map) {
+        if(map.isEmpty()) {
+            return new SparseVector(EMPTY_INDICES, EMPTY_VALUES, true);
+        }
+        int[] indices = new int[map.size()];
+        int n = 0;
+        for(int key : map.keySet()) {
+            indices[n++] = key;
+        }
+        Arrays.sort(indices);
+        double[] values = new double[indices.length];
+        for(int i = 0; i < indices.length; i++) {
+            values[i] = map.get(indices[i]);
+        }
+        return new SparseVector(indices, values, true);
+    }
+
+    /**
+     * Returns the number of non-default entries in the vector.
+     * @return
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * Returns the index stored at the provided position.
+     * @param pos
+     * @return
+     */
+    public int indexAt(int pos) {
+        return indices[pos];
+    }
+
+    /**
+     * Returns the value stored at the provided position.
+     * @param pos
+     * @return
+     */
+    public double valueAt(int pos) {
+        return values[pos];
+    }
+
+    /**
+     * Returns the position of the provided index in the vector, or a negative value if it is not present.
+     * @param index
+     * @return
+     */
+    public int positionOf(int index) {
+        return Arrays.binarySearch(indices, index);
+    }
+
+    public boolean contains(int index) {
+        return positionOf(index) >= 0;
+    }
+
+    /**
+     * Returns the value associated with the provided index, or 0 if it is not present.
+     * @param index
+     * @return
+     */
+    public double get(int index) {
+        int pos = positionOf(index);
+        return pos >= 0 ? values[pos] : 0.0;
+    }
+
+    /**
+     * Passes each (index, value) pair of the vector to the consumer in ascending index order.
+     * @param consumer
+     */
+    public void forEach(IntDoubleConsumer consumer) {
+        for(int i = 0; i < indices.length; i++) {
+            consumer.accept(indices[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns the sum of all values in the vector.
+     * @return
+     */
+    public double sum() {
+        double sum = 0.0;
+        for(int i = 0; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the euclidean norm of the vector.
+     * @return
+     */
+    public double norm() {
+        double sum = 0.0;
+        for(int i = 0; i < values.length; i++) {
+            sum += values[i] * values[i];
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Computes the dot product of this vector with another by merging their sorted indices.
+     * @param other
+     * @return
+     */
+    public double dot(SparseVector other) {
+        int[] otherIndices = other.indices;
+        double[] otherValues = other.values;
+        double sum = 0.0;
+        int i = 0;
+        int j = 0;
+        while(i < indices.length && j < otherIndices.length) {
+            int a = indices[i];
+            int b = otherIndices[j];
+            if(a == b) {
+                sum += values[i] * otherValues[j];
+                i++;
+                j++;
+            } else if(a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a vector in which each index i is replaced by indexMap[i], dropping entries whose index maps
+     * to a negative value. The map must preserve the relative order of the retained indices.
+     * @param indexMap
+     * @return
+     */
+    public SparseVector remap(int[] indexMap) {
+        int n = 0;
+        for(int i = 0; i < indices.length; i++) {
+            if(indexMap[indices[i]] >= 0) {
+                n++;
+            }
+        }
+        int[] newIndices = new int[n];
+        double[] newValues = new double[n];
+        n = 0;
+        for(int i = 0; i < indices.length; i++) {
+            int newIndex = indexMap[indices[i]];
+            if(newIndex >= 0) {
+                newIndices[n] = newIndex;
+                newValues[n] = values[i];
+                n++;
+            }
+        }
+        return new SparseVector(newIndices, newValues);
+    }
+
+    /**
+     * Returns a copy of the indices of the vector.
+     * @return
+     */
+    public int[] getIndices() {
+        return Arrays.copyOf(indices, indices.length);
+    }
+
+    /**
+     * Returns a copy of the values of the vector.
+     * @return
+     */
+    public double[] getValues() {
+        return Arrays.copyOf(values, values.length);
+    }
+
+    /**
+     * Returns a read-only view of the vector as a map from index to value.
+     * @return
+     */
+    public Map<Integer, Double> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * Returns a vector with the same indices as this one and its own copy of the values, which
+     * can be updated independently.
+     * @return
+     */
+    SparseVector copy() {
+        return new SparseVector(indices, Arrays.copyOf(values, values.length), true);
+    }
+
+    /**
+     * Overwrites the value at the provided position. Only used by {@link CorpusDocument}, which
+     * allows reweighting the values of a frozen document but not changing its set of indices.
+     * @param pos
+     * @param value
+     */
+    void setValueAt(int pos, double value) {
+        values[pos] = value;
+    }
+
+    private class MapView extends AbstractMap<Integer, Double> {
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && contains((Integer) key);
+        }
+
+        @Override
+        public Double get(Object key) {
+            if(!(key instanceof Integer)) {
+                return null;
+            }
+            int pos = positionOf((Integer) key);
+            return pos >= 0 ? values[pos] : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, Double>> entrySet() {
+            return new AbstractSet<Entry<Integer, Double>>() {
+
+                @Override
+                public Iterator<Entry<Integer, Double>> iterator() {
+                    return new Iterator<Entry<Integer, Double>>() {
+                        private int pos = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return pos < indices.length;
+                        }
+
+                        @Override
+                        public Entry<Integer, Double> next() {
+                            if(pos >= indices.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Integer, Double> entry = new SimpleImmutableEntry<>(indices[pos], values[pos]);
+                            pos++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return indices.length;
+                }
+            };
+        }
+    }
+}
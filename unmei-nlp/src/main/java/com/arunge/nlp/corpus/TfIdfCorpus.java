@@ -86,6 +86,7 @@ public class TfIdfCorpus extends Corpus {
         if(!finalized) {
             finalize();
         }
+        seal();
         return documents;
     }
     
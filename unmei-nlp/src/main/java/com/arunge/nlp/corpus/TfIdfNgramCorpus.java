@@ -97,6 +97,7 @@ public class TfIdfNgramCorpus extends Corpus {
         if(!finalized) {
             finalize();
         }
+        seal();
         List<CorpusDocument> docs = new ArrayList<>();
         docs.addAll(documents);
         return docs;
@@ -163,6 +164,7 @@ public class TfIdfNgramCorpus extends Corpus {
         if(!finalized) {
             finalize();
         }
+        seal();
         indexer.write(new File(outputPath + "\\" + fileName + ".vocab"));
         try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(outputPath + "\\" + fileName + ".corpus")))) {
             out.writeObject(this);
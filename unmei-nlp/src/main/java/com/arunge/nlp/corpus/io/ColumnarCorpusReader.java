@@ -0,0 +1,259 @@
+package com.arunge.nlp.corpus.io;
+
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.DOC_ID_DATA;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.DOC_ID_OFFSETS;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.FEATURES_FILE;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.FEATURE_PREFIX;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.IDS_SUFFIX;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.LABELS;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.MAGIC;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.METADATA_FILE;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.NGRAM_PREFIX;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.OFFSETS_SUFFIX;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.VALUES_SUFFIX;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.VERSION;
+import static com.arunge.nlp.corpus.io.ColumnarCorpusWriter.VOCAB_FILE;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.arunge.nlp.api.FeatureIndexer;
+import com.arunge.nlp.api.MappedRegion;
+import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.corpus.SparseVector;
+import com.arunge.nlp.vocab.MappedNGramIndexer;
+
+/**
+ *
+ *<p>Reads a corpus written by {@link ColumnarCorpusWriter}. The column files are memory mapped rather than loaded,
+ *   so only the metadata is read on open and documents are materialized on demand, either individually, by range,
+ *   or by iterating over the corpus.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class ColumnarCorpusReader implements Iterable<CorpusDocument> {
+
+    private File dir;
+    private int order;
+    private int numDocs;
+    private List<String> labelTable;
+    private SparseColumn[] ngramColumns;
+    private SparseColumn featureColumn;
+    private MappedRegion docIdOffsets;
+    private MappedRegion docIdData;
+    private MappedRegion labels;
+
+    private ColumnarCorpusReader() {
+    }
+
+    /**
+     * Opens the corpus stored in the provided directory.
+     * @param dir
+     * @return
+     * @throws IOException
+     */
+    public static ColumnarCorpusReader open(File dir) throws IOException {
+        ColumnarCorpusReader reader = new ColumnarCorpusReader();
+        reader.dir = dir;
+        File metaFile = new File(dir, METADATA_FILE);
+        if(!metaFile.isFile()) {
+            throw new IOException("No corpus metadata found in directory " + dir.getAbsolutePath());
+        }
+        try(DataInputStream meta = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile)))) {
+            if(meta.readInt() != MAGIC) {
+                throw new IOException("File is not a corpus metadata file: " + metaFile.getAbsolutePath());
+            }
+            int version = meta.readInt();
+            if(version != VERSION) {
+                throw new IOException(String.format("Unsupported corpus version %d in %s, expected %d", version, metaFile.getAbsolutePath(), VERSION));
+            }
+            reader.order = meta.readInt();
+            reader.numDocs = meta.readInt();
+            int numLabels = meta.readInt();
+            reader.labelTable = new ArrayList<>(numLabels);
+            for(int i = 0; i < numLabels; i++) {
+                reader.labelTable.add(meta.readUTF());
+            }
+        }
+        reader.ngramColumns = new SparseColumn[reader.order];
+        for(int o = 1; o <= reader.order; o++) {
+            reader.ngramColumns[o - 1] = new SparseColumn(dir, NGRAM_PREFIX + o);
+        }
+        reader.featureColumn = new SparseColumn(dir, FEATURE_PREFIX);
+        reader.docIdOffsets = map(new File(dir, DOC_ID_OFFSETS));
+        reader.docIdData = map(new File(dir, DOC_ID_DATA));
+        reader.labels = map(new File(dir, LABELS));
+        return reader;
+    }
+
+    public int size() {
+        return numDocs;
+    }
+
+    /**
+     * Opens the vocabulary exported with an n-gram corpus by {@link com.arunge.nlp.corpus.Corpus#exportColumnar(File)}
+     * as a memory mapped index, which maps the n-gram indices of the documents back to their words.
+     * @return
+     * @throws IOException If the corpus was not exported with an n-gram vocabulary.
+     */
+    public MappedNGramIndexer openNgramIndexer() throws IOException {
+        File vocabFile = new File(dir, VOCAB_FILE);
+        if(!vocabFile.isFile()) {
+            throw new IOException("No vocabulary found in directory " + dir.getAbsolutePath());
+        }
+        return MappedNGramIndexer.open(vocabFile);
+    }
+
+    /**
+     * Reads the structured feature indexer exported with the corpus by
+     * {@link com.arunge.nlp.corpus.Corpus#exportColumnar(File)}, which names the feature indices of the documents.
+     * Returns an empty indexer if the corpus was written without one.
+     * @return
+     * @throws IOException
+     */
+    public FeatureIndexer getFeatures() throws IOException {
+        File featuresFile = new File(dir, FEATURES_FILE);
+        if(!featuresFile.isFile()) {
+            return new FeatureIndexer();
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(featuresFile)))) {
+            return (FeatureIndexer) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to deserialize feature indexer from " + featuresFile.getAbsolutePath(), e);
+        }
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public Set<String> getClassLabels() {
+        return Collections.unmodifiableSet(new HashSet<>(labelTable));
+    }
+
+    /**
+     * Materializes the document at the provided position in the corpus. The document is frozen, and its 
+     * n-gram and feature vectors are read directly from the sorted rows of the column files.
+     * @param index
+     * @return
+     */
+    public CorpusDocument getDocument(int index) {
+        if(index < 0 || index >= numDocs) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, numDocs));
+        }
+        SparseVector[] ngrams = new SparseVector[order];
+        for(int o = 1; o <= order; o++) {
+            ngrams[o - 1] = ngramColumns[o - 1].row(index);
+        }
+        CorpusDocument doc = new CorpusDocument(getDocId(index), ngrams, featureColumn.row(index));
+        int label = labels.getInt(index);
+        if(label >= 0) {
+            doc.setLabel(labelTable.get(label));
+        }
+        return doc;
+    }
+
+    /**
+     * Materializes the documents in the range [from, to).
+     * @param from
+     * @param to
+     * @return
+     */
+    public List<CorpusDocument> getDocuments(int from, int to) {
+        if(from < 0 || to > numDocs || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Invalid document range [%d, %d), current size: %d", from, to, numDocs));
+        }
+        List<CorpusDocument> docs = new ArrayList<>(to - from);
+        for(int i = from; i < to; i++) {
+            docs.add(getDocument(i));
+        }
+        return docs;
+    }
+
+    public String getDocId(int index) {
+        long start = docIdOffsets.getLong(index);
+        int length = (int) (docIdOffsets.getLong(index + 1) - start);
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            bytes[i] = docIdData.getByte(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String getLabel(int index) {
+        int label = labels.getInt(index);
+        return label < 0 ? null : labelTable.get(label);
+    }
+
+    /**
+     * Iterates over the documents in the corpus, materializing one document at a time.
+     */
+    @Override
+    public Iterator<CorpusDocument> iterator() {
+        return new Iterator<CorpusDocument>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < numDocs;
+            }
+
+            @Override
+            public CorpusDocument next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getDocument(next++);
+            }
+        };
+    }
+
+    private static MappedRegion map(File f) throws IOException {
+        try(FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            return new MappedRegion(channel, 0, channel.size());
+        }
+    }
+
+    private static class SparseColumn {
+
+        private MappedRegion offsets;
+        private MappedRegion ids;
+        private MappedRegion values;
+
+        SparseColumn(File dir, String name) throws IOException {
+            this.offsets = map(new File(dir, name + OFFSETS_SUFFIX));
+            this.ids = map(new File(dir, name + IDS_SUFFIX));
+            this.values = map(new File(dir, name + VALUES_SUFFIX));
+        }
+
+        /**
+         * Reads the ids and values of the row for a document, which are stored in ascending id order.
+         */
+        SparseVector row(int index) {
+            long start = offsets.getLong(index);
+            int length = (int) (offsets.getLong(index + 1) - start);
+            int[] rowIds = new int[length];
+            double[] rowValues = new double[length];
+            for(int i = 0; i < length; i++) {
+                rowIds[i] = ids.getInt(start + i);
+                rowValues[i] = values.getDouble(start + i);
+            }
+            return new SparseVector(rowIds, rowValues);
+        }
+    }
+}
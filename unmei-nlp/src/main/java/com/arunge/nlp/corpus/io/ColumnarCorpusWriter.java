@@ -0,0 +1,211 @@
+package com.arunge.nlp.corpus.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.corpus.SparseVector;
+
+/**
+ *
+ *<p>Writes a corpus to a directory of column files, one document at a time. N-gram counts for each order and
+ *   document features are stored in compressed sparse row form: a long offsets column with one entry per document
+ *   (plus a final end offset), an int column of n-gram or feature indices sorted within each document, and a double
+ *   column of values. Document ids are stored as UTF-8 bytes with a long offsets column, labels as indices into the
+ *   label table stored in the metadata file. All values are written big-endian.
+ *
+ *   Only the current document is held in memory, so arbitrarily large corpora can be written. The metadata file
+ *   is written on {@link #close()}, and a directory without it is not readable by {@link ColumnarCorpusReader}.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class ColumnarCorpusWriter implements Closeable {
+
+    static final int MAGIC = 0x434F5250;
+    static final int VERSION = 1;
+    static final String METADATA_FILE = "corpus.meta";
+    public static final String VOCAB_FILE = "corpus.vocab";
+    public static final String FEATURES_FILE = "corpus.features";
+    static final String DOC_ID_OFFSETS = "docids.offsets";
+    static final String DOC_ID_DATA = "docids.data";
+    static final String LABELS = "labels";
+    static final String FEATURE_PREFIX = "features";
+    static final String NGRAM_PREFIX = "ngrams.";
+    static final String OFFSETS_SUFFIX = ".offsets";
+    static final String IDS_SUFFIX = ".ids";
+    static final String VALUES_SUFFIX = ".values";
+
+    private File dir;
+    private int order;
+    private int numDocs;
+    private SparseColumnWriter[] ngramColumns;
+    private SparseColumnWriter featureColumn;
+    private DataOutputStream docIdOffsets;
+    private DataOutputStream docIdData;
+    private long docIdBytes;
+    private DataOutputStream labels;
+    private Map<String, Integer> labelIndexes;
+    private List<String> labelTable;
+    private boolean closed;
+
+    /**
+     * Creates a writer for documents with n-grams up to the provided order in the provided directory,
+     * creating the directory if it does not exist.
+     * @param dir
+     * @param order
+     * @throws IOException
+     */
+    public ColumnarCorpusWriter(File dir, int order) throws IOException {
+        if(!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create corpus directory " + dir.getAbsolutePath());
+        }
+        this.dir = dir;
+        this.order = order;
+        this.ngramColumns = new SparseColumnWriter[order];
+        for(int o = 1; o <= order; o++) {
+            ngramColumns[o - 1] = new SparseColumnWriter(dir, NGRAM_PREFIX + o);
+        }
+        this.featureColumn = new SparseColumnWriter(dir, FEATURE_PREFIX);
+        this.docIdOffsets = open(dir, DOC_ID_OFFSETS);
+        this.docIdData = open(dir, DOC_ID_DATA);
+        this.labels = open(dir, LABELS);
+        this.labelIndexes = new HashMap<>();
+        this.labelTable = new ArrayList<>();
+        docIdOffsets.writeLong(0);
+    }
+
+    /**
+     * Convenience method for writing all of the documents to the provided directory.
+     * @param docs
+     * @param order
+     * @param dir
+     * @throws IOException
+     */
+    public static void write(Iterable<CorpusDocument> docs, int order, File dir) throws IOException {
+        try(ColumnarCorpusWriter writer = new ColumnarCorpusWriter(dir, order)) {
+            for(CorpusDocument doc : docs) {
+                writer.write(doc);
+            }
+        }
+    }
+
+    /**
+     * Appends a document to the corpus files.
+     * @param doc
+     * @throws IOException
+     */
+    public void write(CorpusDocument doc) throws IOException {
+        if(closed) {
+            throw new UnsupportedOperationException("Cannot write documents after the writer has been closed.");
+        }
+        if(doc.getOrder() > order) {
+            throw new UnsupportedOperationException(String.format("Document order %d is larger than the corpus order %d", doc.getOrder(), order));
+        }
+        for(int o = 1; o <= order; o++) {
+            if(o <= doc.getOrder()) {
+                ngramColumns[o - 1].write(doc.getNgramVector(o));
+            } else {
+                ngramColumns[o - 1].write(null);
+            }
+        }
+        featureColumn.write(doc.getFeatureVector());
+
+        byte[] docId = doc.getDocId() == null ? new byte[0] : doc.getDocId().getBytes(StandardCharsets.UTF_8);
+        docIdData.write(docId);
+        docIdBytes += docId.length;
+        docIdOffsets.writeLong(docIdBytes);
+
+        String label = doc.getLabel();
+        if(label == null) {
+            labels.writeInt(-1);
+        } else {
+            Integer labelIndex = labelIndexes.get(label);
+            if(labelIndex == null) {
+                labelIndex = labelTable.size();
+                labelIndexes.put(label, labelIndex);
+                labelTable.add(label);
+            }
+            labels.writeInt(labelIndex);
+        }
+        numDocs += 1;
+    }
+
+    public int size() {
+        return numDocs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        for(SparseColumnWriter column : ngramColumns) {
+            column.close();
+        }
+        featureColumn.close();
+        docIdOffsets.close();
+        docIdData.close();
+        labels.close();
+        try(DataOutputStream meta = open(dir, METADATA_FILE)) {
+            meta.writeInt(MAGIC);
+            meta.writeInt(VERSION);
+            meta.writeInt(order);
+            meta.writeInt(numDocs);
+            meta.writeInt(labelTable.size());
+            for(String label : labelTable) {
+                meta.writeUTF(label);
+            }
+        }
+    }
+
+    private static DataOutputStream open(File dir, String name) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, name)), 1 << 16));
+    }
+
+    /**
+     * Writes the offsets, ids and values files for one sparse column.
+     */
+    private static class SparseColumnWriter implements Closeable {
+
+        private DataOutputStream offsets;
+        private DataOutputStream ids;
+        private DataOutputStream values;
+        private long numEntries;
+
+        SparseColumnWriter(File dir, String name) throws IOException {
+            this.offsets = open(dir, name + OFFSETS_SUFFIX);
+            this.ids = open(dir, name + IDS_SUFFIX);
+            this.values = open(dir, name + VALUES_SUFFIX);
+            offsets.writeLong(0);
+        }
+
+        void write(SparseVector row) throws IOException {
+            if(row != null) {
+                for(int i = 0; i < row.size(); i++) {
+                    ids.writeInt(row.indexAt(i));
+                    values.writeDouble(row.valueAt(i));
+                }
+                numEntries += row.size();
+            }
+            offsets.writeLong(numEntries);
+        }
+
+        @Override
+        public void close() throws IOException {
+            offsets.close();
+            ids.close();
+            values.close();
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.arunge.nlp.corpus.transform;
 
-import java.util.Map;
-
 import com.arunge.nlp.corpus.Corpus;
 import com.arunge.nlp.corpus.CorpusDocument;
 import com.arunge.nlp.corpus.CorpusTransformer;
@@ -66,15 +64,13 @@ public class TfidfCorpusTransformer implements CorpusTransformer {
             idfWeights = indexer.computeIDFVector();
         } else if(corpus instanceof NGramCorpus) {
             NGramIndexer indexer = ((CountingNGramCorpus) corpus).getNgramIndexer();
-            idfWeights = new double[indexer.size()];
+            double[] docFreqs = new double[indexer.size()];
             for(CorpusDocument doc : corpus) {
                 for(int o = 1; o <= doc.getOrder(); o++) {
-                    Map<Integer, Double> ngramCounts = doc.getNgrams(o);
-                    for(int ngramIdx : ngramCounts.keySet()) {
-                        idfWeights[ngramIdx] += 1;
-                    }
+                    doc.forEachNgram(o, (ngramIdx, value) -> docFreqs[ngramIdx] += 1);
                 }
             }
+            idfWeights = docFreqs;
             for(int i = 0; i < idfWeights.length; i++) {
                 idfWeights[i] = Math.log(corpus.size() / idfWeights[i]);
             }
@@ -93,12 +89,13 @@ public class TfidfCorpusTransformer implements CorpusTransformer {
     }
     
     private void transform(CorpusDocument doc, double[] idfWeights) { 
-        double vecLength = 0.0;
+        //Single element array so the running length can be updated from the n-gram consumer
+        double[] vecLength = new double[1];
         for(int o = 1; o <= doc.getOrder(); o++) {
+            final int order = o;
             double length = doc.getNgramLength(o);
-            Map<Integer, Double> ngramCounts = doc.getNgrams(o);
-            for(int key : ngramCounts.keySet()) {
-                double tfValue = ngramCounts.get(key);
+            doc.forEachNgram(o, (key, value) -> {
+                double tfValue = value;
                 switch(tfType) {
                 case LENGTH_NORM:
                     tfValue /= length;
@@ -114,10 +111,10 @@ public class TfidfCorpusTransformer implements CorpusTransformer {
                 double tfidf = tfValue * idfWeights[key];
                 switch(normType) {
                 case L1:
-                    vecLength += tfidf;
+                    vecLength[0] += tfidf;
                     break;
                 case L2:
-                    vecLength += tfidf * tfidf;
+                    vecLength[0] += tfidf * tfidf;
                     break;
                 case NONE:
                     break;
@@ -125,18 +122,14 @@ public class TfidfCorpusTransformer implements CorpusTransformer {
                     break;
                 
                 }
-                doc.setNgramValue(key, o, tfidf);
-            }
+                doc.setNgramValue(key, order, tfidf);
+            });
         }
-        if(vecLength > 0) { 
-            if(normType == NormType.L2) {
-                vecLength = Math.sqrt(vecLength);
-            }
+        if(vecLength[0] > 0) { 
+            double norm = normType == NormType.L2 ? Math.sqrt(vecLength[0]) : vecLength[0];
             for(int o = 1; o <= doc.getOrder(); o++) {
-                Map<Integer, Double> ngramCounts = doc.getNgrams(o);
-                for(int key : ngramCounts.keySet()) {
-                    doc.setNgramValue(key, o, doc.getNgramValue(key, o) / vecLength);
-                }
+                final int order = o;
+                doc.forEachNgram(o, (key, value) -> doc.setNgramValue(key, order, value / norm));
             }
         }
         
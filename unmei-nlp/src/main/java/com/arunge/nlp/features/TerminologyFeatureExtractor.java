@@ -5,10 +5,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,14 +23,30 @@ import com.arunge.nlp.api.FeatureWeightType;
 import com.arunge.nlp.text.AnnotatedTextDocument;
 import com.arunge.nlp.text.AnnotatedTextField;
 
+/**
+ * 
+ *<p>Extracts a feature for each occurrence of a term from a terminology list, weighted by the length of the document.
+ *   Tokens are compared using their lemma if present, or otherwise their lowercased text. The first word of a term
+ *   must match a token exactly, while each following word only needs to be a prefix of its token, so that e.g.
+ *   "neural network" also matches "neural networks" when no lemmas are available.
+ *   
+ *   The terminology is compiled into a trie over term words with a precomputed {@link FeatureDescriptor} for each
+ *   term. Each sentence is matched by computing the key of every token once and walking the trie from each token,
+ *   so the cost of a sentence depends on the length of the longest term rather than on the size of the terminology.
+ *   Instances are safe to share between threads.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class TerminologyFeatureExtractor implements FeatureExtractor<AnnotatedTextDocument> {
 
     private static Logger LOG = LoggerFactory.getLogger(TerminologyFeatureExtractor.class);
     
     private boolean segment;
-    private List<String[]> terms;
     private List<String> featNames;
-    private Map<String, List<TermEntry>> termLookup;
+    private FeatureDescriptor[] features;
+    private TermNode root;
+    private ConcurrentHashMap<String, SegmentFeatures> segmentFeatures;
     
     public TerminologyFeatureExtractor() {
         this("src/main/resources/terminology.txt", false);
@@ -36,6 +55,7 @@ public class TerminologyFeatureExtractor implements FeatureExtractor<AnnotatedTe
     public TerminologyFeatureExtractor(String terminologyFile, boolean segment) {
         loadTerms(terminologyFile);
         this.segment = segment;
+        this.segmentFeatures = new ConcurrentHashMap<>();
     }
     
     @Override
@@ -43,42 +63,31 @@ public class TerminologyFeatureExtractor implements FeatureExtractor<AnnotatedTe
         long start = System.currentTimeMillis();
         Map<FeatureDescriptor, Double> features = new HashMap<>();
         int featCount = 0;
-        //Check if features should be split by text field
-        int size = input.getLength();
+        double weight = 1.0 / input.getLength();
+        String[] keys = new String[16];
         for(String fieldName : input.getTextFields().keySet()) {
             AnnotatedTextField field = input.getField(fieldName);
             for(List<AnnotatedToken> sentence : field.getSentences()) {
-                for(int i = 0; i < sentence.size(); i++) {
-                    AnnotatedToken token = sentence.get(i);
-                    String tokKey = token.getAnnotation(Annotator.LEMMA).isPresent() ? token.getAnnotation(Annotator.LEMMA).get() : token.text().toLowerCase();
-                    if(termLookup.containsKey(tokKey)) {
-                        List<TermEntry> termSets = termLookup.get(tokKey);
-                        for(TermEntry termEntry : termSets) {
-                            int j = i + 1;
-                            while(j < sentence.size() && j - i < termEntry.words.length) {
-                                AnnotatedToken nextTok = sentence.get(j);
-                                String nextTokKey = nextTok.getAnnotation(Annotator.LEMMA).isPresent() ? nextTok.getAnnotation(Annotator.LEMMA).get() : nextTok.text().toLowerCase();
-                                if(!nextTokKey.startsWith(termEntry.words[j - i])) {
-                                    break;
-                                }
-                                j++;
-                            }
-                            //Indicates a matching term
-                            if(j - i == termEntry.words.length) {
-                                String f = featNames.get(termEntry.index);
-                                Optional<String> segmentAnnotation = token.getAnnotation(Annotator.SEGMENT);
-                                if(segmentAnnotation.isPresent() && segment) {
-                                    f = segmentAnnotation.get() + "_" + f;
-                                }
-                                FeatureDescriptor featDesc = new FeatureDescriptor(f, FeatureWeightType.TFIDF);
-                                if(!features.containsKey(featDesc)) {
-                                    features.put(featDesc, 0.0);
-                                }
-                                features.put(featDesc, features.get(featDesc) + (1.0 / size));
-                                featCount += 1;
-                            } 
+                int n = sentence.size();
+                if(keys.length < n) {
+                    keys = new String[Math.max(n, keys.length * 2)];
+                }
+                for(int i = 0; i < n; i++) {
+                    keys[i] = tokenKey(sentence.get(i));
+                }
+                for(int i = 0; i < n; i++) {
+                    TermNode first = root.getChild(keys[i]);
+                    if(first == null) {
+                        continue;
+                    }
+                    SegmentFeatures segmented = null;
+                    if(segment) {
+                        Optional<String> segmentAnnotation = sentence.get(i).getAnnotation(Annotator.SEGMENT);
+                        if(segmentAnnotation.isPresent()) {
+                            segmented = segmentFeatures.computeIfAbsent(segmentAnnotation.get(), SegmentFeatures::new);
                         }
                     }
+                    featCount += match(first, keys, i + 1, n, segmented, features, weight);
                 }
             }
         }
@@ -86,10 +95,45 @@ public class TerminologyFeatureExtractor implements FeatureExtractor<AnnotatedTe
         return features;
     }
     
+    /**
+     * Adds the features of all terms that end at the node or one of its descendants matching the keys
+     * starting at the provided position, returning the number of matched terms.
+     */
+    private int match(TermNode node, String[] keys, int pos, int n, SegmentFeatures segmented, 
+            Map<FeatureDescriptor, Double> features, double weight) {
+        int matches = 0;
+        for(int term : node.terms) {
+            features.merge(getFeature(term, segmented), weight, Double::sum);
+            matches++;
+        }
+        if(pos >= n || node.children == null) {
+            return matches;
+        }
+        String key = keys[pos];
+        for(int length : node.childLengths) {
+            if(length > key.length()) {
+                break;
+            }
+            TermNode child = node.children.get(length == key.length() ? key : key.substring(0, length));
+            if(child != null) {
+                matches += match(child, keys, pos + 1, n, segmented, features, weight);
+            }
+        }
+        return matches;
+    }
+    
+    private FeatureDescriptor getFeature(int term, SegmentFeatures segmented) {
+        return segmented == null ? features[term] : segmented.get(term);
+    }
+    
+    private static String tokenKey(AnnotatedToken token) {
+        Optional<String> lemma = token.getAnnotation(Annotator.LEMMA);
+        return lemma.isPresent() ? lemma.get() : token.text().toLowerCase();
+    }
+    
     private void loadTerms(String filename) {
-        terms = new ArrayList<>();
         featNames = new ArrayList<>();
-        termLookup = new HashMap<>();
+        root = new TermNode();
         try(BufferedReader reader = new BufferedReader(new FileReader(new File(filename)))) {
             
             String line = "";
@@ -97,26 +141,87 @@ public class TerminologyFeatureExtractor implements FeatureExtractor<AnnotatedTe
             while((line = reader.readLine()) != null) {
                 String[] termWords = line.split(" ");
                 featNames.add("term_" + line.replaceAll(" ", "_"));
-                terms.add(termWords);
-                if(!termLookup.containsKey(termWords[0])) {
-                    termLookup.put(termWords[0], new ArrayList<>());
+                TermNode node = root;
+                for(String word : termWords) {
+                    node = node.getOrAddChild(word);
                 }
-                termLookup.get(termWords[0]).add(new TermEntry(terms.size() - 1, termWords));
+                node.addTerm(featNames.size() - 1);
             }
         } catch (IOException e) {
             throw new RuntimeException("Unable to load terminology list.");
         }
+        features = new FeatureDescriptor[featNames.size()];
+        for(int i = 0; i < features.length; i++) {
+            features[i] = new FeatureDescriptor(featNames.get(i), FeatureWeightType.TFIDF);
+        }
+    }
+    
+    /**
+     * Lazily created feature descriptors for the terms found in one segment. The array publishes each
+     * descriptor safely to other threads; two threads may create the same descriptor, but they are equal.
+     */
+    private class SegmentFeatures {
+        
+        private final String segment;
+        private final AtomicReferenceArray<FeatureDescriptor> segmentFeatures;
+        
+        SegmentFeatures(String segment) {
+            this.segment = segment;
+            this.segmentFeatures = new AtomicReferenceArray<>(features.length);
+        }
         
+        FeatureDescriptor get(int term) {
+            FeatureDescriptor feature = segmentFeatures.get(term);
+            if(feature == null) {
+                feature = new FeatureDescriptor(segment + "_" + featNames.get(term), FeatureWeightType.TFIDF);
+                segmentFeatures.set(term, feature);
+            }
+            return feature;
+        }
     }
     
-    private class TermEntry {
+    /**
+     * Trie node for a sequence of term words. Children are keyed by the next word of the term, and the
+     * distinct lengths of those words are kept in ascending order so that the children whose word is a 
+     * prefix of a token can be found with one lookup per length.
+     */
+    private static class TermNode {
+        
+        private static final int[] NO_TERMS = new int[0];
         
-        int index;
-        String[] words;
+        Map<String, TermNode> children;
+        int[] childLengths;
+        int[] terms = NO_TERMS;
+        
+        TermNode getChild(String word) {
+            return children == null ? null : children.get(word);
+        }
+        
+        TermNode getOrAddChild(String word) {
+            if(children == null) {
+                children = new HashMap<>(4);
+                childLengths = new int[0];
+            }
+            TermNode child = children.get(word);
+            if(child == null) {
+                child = new TermNode();
+                children.put(word, child);
+                int pos = Arrays.binarySearch(childLengths, word.length());
+                if(pos < 0) {
+                    int insert = -pos - 1;
+                    int[] lengths = new int[childLengths.length + 1];
+                    System.arraycopy(childLengths, 0, lengths, 0, insert);
+                    lengths[insert] = word.length();
+                    System.arraycopy(childLengths, insert, lengths, insert + 1, childLengths.length - insert);
+                    childLengths = lengths;
+                }
+            }
+            return child;
+        }
         
-        public TermEntry(int index, String[] words) {
-            this.words = words;
-            this.index = index;
+        void addTerm(int term) {
+            terms = Arrays.copyOf(terms, terms.length + 1);
+            terms[terms.length - 1] = term;
         }
         
     }
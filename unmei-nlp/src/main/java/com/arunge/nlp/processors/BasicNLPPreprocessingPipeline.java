@@ -2,29 +2,95 @@ package com.arunge.nlp.processors;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.Annotator;
 import com.arunge.nlp.api.Lemmatizer;
 import com.arunge.nlp.api.NLPPreprocessingPipeline;
 import com.arunge.nlp.api.POSTagger;
+import com.arunge.nlp.api.SentenceSplitter;
 import com.arunge.nlp.api.Stemmer;
+import com.arunge.nlp.api.StringPool;
+import com.arunge.nlp.api.Token;
+import com.arunge.nlp.api.Tokenizer;
 import com.arunge.nlp.text.AnnotatedTextDocument;
+import com.arunge.nlp.text.AnnotatedTextField;
+import com.arunge.nlp.text.ColumnarTextField;
 import com.arunge.nlp.text.TextDocument;
-import com.arunge.nlp.tokenization.TokenFilters;
+import com.arunge.nlp.tokenization.CompiledTokenFilter;
+import com.arunge.nlp.tokenization.SimpleSentenceSplitter;
+import com.arunge.nlp.tokenization.SimpleTokenizer;
 import com.arunge.nlp.tokenization.TokenSplitter;
 import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
 
+/**
+ * 
+ *<p>Preprocessing pipeline that tokenizes and sentence splits text with a {@link Tokenizer} and {@link SentenceSplitter},
+ *   by default the rule-based {@link SimpleTokenizer} and {@link SimpleSentenceSplitter}, then applies the configured 
+ *   token splitters, token filters, and any POS tagger, lemmatizer, and stemmer to each sentence.
+ *   
+ *   Does not load any models unless a tagger or lemmatizer is provided, so it is much cheaper to create and run than
+ *   a CoreNLP pipeline when only the token text is needed.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class BasicNLPPreprocessingPipeline implements NLPPreprocessingPipeline {
 
     protected POSTagger tagger;
     protected Lemmatizer lemma;
     protected Stemmer stemmer;
     
+    protected Tokenizer tokenizer;
+    protected SentenceSplitter sentenceSplitter;
+    
+    protected boolean columnarFields;
+    protected StringPool columnarPool;
+    
     protected Collection<TokenSplitter> tokenSplitters;
     protected Collection<TokenFilter> tokenFilters;
+    protected TokenFilter tokenFilter;
     
     public BasicNLPPreprocessingPipeline() { 
         this.tokenSplitters = new ArrayList<>();
         this.tokenFilters = new ArrayList<>();
+        this.tokenFilter = CompiledTokenFilter.compile(tokenFilters);
+        this.tokenizer = new SimpleTokenizer();
+        this.sentenceSplitter = new SimpleSentenceSplitter(tokenizer);
+    }
+    
+    public BasicNLPPreprocessingPipeline withTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        return this;
+    }
+    
+    public BasicNLPPreprocessingPipeline withSentenceSplitter(SentenceSplitter sentenceSplitter) {
+        this.sentenceSplitter = sentenceSplitter;
+        return this;
+    }
+    
+    /**
+     * Stores the tokens of processed documents in {@link ColumnarTextField}s. Each processed document gets its own
+     * string pool, shared by its fields, so the pooled strings are released along with the document.
+     * @return
+     */
+    public BasicNLPPreprocessingPipeline withColumnarFields() {
+        this.columnarFields = true;
+        this.columnarPool = null;
+        return this;
+    }
+    
+    /**
+     * Stores the tokens of processed documents in {@link ColumnarTextField}s backed by the provided string pool.
+     * Strings are never removed from the pool, so it should only be shared by documents that are kept for as long as the pool.
+     * @param pool
+     * @return
+     */
+    public BasicNLPPreprocessingPipeline withColumnarFields(StringPool pool) {
+        this.columnarFields = true;
+        this.columnarPool = pool;
+        return this;
     }
     
     public BasicNLPPreprocessingPipeline withPOSTagger(POSTagger tagger) { 
@@ -49,12 +115,113 @@ public class BasicNLPPreprocessingPipeline implements NLPPreprocessingPipeline {
     
     public BasicNLPPreprocessingPipeline withTokenFilters(Collection<TokenFilter> filters) { 
         this.tokenFilters = filters;
+        this.tokenFilter = CompiledTokenFilter.compile(filters);
         return this;
     }
     
     @Override
     public AnnotatedTextDocument apply(TextDocument doc) {
-        return null;
+        AnnotatedTextDocument processed = new AnnotatedTextDocument(doc);
+        StringPool pool = newDocumentPool();
+        for(String fieldName : doc.getFieldNames()) {
+            AnnotatedTextField field = newField(fieldName, pool);
+            List<Token> tokens = tokenizer.tokenizeToList(doc.getTextField(fieldName));
+            for(List<Token> sentence : sentenceSplitter.split(tokens)) {
+                List<AnnotatedToken> sentenceToks = new ArrayList<>(sentence.size());
+                for(Token t : sentence) {
+                    AnnotatedToken token = new AnnotatedToken(t.text(), t.start(), t.end());
+                    token.addAnnotation(Annotator.SEGMENT, fieldName);
+                    sentenceToks.add(token);
+                }
+                sentenceToks = processTokens(sentenceToks);
+                if(tagger != null) { 
+                    tagger.tag(sentenceToks);
+                }
+                if(lemma != null) {
+                    lemma.tag(sentenceToks);
+                }
+                if(stemmer != null) { 
+                    stemmer.tag(sentenceToks);
+                }
+                field.addSentence(sentenceToks);
+            }
+            processed.addTextField(fieldName, field);
+        }
+        return processed;
+    }
+    
+    /**
+     * Returns the string pool for the fields of a document being processed, or null if columnar fields are not used.
+     * @return
+     */
+    protected StringPool newDocumentPool() {
+        if(!columnarFields) {
+            return null;
+        }
+        return columnarPool != null ? columnarPool : new StringPool(256);
+    }
+    
+    /**
+     * Creates the field that the sentences of a processed text field are added to.
+     * @param fieldName
+     * @param pool The pool returned by {@link #newDocumentPool()} for the document
+     * @return
+     */
+    protected AnnotatedTextField newField(String fieldName, StringPool pool) {
+        if(pool != null) {
+            return new ColumnarTextField(fieldName, pool);
+        }
+        return new AnnotatedTextField();
+    }
+    
+    /**
+     * Applies the token splitters and the compiled token filters to a sentence. Split tokens get a copy of the annotations
+     * of the token they were split from.
+     * @param tokens
+     * @return
+     */
+    protected List<AnnotatedToken> processTokens(List<AnnotatedToken> tokens) {
+        List<Token> pieces = null;
+        for(TokenSplitter splitter : tokenSplitters) {
+            //Only copy the sentence once the first token is actually split
+            List<AnnotatedToken> split = null;
+            for(int i = 0; i < tokens.size(); i++) {
+                AnnotatedToken t = tokens.get(i);
+                if(splitter.mightSplit(t)) {
+                    if(pieces == null) {
+                        pieces = new ArrayList<>();
+                    }
+                    pieces.clear();
+                    splitter.splitInto(t, pieces);
+                    if(pieces.size() > 1 || pieces.get(0) != t) {
+                        if(split == null) {
+                            split = new ArrayList<>(tokens.size() + pieces.size());
+                            split.addAll(tokens.subList(0, i));
+                        }
+                        for(Token piece : pieces) {
+                            split.add(t.split(piece));
+                        }
+                        continue;
+                    }
+                }
+                if(split != null) {
+                    split.add(t);
+                }
+            }
+            if(split != null) {
+                tokens = split;
+            }
+        }
+        if(tokenFilters.isEmpty()) {
+            return tokens;
+        }
+        List<AnnotatedToken> filtered = new ArrayList<>(tokens.size());
+        for(AnnotatedToken t : tokens) {
+            if(tokenFilter.test(t)) {
+                filtered.add(t);
+            }
+        }
+        return filtered;
     }
 
 }
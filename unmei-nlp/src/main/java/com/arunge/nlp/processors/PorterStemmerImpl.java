@@ -10,16 +10,26 @@ import com.arunge.nlp.text.AnnotatedTextField;
 
 import opennlp.tools.stemmer.PorterStemmer;
 
+/**
+ *
+ *<p>Stems tokens with the OpenNLP {@link PorterStemmer}. The OpenNLP stemmer keeps the word being stemmed in an
+ *   instance buffer, so each thread that uses this stemmer gets its own instance and a single stemmer can be shared
+ *   by pipelines running on multiple threads.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class PorterStemmerImpl implements Stemmer {
 
-    private PorterStemmer stemmer;
+    private ThreadLocal<PorterStemmer> stemmer;
     
     public PorterStemmerImpl() {
-        this.stemmer = new PorterStemmer();
+        this.stemmer = ThreadLocal.withInitial(PorterStemmer::new);
     }
     
     @Override
     public void tag(List<AnnotatedToken> sentence) {
+        PorterStemmer stemmer = this.stemmer.get();
         for(AnnotatedToken tok : sentence) { 
             String stem = stemmer.stem(tok.text());
             tok.addAnnotation(Annotator.STEM, stem);
@@ -6,25 +6,22 @@ import java.util.stream.Stream;
 
 import com.arunge.nlp.api.Token;
 import com.arunge.nlp.api.Tokenizer;
+import com.arunge.nlp.tokenization.TokenFilters;
 import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
 
 public class FilteredTokenizer implements Tokenizer {
 
     private Tokenizer tokenizer;
-    private List<TokenFilter> filters;
+    private TokenFilter filter;
     
     public FilteredTokenizer(Tokenizer tokenizer, List<TokenFilter> filters) {
         this.tokenizer = tokenizer;
-        this.filters = filters;
+        this.filter = TokenFilters.compile(filters);
     }
     
     @Override
     public Stream<Token> tokenize(String text) {
-        Stream<Token> tokens = tokenizer.tokenize(text);
-        for(TokenFilter filter : filters) {
-            tokens = tokens.filter(filter);
-        }
-        return tokens;
+        return tokenizer.tokenize(text).filter(filter);
     }
 
     @Override
@@ -2,20 +2,23 @@ package com.arunge.nlp.stanford;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.arunge.nlp.api.AnnotatedToken;
 import com.arunge.nlp.api.Annotator;
-import com.arunge.nlp.api.Token;
+import com.arunge.nlp.api.StringPool;
 import com.arunge.nlp.processors.BasicNLPPreprocessingPipeline;
 import com.arunge.nlp.text.AnnotatedTextDocument;
 import com.arunge.nlp.text.AnnotatedTextField;
 import com.arunge.nlp.text.TextDocument;
-import com.arunge.nlp.tokenization.TokenSplitter;
-import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
+import com.google.common.collect.Iterators;
 
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -23,11 +26,70 @@ import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.util.CoreMap;
 
+/**
+ * 
+ *<p>Preprocessing pipeline that uses Stanford CoreNLP to tokenize and sentence split text, and optionally to
+ *   POS tag and lemmatize it.
+ *   
+ *   By default, POS tags and lemmas are computed separately for each sentence after token splitting and filtering,
+ *   converting the tokens back to CoreNLP types. A pipeline created with {@link #singlePass(Annotator...)} instead
+ *   runs tokenization, sentence splitting, POS tagging and lemmatization as a single CoreNLP annotation over each
+ *   text field and copies the results into {@link AnnotatedToken}s once; tokens produced by token splitters then 
+ *   inherit the annotations of the token they were split from.
+ *   
+ *   CoreNLP pipelines are shared between all instances that use the same annotators, so the models are only 
+ *   loaded once per JVM and a single instance can be used from multiple worker threads. Batches of documents passed 
+ *   to {@link #applyAll(List)} are annotated together, using CoreNLP's multithreaded annotation when more than one 
+ *   annotation thread is configured.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class StanfordNLPPreprocessingPipeline extends BasicNLPPreprocessingPipeline {
 
+    private static final ConcurrentHashMap<String, StanfordCoreNLP> SHARED_PIPELINES = new ConcurrentHashMap<>();
+    
     private StanfordCoreNLP pipeline;
+    private boolean singlePass;
+    private boolean annotatePOS;
+    private boolean annotateLemma;
+    private int annotationThreads = 1;
     
     public StanfordNLPPreprocessingPipeline(Annotator...annotators) {
+        this(false, annotators);
+    }
+    
+    /**
+     * Creates a pipeline that tokenizes, sentence splits, and applies the requested POS and lemma annotators
+     * in a single CoreNLP pass over each text field.
+     * @param annotators
+     * @return
+     */
+    public static StanfordNLPPreprocessingPipeline singlePass(Annotator...annotators) {
+        return new StanfordNLPPreprocessingPipeline(true, annotators);
+    }
+    
+    private StanfordNLPPreprocessingPipeline(boolean singlePass, Annotator...annotators) {
+        this.singlePass = singlePass;
+        if(singlePass) {
+            for(Annotator annotator : annotators) {
+                if(annotator == Annotator.POS) {
+                    annotatePOS = true;
+                } else if(annotator == Annotator.LEMMA) {
+                    annotateLemma = true;
+                }
+            }
+            String annotatorList = "tokenize,ssplit";
+            if(annotatePOS || annotateLemma) {
+                //CoreNLP's lemmatizer requires POS tags
+                annotatorList += ",pos";
+            }
+            if(annotateLemma) {
+                annotatorList += ",lemma";
+            }
+            this.pipeline = sharedPipeline(annotatorList);
+            return;
+        }
         
         String annotatorList = "tokenize,ssplit";
         Arrays.sort(annotators);
@@ -51,35 +113,122 @@ public class StanfordNLPPreprocessingPipeline extends BasicNLPPreprocessingPipel
         }
 //        annotatorList += ",parse,mention,coref";
 //        System.out.println(annotatorList);
-        Properties props = new Properties();
-        props.setProperty("annotators",  annotatorList);
-//        props.setProperty("coref.algorithm", "neural");
-
-        pipeline = new StanfordCoreNLP(props);
+        pipeline = sharedPipeline(annotatorList);
     }
 
+    /**
+     * Returns the CoreNLP pipeline for the provided annotators, creating it on first use. CoreNLP pipelines 
+     * are safe to use from multiple threads, so one instance is shared per set of annotators.
+     * @param annotatorList
+     * @return
+     */
+    private static StanfordCoreNLP sharedPipeline(String annotatorList) {
+        return SHARED_PIPELINES.computeIfAbsent(annotatorList, list -> {
+            Properties props = new Properties();
+            props.setProperty("annotators",  list);
+//            props.setProperty("coref.algorithm", "neural");
+            return new StanfordCoreNLP(props);
+        });
+    }
     
+    /**
+     * Sets the number of threads CoreNLP uses to annotate the documents of a batch passed to 
+     * {@link #applyAll(List)}. Streams of documents are annotated in batches of this many documents.
+     * Only tokenization, sentence splitting and single-pass annotation use these threads; the separate POS tagging
+     * and lemmatization of the default pipeline run on the calling thread. {@link com.arunge.nlp.corpus.CorpusBuilder} 
+     * leaves this at 1 and runs whole batches on its worker threads instead.
+     * @param annotationThreads
+     * @return
+     */
+    public StanfordNLPPreprocessingPipeline withAnnotationThreads(int annotationThreads) {
+        if(annotationThreads < 1) {
+            throw new IllegalArgumentException(String.format("Invalid number of annotation threads: %d", annotationThreads));
+        }
+        this.annotationThreads = annotationThreads;
+        return this;
+    }
     
     @Override
     public AnnotatedTextDocument apply(TextDocument doc) {
+        List<Annotation> annotations = createAnnotations(doc);
+        for(Annotation annotation : annotations) {
+            pipeline.annotate(annotation);
+        }
+        return convert(doc, annotations.iterator());
+    }
+    
+    /**
+     * Annotates all text fields of all documents in the batch with a single call to CoreNLP, which
+     * distributes the annotations over the configured number of annotation threads.
+     */
+    @Override
+    public List<AnnotatedTextDocument> applyAll(List<? extends TextDocument> docs) {
+        List<Annotation> annotations = new ArrayList<>();
+        for(TextDocument doc : docs) {
+            annotations.addAll(createAnnotations(doc));
+        }
+        if(annotationThreads > 1) {
+            pipeline.annotate(annotations, annotationThreads);
+        } else {
+            for(Annotation annotation : annotations) {
+                pipeline.annotate(annotation);
+            }
+        }
+        Iterator<Annotation> annotationIter = annotations.iterator();
+        List<AnnotatedTextDocument> processed = new ArrayList<>(docs.size());
+        for(TextDocument doc : docs) {
+            processed.add(convert(doc, annotationIter));
+        }
+        return processed;
+    }
+    
+    @Override
+    public Stream<AnnotatedTextDocument> apply(Stream<? extends TextDocument> docs) {
+        Iterator<? extends List<? extends TextDocument>> batches = Iterators.partition(docs.iterator(), annotationThreads);
+        Stream<? extends List<? extends TextDocument>> batchStream = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false);
+        return batchStream.flatMap(batch -> applyAll(batch).stream()).onClose(docs::close);
+    }
+    
+    private List<Annotation> createAnnotations(TextDocument doc) {
+        List<Annotation> annotations = new ArrayList<>();
+        for(String fieldName : doc.getFieldNames()) {
+            annotations.add(new Annotation(doc.getTextField(fieldName)));
+        }
+        return annotations;
+    }
+    
+    /**
+     * Builds the processed document from the annotated text fields of the document, consuming one annotation
+     * per field in the order returned by {@link TextDocument#getFieldNames()}.
+     */
+    private AnnotatedTextDocument convert(TextDocument doc, Iterator<Annotation> annotations) {
         AnnotatedTextDocument processed = new AnnotatedTextDocument(doc);
+        StringPool pool = newDocumentPool();
         for(String fieldName : doc.getFieldNames()) {
-            AnnotatedTextField field = new AnnotatedTextField();
-            String fieldText = doc.getTextField(fieldName);
-            Annotation document = pipeline.process(fieldText);
+            AnnotatedTextField field = newField(fieldName, pool);
+            Annotation document = annotations.next();
             for(CoreMap sentence : document.get(CoreAnnotations.SentencesAnnotation.class)) {
                 List<AnnotatedToken> sentenceToks = new ArrayList<>();
                 for(CoreLabel label : sentence.get(CoreAnnotations.TokensAnnotation.class)) { 
                     AnnotatedToken token = new AnnotatedToken(label.word(), label.beginPosition(), label.endPosition());
                     token.addAnnotation(Annotator.SEGMENT, fieldName);
+                    if(annotatePOS) {
+                        token.addAnnotation(Annotator.POS, label.tag());
+                    }
+                    if(annotateLemma) {
+                        token.addAnnotation(Annotator.LEMMA, label.lemma());
+                    }
                     sentenceToks.add(token);
                 }
                 sentenceToks = processTokens(sentenceToks);
-                if(tagger != null) { 
-                    tagger.tag(sentenceToks);
-                }
-                if(lemma != null) {
-                    lemma.tag(sentenceToks);
+                if(!singlePass) {
+                    if(tagger != null) { 
+                        tagger.tag(sentenceToks);
+                    }
+                    if(lemma != null) {
+                        lemma.tag(sentenceToks);
+                    }
                 }
                 if(stemmer != null) { 
                     stemmer.tag(sentenceToks);
@@ -92,20 +241,6 @@ public class StanfordNLPPreprocessingPipeline extends BasicNLPPreprocessingPipel
         return processed;
     }
     
-    private List<AnnotatedToken> processTokens(List<AnnotatedToken> tokens) {
-        Stream<AnnotatedToken> tokStream = tokens.stream();
-        for(TokenSplitter splitter : tokenSplitters) {
-            tokStream = tokStream.flatMap(t -> { 
-                Stream<Token> splitToks = splitter.apply(t);
-                return splitToks.map(st -> new AnnotatedToken(st.text(), st.start(), st.end(), t.getAnnotations()));
-            });
-        }
-        for(TokenFilter filter : tokenFilters) {
-            tokStream = tokStream.filter(filter);
-        }
-        return tokStream.collect(Collectors.toList());
-    }
-    
 //    @Override
 //    public PreprocessedTextDocument apply(TextDocument doc) {
 //        PreprocessedTextDocument processed = new PreprocessedTextDocument(doc);
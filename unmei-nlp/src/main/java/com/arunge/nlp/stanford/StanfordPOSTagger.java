@@ -19,7 +19,15 @@ public class StanfordPOSTagger implements POSTagger {
     private POSTaggerAnnotator tagger;
     
     public StanfordPOSTagger() { 
-        tagger = new POSTaggerAnnotator(); 
+        tagger = SharedModel.TAGGER; 
+    }
+    
+    /**
+     * Holder for the tagger model, which is loaded on first use and shared by all instances. Tagging
+     * with the annotator is thread-safe.
+     */
+    private static class SharedModel {
+        private static final POSTaggerAnnotator TAGGER = new POSTaggerAnnotator();
     }
     
     public void tag(List<AnnotatedToken> sentence) {
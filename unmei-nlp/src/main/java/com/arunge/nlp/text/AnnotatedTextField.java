@@ -43,7 +43,7 @@ public class AnnotatedTextField {
     }
     
     public int getLength() { 
-        return sentences.stream().map(s -> s.size()).reduce(0, (a, b) -> a + b);
+        return getSentences().stream().map(s -> s.size()).reduce(0, (a, b) -> a + b);
     }
     
     @Override
@@ -53,7 +53,7 @@ public class AnnotatedTextField {
     
     public String render(Annotator...annotators) {
         StringBuilder sb = new StringBuilder();
-        for(List<AnnotatedToken> sentence : sentences) { 
+        for(List<AnnotatedToken> sentence : getSentences()) { 
             String sent = sentence.stream().map(t -> t.render(annotators)).reduce((a, b) -> a + " " + b).get();
             sb.append(sent + "\n");
         }
@@ -0,0 +1,287 @@
+package com.arunge.nlp.text;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.Annotator;
+import com.arunge.nlp.api.Range;
+import com.arunge.nlp.api.StringPool;
+
+/**
+ *
+ *<p>An {@link AnnotatedTextField} that stores its tokens column-wise instead of as one object per token. Token
+ *   offsets are kept in int arrays, token text and annotation values are stored as ids into a {@link StringPool}
+ *   shared between fields, and the segment annotation is stored once for the whole field.
+ *
+ *   {@link #getSentences()} returns read-only lists of lightweight {@link AnnotatedToken} views, which are created
+ *   on access and read through to the columns. Annotations added to a view, e.g. by a tagger or stemmer, are
+ *   written back to the field.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class ColumnarTextField extends AnnotatedTextField {
+
+    private static final int NONE = -1;
+
+    private final String segment;
+    private final StringPool pool;
+
+    private int numTokens;
+    private int[] starts;
+    private int[] ends;
+    private int[] textIds;
+    private int[][] annotationIds;
+
+    private int numSentences;
+    private int[] sentenceEnds;
+
+    public ColumnarTextField(String segment, StringPool pool) {
+        super(Collections.emptyList());
+        this.segment = segment;
+        this.pool = pool;
+        this.starts = new int[64];
+        this.ends = new int[64];
+        this.textIds = new int[64];
+        this.annotationIds = new int[Annotator.values().length][];
+        this.sentenceEnds = new int[8];
+    }
+
+    public ColumnarTextField(String segment, StringPool pool, List<List<AnnotatedToken>> sentences) {
+        this(segment, pool);
+        for(List<AnnotatedToken> sentence : sentences) {
+            addSentence(sentence);
+        }
+    }
+
+    /**
+     * Appends a sentence to the field, copying the text, offsets and annotations of its tokens into the columns.
+     * Segment annotations on the tokens are ignored in favor of the segment of the field.
+     */
+    @Override
+    public void addSentence(List<AnnotatedToken> sentence) {
+        ensureTokenCapacity(numTokens + sentence.size());
+        for(AnnotatedToken token : sentence) {
+            starts[numTokens] = token.start();
+            ends[numTokens] = token.end();
+            textIds[numTokens] = pool.getOrAdd(token.text());
+            for(Map.Entry<Annotator, String> annotation : token.getAnnotations().entrySet()) {
+                if(annotation.getKey() != Annotator.SEGMENT) {
+                    setAnnotation(numTokens, annotation.getKey(), annotation.getValue());
+                }
+            }
+            numTokens++;
+        }
+        if(numSentences == sentenceEnds.length) {
+            //The columns may have been trimmed to length 0
+            sentenceEnds = Arrays.copyOf(sentenceEnds, Math.max(8, sentenceEnds.length * 2));
+        }
+        sentenceEnds[numSentences++] = numTokens;
+    }
+
+    @Override
+    public List<List<AnnotatedToken>> getSentences() {
+        return new AbstractList<List<AnnotatedToken>>() {
+
+            @Override
+            public List<AnnotatedToken> get(int index) {
+                if(index < 0 || index >= numSentences) {
+                    throw new IndexOutOfBoundsException(String.format("Sentence %d out of range for field with %d sentences", index, numSentences));
+                }
+                return tokens(index == 0 ? 0 : sentenceEnds[index - 1], sentenceEnds[index]);
+            }
+
+            @Override
+            public int size() {
+                return numSentences;
+            }
+        };
+    }
+
+    /**
+     * Replaces the contents of the field with the provided sentences.
+     */
+    @Override
+    public void setSentences(List<List<AnnotatedToken>> sentences) {
+        //Detach the tokens first, since the sentences may be views over this field
+        List<List<AnnotatedToken>> copy = new ArrayList<>(sentences.size());
+        for(List<AnnotatedToken> sentence : sentences) {
+            List<AnnotatedToken> sentenceCopy = new ArrayList<>(sentence.size());
+            for(AnnotatedToken t : sentence) {
+                sentenceCopy.add(new AnnotatedToken(t.text(), t.start(), t.end(), t.getAnnotations()));
+            }
+            copy.add(sentenceCopy);
+        }
+        numTokens = 0;
+        numSentences = 0;
+        Arrays.fill(annotationIds, null);
+        for(List<AnnotatedToken> sentence : copy) {
+            addSentence(sentence);
+        }
+    }
+
+    @Override
+    public List<AnnotatedToken> getText() {
+        return tokens(0, numTokens);
+    }
+
+    @Override
+    public int getLength() {
+        return numTokens;
+    }
+
+    public int getNumSentences() {
+        return numSentences;
+    }
+
+    public String getSegment() {
+        return segment;
+    }
+
+    /**
+     * Shrinks the columns to the number of tokens in the field once no more sentences are expected to be added.
+     * Sentences can still be added afterwards, which grows the columns again.
+     */
+    public void trimToSize() {
+        starts = Arrays.copyOf(starts, numTokens);
+        ends = Arrays.copyOf(ends, numTokens);
+        textIds = Arrays.copyOf(textIds, numTokens);
+        for(int i = 0; i < annotationIds.length; i++) {
+            if(annotationIds[i] != null) {
+                annotationIds[i] = Arrays.copyOf(annotationIds[i], numTokens);
+            }
+        }
+        sentenceEnds = Arrays.copyOf(sentenceEnds, numSentences);
+    }
+
+    private List<AnnotatedToken> tokens(int from, int to) {
+        return new AbstractList<AnnotatedToken>() {
+
+            @Override
+            public AnnotatedToken get(int index) {
+                if(index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException(String.format("Token %d out of range for sentence of length %d", index, to - from));
+                }
+                return new ColumnarToken(from + index);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    private void ensureTokenCapacity(int capacity) {
+        if(capacity <= starts.length) {
+            return;
+        }
+        int newCapacity = Math.max(Math.max(capacity, 64), starts.length * 2);
+        starts = Arrays.copyOf(starts, newCapacity);
+        ends = Arrays.copyOf(ends, newCapacity);
+        textIds = Arrays.copyOf(textIds, newCapacity);
+        for(int i = 0; i < annotationIds.length; i++) {
+            if(annotationIds[i] != null) {
+                int oldLength = annotationIds[i].length;
+                annotationIds[i] = Arrays.copyOf(annotationIds[i], newCapacity);
+                Arrays.fill(annotationIds[i], oldLength, newCapacity, NONE);
+            }
+        }
+    }
+
+    private void setAnnotation(int token, Annotator annotator, String value) {
+        int[] column = annotationIds[annotator.ordinal()];
+        if(column == null) {
+            column = new int[starts.length];
+            Arrays.fill(column, NONE);
+            annotationIds[annotator.ordinal()] = column;
+        }
+        column[token] = value == null ? NONE : pool.getOrAdd(value);
+    }
+
+    private String getAnnotation(int token, Annotator annotator) {
+        if(annotator == Annotator.SEGMENT) {
+            return segment;
+        }
+        int[] column = annotationIds[annotator.ordinal()];
+        if(column == null || column[token] == NONE) {
+            return null;
+        }
+        return pool.getString(column[token]);
+    }
+
+    /**
+     * Flyweight view of a single token of the field.
+     */
+    private class ColumnarToken extends AnnotatedToken {
+
+        private final int index;
+
+        ColumnarToken(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String text() {
+            return pool.getString(textIds[index]);
+        }
+
+        @Override
+        public int start() {
+            return starts[index];
+        }
+
+        @Override
+        public int end() {
+            return ends[index];
+        }
+
+        @Override
+        public Range range() {
+            return new Range(starts[index], ends[index]);
+        }
+
+        @Override
+        public void addAnnotation(Annotator annotator, String value) {
+            if(annotator == Annotator.SEGMENT) {
+                if(segment == null ? value != null : !segment.equals(value)) {
+                    throw new UnsupportedOperationException(String.format("Cannot change segment of token in field %s to %s", segment, value));
+                }
+                return;
+            }
+            setAnnotation(index, annotator, value);
+        }
+
+        @Override
+        public Optional<String> getAnnotation(Annotator annotator) {
+            return Optional.ofNullable(ColumnarTextField.this.getAnnotation(index, annotator));
+        }
+
+        @Override
+        public boolean hasAnnotation(Annotator annotator) {
+            return ColumnarTextField.this.getAnnotation(index, annotator) != null;
+        }
+
+        /**
+         * Returns a snapshot of the annotations of the token. Changes to the returned map are not written back to the field.
+         */
+        @Override
+        public Map<Annotator, String> getAnnotations() {
+            Map<Annotator, String> annotations = new EnumMap<>(Annotator.class);
+            for(Annotator annotator : Annotator.values()) {
+                String value = ColumnarTextField.this.getAnnotation(index, annotator);
+                if(value != null) {
+                    annotations.put(annotator, value);
+                }
+            }
+            return annotations;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.arunge.nlp.text;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.NgramKeyCompression;
+import com.arunge.nlp.api.TokenForms.TokenForm;
+
+/**
+ *
+ *<p>Cursor over the n-grams of a document, represented as packed n-gram keys (see {@link NgramKeyCompression}) rather
+ *   than arrays of strings. Each token form is resolved to its vocabulary id exactly once, and the ids of the last
+ *   <code>maxOrder</code> tokens are kept in a fixed-size window, so advancing the cursor does not allocate.
+ *
+ *   N-grams are produced in the same order as {@link NGramIterator}: for each token, the unigram ending at that
+ *   token followed by each higher order n-gram ending at it. N-grams containing a token whose id could not be
+ *   resolved (i.e. the id lookup returned a negative value) are skipped.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class NGramKeyCursor {
+
+    private TokenForm tokenFormExtractor;
+    private ToIntFunction<String> idLookup;
+    private boolean crossSentences;
+
+    private Iterator<AnnotatedTextField> fieldIter;
+    private Iterator<List<AnnotatedToken>> sentIter;
+    private Iterator<AnnotatedToken> tokenIter;
+
+    private int[] window;
+    private int filled;
+    private int validRun;
+    private int nextOrder;
+
+    private long key;
+    private int order;
+
+    /**
+     * Creates a cursor over the n-grams of a document that does not create n-grams crossing sentences.
+     * @param doc The document to iterate over
+     * @param tokenFormExtractor Extractor for the forms of each token.
+     * @param maxOrder Maximum ngram order to iterate over
+     * @param idLookup Resolves token forms to vocabulary ids, returning a negative value for unknown forms.
+     */
+    public NGramKeyCursor(AnnotatedTextDocument doc, TokenForm tokenFormExtractor, int maxOrder, ToIntFunction<String> idLookup) {
+        this(doc, tokenFormExtractor, maxOrder, idLookup, false);
+    }
+
+    /**
+     * Creates a cursor over the n-grams of a document.
+     * @param doc The document to iterate over
+     * @param tokenFormExtractor Extractor for the forms of each token.
+     * @param maxOrder Maximum ngram order to iterate over
+     * @param idLookup Resolves token forms to vocabulary ids, returning a negative value for unknown forms.
+     * @param crossSentences Whether to create ngrams that cross sentence boundaries.
+     */
+    public NGramKeyCursor(AnnotatedTextDocument doc, TokenForm tokenFormExtractor, int maxOrder, ToIntFunction<String> idLookup, boolean crossSentences) {
+        if(maxOrder < 1 || maxOrder > 3) {
+            throw new UnsupportedOperationException("Currently only support n-grams up to order 3, requested order: " + maxOrder);
+        }
+        this.tokenFormExtractor = tokenFormExtractor;
+        this.idLookup = idLookup;
+        this.crossSentences = crossSentences;
+        this.fieldIter = doc.getTextFields().values().iterator();
+        this.window = new int[maxOrder];
+        this.nextOrder = 1;
+    }
+
+    /**
+     * Advances the cursor to the next n-gram.
+     * @return false if there are no more n-grams in the document.
+     */
+    public boolean next() {
+        while(nextOrder > filled || nextOrder > validRun) {
+            if(!advanceToken()) {
+                return false;
+            }
+        }
+        this.order = nextOrder;
+        this.key = NgramKeyCompression.generateKey(window, filled - order, filled);
+        nextOrder += 1;
+        return true;
+    }
+
+    /**
+     * Returns the packed key of the current n-gram.
+     * @return
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Returns the order of the current n-gram.
+     * @return
+     */
+    public int order() {
+        return order;
+    }
+
+    private boolean advanceToken() {
+        while(tokenIter == null || !tokenIter.hasNext()) {
+            while((sentIter == null || !sentIter.hasNext()) && fieldIter.hasNext()) {
+                sentIter = fieldIter.next().getSentences().iterator();
+            }
+            if(sentIter == null || !sentIter.hasNext()) {
+                return false;
+            }
+            if(!crossSentences) {
+                filled = 0;
+                validRun = 0;
+            }
+            tokenIter = sentIter.next().iterator();
+        }
+        int id = idLookup.applyAsInt(tokenFormExtractor.apply(tokenIter.next()));
+        if(filled == window.length) {
+            for(int i = 1; i < filled; i++) {
+                window[i - 1] = window[i];
+            }
+        } else {
+            filled += 1;
+        }
+        window[filled - 1] = id;
+        validRun = id < 0 ? 0 : validRun + 1;
+        nextOrder = 1;
+        return true;
+    }
+}
@@ -113,7 +113,7 @@ public class TextDocumentTokenizer {
                 for(TokenSplitter splitter : tokenSplitters) { 
                     tokens = tokens.flatMap(t -> { 
                         Stream<Token> splitToks = splitter.apply(t);
-                        return splitToks.map(st -> new AnnotatedToken(st.text(), st.start(), st.end(), t.getAnnotations()));
+                        return splitToks.map(st -> t.split(st));
                     });
                 }
                 splitSentences.add(tokens.collect(Collectors.toList()));
@@ -0,0 +1,171 @@
+package com.arunge.nlp.tokenization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.arunge.nlp.api.Token;
+import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
+
+/**
+ *
+ *<p>A {@link TokenFilter} that applies the standard checks from {@link TokenFilters} (maximum length, numbers,
+ *   punctuation, non-ASCII characters and stopwords) with one scan over the characters of each token, instead of
+ *   one regular expression match per check.
+ *
+ *   The filters returned by {@link TokenFilters} are instances of this class, and {@link #compile(Collection)}
+ *   merges any number of them into a single filter. Other filters in the collection are kept and applied
+ *   after the fused checks.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class CompiledTokenFilter implements TokenFilter {
+
+    private static final TokenFilter[] NO_FILTERS = new TokenFilter[0];
+
+    private int maxLength;
+    private boolean rejectNumbers;
+    private boolean rejectPunctuation;
+    private boolean requireAscii;
+    private StopwordsFilter stopwords;
+    private TokenFilter[] others;
+
+    /**
+     * Creates a filter that accepts all tokens.
+     */
+    public CompiledTokenFilter() {
+        this.maxLength = Integer.MAX_VALUE;
+        this.others = NO_FILTERS;
+    }
+
+    /**
+     * Combines the filters into a single filter that accepts a token only if all of them accept it.
+     * @param filters
+     * @return
+     */
+    public static CompiledTokenFilter compile(Collection<? extends TokenFilter> filters) {
+        CompiledTokenFilter compiled = new CompiledTokenFilter();
+        List<TokenFilter> others = new ArrayList<>();
+        for(TokenFilter filter : filters) {
+            if(filter instanceof CompiledTokenFilter) {
+                CompiledTokenFilter other = (CompiledTokenFilter) filter;
+                compiled.maxLength = Math.min(compiled.maxLength, other.maxLength);
+                compiled.rejectNumbers |= other.rejectNumbers;
+                compiled.rejectPunctuation |= other.rejectPunctuation;
+                compiled.requireAscii |= other.requireAscii;
+                if(other.stopwords != null) {
+                    compiled.addStopwords(other.stopwords, others);
+                }
+                for(TokenFilter f : other.others) {
+                    others.add(f);
+                }
+            } else if(filter instanceof StopwordsFilter) {
+                compiled.addStopwords((StopwordsFilter) filter, others);
+            } else if(filter != null) {
+                others.add(filter);
+            }
+        }
+        compiled.others = others.toArray(NO_FILTERS);
+        return compiled;
+    }
+
+    private void addStopwords(StopwordsFilter filter, List<TokenFilter> others) {
+        if(stopwords == null) {
+            stopwords = filter;
+        } else if(stopwords != filter) {
+            others.add(filter);
+        }
+    }
+
+    /**
+     * Rejects tokens longer than the provided length.
+     * @param maxLength
+     * @return
+     */
+    public CompiledTokenFilter withMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Rejects tokens containing any of the digits 0-9.
+     * @return
+     */
+    public CompiledTokenFilter rejectNumbers() {
+        this.rejectNumbers = true;
+        return this;
+    }
+
+    /**
+     * Rejects non-empty tokens made up entirely of ASCII punctuation characters.
+     * @return
+     */
+    public CompiledTokenFilter rejectPunctuation() {
+        this.rejectPunctuation = true;
+        return this;
+    }
+
+    /**
+     * Rejects tokens containing characters outside of the printable ASCII range.
+     * @return
+     */
+    public CompiledTokenFilter requireAscii() {
+        this.requireAscii = true;
+        return this;
+    }
+
+    /**
+     * Rejects tokens in the provided stopword list.
+     * @param stopwords
+     * @return
+     */
+    public CompiledTokenFilter withStopwords(StopwordsFilter stopwords) {
+        this.stopwords = stopwords;
+        return this;
+    }
+
+    @Override
+    public boolean test(Token t) {
+        String text = t.text();
+        int length = text.length();
+        if(length > maxLength) {
+            return false;
+        }
+        if(rejectNumbers || rejectPunctuation || requireAscii) {
+            boolean allPunctuation = length > 0;
+            for(int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if(rejectNumbers && c >= '0' && c <= '9') {
+                    return false;
+                }
+                if(requireAscii && (c < ' ' || c > '~')) {
+                    return false;
+                }
+                if(allPunctuation && !isPunctuation(c)) {
+                    allPunctuation = false;
+                }
+            }
+            if(rejectPunctuation && allPunctuation) {
+                return false;
+            }
+        }
+        if(stopwords != null && stopwords.contains(text)) {
+            return false;
+        }
+        for(TokenFilter filter : others) {
+            if(!filter.test(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches the characters in the \p{Punct} regular expression class.
+     */
+    private static boolean isPunctuation(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+
+}
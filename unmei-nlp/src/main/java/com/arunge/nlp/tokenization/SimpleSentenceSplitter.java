@@ -0,0 +1,85 @@
+package com.arunge.nlp.tokenization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arunge.nlp.api.SentenceSplitter;
+import com.arunge.nlp.api.Token;
+import com.arunge.nlp.api.Tokenizer;
+
+/**
+ *
+ *<p>Rule-based sentence splitter intended for use with the {@link SimpleTokenizer}. A sentence ends after a token
+ *   made up only of the terminators '.', '!' and '?', along with any closing quotes or brackets that directly
+ *   follow it without intervening whitespace.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class SimpleSentenceSplitter implements SentenceSplitter {
+
+    private Tokenizer tokenizer;
+
+    public SimpleSentenceSplitter() {
+        this(new SimpleTokenizer());
+    }
+
+    public SimpleSentenceSplitter(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    @Override
+    public List<List<Token>> split(String text) {
+        return split(tokenizer.tokenizeToList(text));
+    }
+
+    @Override
+    public List<List<Token>> split(List<Token> tokens) {
+        List<List<Token>> sentences = new ArrayList<>();
+        int start = 0;
+        int i = 0;
+        while(i < tokens.size()) {
+            if(isTerminator(tokens.get(i).text())) {
+                i++;
+                while(i < tokens.size() && isCloser(tokens.get(i).text()) && tokens.get(i).start() == tokens.get(i - 1).end()) {
+                    i++;
+                }
+                sentences.add(new ArrayList<>(tokens.subList(start, i)));
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if(start < tokens.size()) {
+            sentences.add(new ArrayList<>(tokens.subList(start, tokens.size())));
+        }
+        return sentences;
+    }
+
+    private static boolean isTerminator(String text) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c != '.' && c != '!' && c != '?') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCloser(String text) {
+        if(text.length() != 1) {
+            return false;
+        }
+        switch(text.charAt(0)) {
+        case '"':
+        case '\'':
+        case ')':
+        case ']':
+        case '}':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+}
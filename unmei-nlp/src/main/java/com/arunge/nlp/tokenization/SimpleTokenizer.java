@@ -0,0 +1,126 @@
+package com.arunge.nlp.tokenization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.arunge.nlp.api.Token;
+import com.arunge.nlp.api.Tokenizer;
+
+/**
+ *
+ *<p>Rule-based tokenizer that splits text on whitespace and punctuation in a single pass over its characters.
+ *
+ *   Runs of letters and digits form words. Apostrophes and hyphens between two word characters are kept inside
+ *   the word, as are periods and commas between two digits, so contractions, hyphenated words and numbers such
+ *   as 3.14 or 1,000 stay single tokens. A period directly following a single letter or a common abbreviation
+ *   is kept with it (e.g. "U.S.", "Dr."). Runs of identical punctuation characters (e.g. "...", "--") form a single
+ *   token, and any other character is a token by itself.
+ *
+ *   Much faster than the CoreNLP tokenizer, at the cost of not handling the less common cases it covers.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class SimpleTokenizer implements Tokenizer {
+
+    private static final Set<String> ABBREVIATIONS = new HashSet<>(Arrays.asList(
+            "mr", "mrs", "ms", "dr", "prof", "st", "jr", "sr", "vs", "etc", "inc", "ltd", "co", "corp",
+            "no", "fig", "al", "approx", "dept", "est", "jan", "feb", "mar", "apr", "jun", "jul", "aug",
+            "sep", "sept", "oct", "nov", "dec"));
+
+    @Override
+    public Stream<Token> tokenize(String text) {
+        return tokenizeToList(text).stream();
+    }
+
+    @Override
+    public List<Token> tokenizeToList(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+        while(i < length) {
+            char c = text.charAt(i);
+            if(Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            if(Character.isLetterOrDigit(c)) {
+                i = scanWord(text, i);
+                if(i < length && text.charAt(i) == '.' && isAbbreviation(text, start, i)) {
+                    i = scanAbbreviation(text, i);
+                }
+            } else {
+                i++;
+                while(i < length && text.charAt(i) == c) {
+                    i++;
+                }
+            }
+            tokens.add(new Token(text.substring(start, i), start, i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the end offset of the word starting at the provided offset.
+     */
+    private static int scanWord(String text, int i) {
+        int length = text.length();
+        i++;
+        while(i < length) {
+            char c = text.charAt(i);
+            if(Character.isLetterOrDigit(c)) {
+                i++;
+            } else if(i + 1 < length && isJoiner(c, text.charAt(i - 1), text.charAt(i + 1))) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Whether the character c should be kept inside a word when it appears between prev and next.
+     */
+    private static boolean isJoiner(char c, char prev, char next) {
+        switch(c) {
+        case '\'':
+        case '-':
+            return Character.isLetterOrDigit(next);
+        case '.':
+        case ',':
+            return Character.isDigit(prev) && Character.isDigit(next);
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isAbbreviation(String text, int start, int end) {
+        if(end - start == 1) {
+            return Character.isLetter(text.charAt(start));
+        }
+        if(end - start > 6) {
+            return false;
+        }
+        return ABBREVIATIONS.contains(text.substring(start, end).toLowerCase());
+    }
+
+    /**
+     * Consumes the period at the provided offset along with any following single letter and period pairs,
+     * returning the end offset of the abbreviation.
+     */
+    private static int scanAbbreviation(String text, int i) {
+        int length = text.length();
+        i++;
+        while(i + 1 < length && Character.isLetter(text.charAt(i)) && text.charAt(i + 1) == '.') {
+            i += 2;
+        }
+        return i;
+    }
+
+}
@@ -2,28 +2,97 @@ package com.arunge.nlp.tokenization;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Collection;
 
+import com.arunge.nlp.api.StringHashing;
 import com.arunge.nlp.api.Token;
 import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 
+/**
+ * 
+ *<p>Removes tokens whose lowercased text appears in a stopword list. The stopwords are matched exactly as given,
+ *   so stopwords should be lowercase; entries containing uppercase characters never match a token.
+ *
+ *   The stopwords are kept in an open addressing hash table, and tokens are hashed and compared while lowercasing
+ *   them one character at a time, so they are looked up without creating a lowercased copy of their text.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class StopwordsFilter implements TokenFilter{
 
-    private Set<String> stopwords;
+    private String[] table;
+    private int mask;
+    private int size;
     
     public StopwordsFilter(File stopwordsFile) throws IOException {
-        List<String> lines = Files.readLines(stopwordsFile, Charsets.UTF_8);
-        this.stopwords = new HashSet<>();
-        stopwords.addAll(lines);
+        this(Files.readLines(stopwordsFile, Charsets.UTF_8));
+    }
+    
+    public StopwordsFilter(Collection<String> stopwords) {
+        int capacity = 16;
+        while(capacity < stopwords.size() * 2) {
+            capacity <<= 1;
+        }
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+        for(String word : stopwords) {
+            add(word);
+        }
     }
     
     @Override
     public boolean test(Token t) {
-        return !stopwords.contains(t.text().toLowerCase());
+        return !contains(t.text());
+    }
+    
+    /**
+     * Returns whether the lowercased word is a stopword.
+     * @param word
+     * @return
+     */
+    public boolean contains(CharSequence word) {
+        int slot = StringHashing.hashIgnoreCase(word) & mask;
+        String entry;
+        while((entry = table[slot]) != null) {
+            if(equalsLowercased(entry, word)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private void add(String word) {
+        //Hashed as is, which matches the case-folded hash of any token that lowercases to the word
+        int slot = StringHashing.hash(word) & mask;
+        String entry;
+        while((entry = table[slot]) != null) {
+            if(entry.equals(word)) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = word;
+        size++;
+    }
+    
+    private static boolean equalsLowercased(String stopword, CharSequence word) {
+        if(stopword.length() != word.length()) {
+            return false;
+        }
+        for(int i = 0; i < stopword.length(); i++) {
+            if(stopword.charAt(i) != Character.toLowerCase(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
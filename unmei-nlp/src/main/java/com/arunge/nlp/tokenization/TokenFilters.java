@@ -2,9 +2,9 @@ package com.arunge.nlp.tokenization;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,29 +32,45 @@ public class TokenFilters {
     public interface TokenFilter extends Predicate<Token> {
     }
     
-    //[0-9e\\s,\\-\\+\\.\\p{Punct}]*
-    private static Pattern NUM_PATTERN = Pattern.compile(".*[0-9]+.*");
-    private static Pattern PUNCTUATION = Pattern.compile("\\p{Punct}+");
-    private static Pattern ASCII = Pattern.compile("[ -~]*");
-    
+    /**
+     * Removes tokens containing any digit.
+     * @return
+     */
     public static TokenFilter numberFilter(){ 
-        return t -> !(NUM_PATTERN.matcher(t.text()).matches());
+        return new CompiledTokenFilter().rejectNumbers();
     }
     
     public static TokenFilter maxLength(int maxLength){ 
-        return t -> t.text().length() <= maxLength;
+        return new CompiledTokenFilter().withMaxLength(maxLength);
     }
     
     public static TokenFilter stopwords() {
         return DEFAULT_STOPWORDS;
     }
     
+    /**
+     * Removes tokens made up entirely of ASCII punctuation.
+     * @return
+     */
     public static TokenFilter punctuation() { 
-        return t -> !(PUNCTUATION.matcher(t.text()).matches());
+        return new CompiledTokenFilter().rejectPunctuation();
     }
    
+    /**
+     * Removes tokens containing characters outside of the printable ASCII range.
+     * @return
+     */
     public static TokenFilter ascii() { 
-        return t -> ASCII.matcher(t.text()).matches();
+        return new CompiledTokenFilter().requireAscii();
+    }
+    
+    /**
+     * Fuses the filters into a single {@link CompiledTokenFilter} that checks each token in one pass.
+     * @param filters
+     * @return
+     */
+    public static TokenFilter compile(Collection<? extends TokenFilter> filters) {
+        return CompiledTokenFilter.compile(filters);
     }
     
     public static List<TokenFilter> getDefaultFilters() {
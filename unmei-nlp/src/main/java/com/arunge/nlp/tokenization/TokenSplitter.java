@@ -1,7 +1,7 @@
 package com.arunge.nlp.tokenization;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -9,37 +9,127 @@ import java.util.stream.Stream;
 
 import com.arunge.nlp.api.Token;
 
+/**
+ *
+ *<p>Splits tokens around each match of a pattern, keeping the matched text as tokens of its own. The offsets of
+ *   the split tokens are relative to the same text as the offsets of the original token.
+ *
+ *   Splitters created from a set of literal characters, or from a pattern that is a single literal character,
+ *   scan the token text directly instead of running a regular expression. {@link #mightSplit(Token)} and
+ *   {@link #splitInto(Token, List)} let callers pass tokens that are not split through without any allocation.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class TokenSplitter implements Function<Token, Stream<Token>>{
 
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
     private Pattern pattern;
-    
+    private char[] splitChars;
+
     public TokenSplitter(String pattern) {
-        this.pattern = Pattern.compile(pattern);
+        if(pattern.length() == 1 && REGEX_META_CHARS.indexOf(pattern.charAt(0)) < 0) {
+            this.splitChars = new char[] { pattern.charAt(0) };
+        } else {
+            this.pattern = Pattern.compile(pattern);
+        }
+    }
+
+    /**
+     * Creates a splitter that splits tokens around each occurrence of any of the provided characters.
+     * @param splitChars
+     */
+    public TokenSplitter(char...splitChars) {
+        if(splitChars.length == 0) {
+            throw new IllegalArgumentException("At least one split character is required");
+        }
+        this.splitChars = splitChars.clone();
     }
-    
+
     @Override
     public Stream<Token> apply(Token t) {
-        Matcher m = pattern.matcher(t.text());
-        Collection<Token> tokens = new ArrayList<>();
-        int prev = 0;
-        while(m.find()) {
-            int start = m.start();
-            int end = m.end();
-            if(start > prev) {
-                Token leftSplit = new Token(t.text().substring(prev, start), prev, start);
-                tokens.add(leftSplit);
+        List<Token> tokens = new ArrayList<>();
+        splitInto(t, tokens);
+        return tokens.stream();
+    }
+
+    /**
+     * Cheap check for whether the token can be split. If this returns false, splitting the token
+     * returns the token itself.
+     * @param t
+     * @return
+     */
+    public boolean mightSplit(Token t) {
+        if(splitChars == null) {
+            return true;
+        }
+        String text = t.text();
+        for(int i = 0; i < text.length(); i++) {
+            if(isSplitChar(text.charAt(i))) {
+                return true;
             }
-            Token patternSplit = new Token(t.text().substring(start, end), start, end);
-            prev = end;
-            tokens.add(patternSplit);
         }
-        if(prev != t.text().length()) {
-            tokens.add(new Token(t.text().substring(prev, t.text().length()), prev, t.text().length()));
+        return false;
+    }
+
+    /**
+     * Appends the pieces of the split token to the provided list, or the token itself if it is not split.
+     * @param t
+     * @param tokens
+     * @return the number of tokens appended
+     */
+    public int splitInto(Token t, List<? super Token> tokens) {
+        int initialSize = tokens.size();
+        String text = t.text();
+        int offset = t.start();
+        int prev = 0;
+        boolean split = false;
+        if(splitChars != null) {
+            for(int i = 0; i < text.length(); i++) {
+                if(isSplitChar(text.charAt(i))) {
+                    if(i == 0 && text.length() == 1) {
+                        break;
+                    }
+                    if(i > prev) {
+                        tokens.add(new Token(text.substring(prev, i), offset + prev, offset + i));
+                    }
+                    tokens.add(new Token(text.substring(i, i + 1), offset + i, offset + i + 1));
+                    prev = i + 1;
+                    split = true;
+                }
+            }
+        } else {
+            Matcher m = pattern.matcher(text);
+            while(m.find()) {
+                int start = m.start();
+                int end = m.end();
+                if(start == 0 && end == text.length()) {
+                    break;
+                }
+                if(start > prev) {
+                    tokens.add(new Token(text.substring(prev, start), offset + prev, offset + start));
+                }
+                tokens.add(new Token(text.substring(start, end), offset + start, offset + end));
+                prev = end;
+                split = true;
+            }
         }
-        if(tokens.isEmpty()) {
+        if(!split) {
             tokens.add(t);
+        } else if(prev != text.length()) {
+            tokens.add(new Token(text.substring(prev, text.length()), offset + prev, offset + text.length()));
         }
-        return tokens.stream();
+        return tokens.size() - initialSize;
     }
-    
+
+    private boolean isSplitChar(char c) {
+        for(char s : splitChars) {
+            if(c == s) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
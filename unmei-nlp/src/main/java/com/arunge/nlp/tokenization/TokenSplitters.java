@@ -3,14 +3,14 @@ package com.arunge.nlp.tokenization;
 public class TokenSplitters {
 
     public static TokenSplitter hyphen() {
-        return new TokenSplitter("-");
+        return new TokenSplitter('-');
     }
     
     public static TokenSplitter slashes() {
-        return new TokenSplitter("[\\/\\\\]");
+        return new TokenSplitter('/', '\\');
     }
     
     public static TokenSplitter underscores() {
-        return new TokenSplitter("_");
+        return new TokenSplitter('_');
     }
 }
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.util.Arrays;
+import java.util.List;
 
 import com.arunge.nlp.api.NgramKeyCompression;
 
@@ -47,9 +48,94 @@ public class CountingNGramIndexer extends NGramIndexer {
         return copy;
     }
     
-    protected int addNgram(int[] indexedNgram, int from, int to) {
-        int order = to - from;
-        long ngramKey = NgramKeyCompression.generateKey(indexedNgram, from, to);
+    /**
+     * Removes all n-grams with fewer total occurrences than minCount or that are present in fewer documents than
+     * minDocs, without creating a new indexer. Retained n-grams keep their relative order and are renumbered
+     * consecutively, and the vocabulary is compacted to the words they use, matching the result of 
+     * {@link #trimTail(int, int)}. Returns a map from each previous n-gram index to its new index, or -1 for
+     * removed n-grams, which can be used to rewrite documents indexed against this indexer.
+     * @param minCount
+     * @param minDocs
+     * @return
+     */
+    public int[] trimTailInPlace(int minCount, int minDocs) {
+        int[] oldToNew = new int[size + 1];
+        int newSize = 0;
+        Arrays.fill(numNgrams, 0);
+        for(int i = 1; i <= size; i++) {
+            if(ngramFreqVectors[i] >= minCount && docFreqVectors[i] >= minDocs) {
+                newSize += 1;
+                oldToNew[i] = newSize;
+                docFreqVectors[newSize] = docFreqVectors[i];
+                ngramFreqVectors[newSize] = ngramFreqVectors[i];
+                numNgrams[NgramKeyCompression.extractOrder(index2Keys[i]) - 1] += ngramFreqVectors[i];
+            } else {
+                oldToNew[i] = -1;
+            }
+        }
+        Arrays.fill(docFreqVectors, newSize + 1, size + 1, 0);
+        Arrays.fill(ngramFreqVectors, newSize + 1, size + 1, 0);
+        retainNgrams(oldToNew, newSize);
+        return oldToNew;
+    }
+    
+    /**
+     * Merges the n-grams and counts of another indexer into this one. Words and n-grams not yet
+     * present are added, and document frequencies, n-gram frequencies and document counts are
+     * summed. Returns a mapping from each n-gram index in the other indexer to its index in this
+     * one, which can be used to rewrite documents indexed against the other indexer.
+     * @param other
+     * @return
+     */
+    public int[] mergeFrom(CountingNGramIndexer other) {
+        if(frozen) {
+            throw new UnsupportedOperationException("Cannot merge into a frozen indexer.");
+        }
+        if(other.order != this.order) {
+            throw new UnsupportedOperationException(String.format("Cannot merge indexers of different orders: %d, %d", this.order, other.order));
+        }
+        Vocabulary otherVocab = other.getVocabulary();
+        int[] wordMap = new int[otherVocab.size()];
+        for(int w = 1; w < wordMap.length; w++) {
+            wordMap[w] = vocabulary.getOrAdd(otherVocab.getWord(w));
+        }
+        int[] indexMap = new int[other.size + 1];
+        for(int i = 1; i <= other.size; i++) {
+            int[] ngram = NgramKeyCompression.extractKey(other.index2Keys[i]);
+            for(int j = 0; j < ngram.length; j++) {
+                ngram[j] = wordMap[ngram[j]];
+            }
+            int index = addNgram(ngram, 0, ngram.length);
+            docFreqVectors[index] += other.docFreqVectors[i];
+            ngramFreqVectors[index] += other.ngramFreqVectors[i];
+            indexMap[i] = index;
+        }
+        for(int o = 0; o < numNgrams.length; o++) {
+            numNgrams[o] += other.numNgrams[o];
+        }
+        this.numDocs += other.numDocs;
+        return indexMap;
+    }
+    
+    /**
+     * Creates a new indexer containing the merged n-grams and counts of all the provided indexers,
+     * e.g. the vocabularies of corpus shards built independently.
+     * @param indexers
+     * @return
+     */
+    public static CountingNGramIndexer merge(List<CountingNGramIndexer> indexers) {
+        if(indexers.isEmpty()) { 
+            throw new UnsupportedOperationException("Cannot merge an empty list of indexers.");
+        }
+        CountingNGramIndexer merged = new CountingNGramIndexer(indexers.get(0).getOrder());
+        for(CountingNGramIndexer indexer : indexers) {
+            merged.mergeFrom(indexer);
+        }
+        return merged;
+    }
+    
+    @Override
+    protected int addNgram(long ngramKey, int order) {
         int index = indexers[order - 1].get(ngramKey);
         if(index == 0 && !frozen) {
             this.size += 1;
@@ -158,12 +244,35 @@ public class CountingNGramIndexer extends NGramIndexer {
         if (index < 0 || index >= index2Keys.length) {
             throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, index2Keys.length));
         } else {
-            String[] ngram = getNgram(index);
-            numNgrams[ngram.length - 1]+=inc;
+            numNgrams[NgramKeyCompression.extractOrder(index2Keys[index]) - 1]+=inc;
             ngramFreqVectors[index]+=inc;
         }
     }
     
+    /**
+     * Increment the frequency of each of the first n n-gram keys by 1, adding any n-grams that are not yet 
+     * present in the indexer. If the vocabulary is frozen, this is a no-op. 
+     * @param keys Packed n-gram keys, as generated by {@link NgramKeyCompression}
+     * @param n The number of keys in the array to process
+     */
+    public void incrementAll(long[] keys, int n) {
+        if(frozen) {
+            return;
+        }
+        if(n < 0 || n > keys.length) {
+            throw new IndexOutOfBoundsException(String.format("Key count %d is out of bounds, number of keys: %d", n, keys.length));
+        }
+        for(int i = 0; i < n; i++) {
+            int order = NgramKeyCompression.extractOrder(keys[i]);
+            if(order > this.order) {
+                throw new UnsupportedOperationException("Invalid order: " + order + ", Maximum supported order: " + this.order);
+            }
+            int index = addNgram(keys[i], order);
+            numNgrams[order - 1] += 1;
+            ngramFreqVectors[index] += 1;
+        }
+    }
+    
     public long getNgramFrequency(int index) {
         if(index >= index2Keys.length) {
             throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, index2Keys.length));
@@ -43,12 +43,12 @@ public class CountingVocabulary extends Vocabulary {
     }
     
     @Override
-    public int getOrAdd(String word) {
+    public int getOrAdd(CharSequence word) {
         int wordIndex = super.getOrAdd(word);
-        if(docFreqVector.length <= index2Word.size()) { 
+        if(docFreqVector.length <= size()) { 
             docFreqVector = Arrays.copyOf(docFreqVector, docFreqVector.length * 3 / 2);
         }
-        if(wordFreqVector.length <= index2Word.size()) {
+        if(wordFreqVector.length <= size()) {
             wordFreqVector = Arrays.copyOf(wordFreqVector,  wordFreqVector.length * 3 / 2);
         }
         return wordIndex;
@@ -58,8 +58,8 @@ public class CountingVocabulary extends Vocabulary {
         if(frozen) {
             return;
         }
-        if(index >= index2Word.size()) {
-            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, index2Word.size()));
+        if(index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, size()));
         }
         docFreqVector[index] += 1;
     }
@@ -73,8 +73,8 @@ public class CountingVocabulary extends Vocabulary {
     }
     
     public int getDocFrequency(int index) {
-        if(index >= index2Word.size()) {
-            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, index2Word.size()));
+        if(index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, size()));
         }
         return docFreqVector[index];
     }
@@ -83,16 +83,16 @@ public class CountingVocabulary extends Vocabulary {
         if(frozen) {
             return;
         }
-        if(index >= index2Word.size()) {
-            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, index2Word.size()));
+        if(index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, size()));
         }
         numTokens += 1;
         wordFreqVector[index] += 1;
     }
     
     public long getWordFrequency(int index) {
-        if(index >= index2Word.size() || index < 0) {
-            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, index2Word.size()));
+        if(index >= size() || index < 0) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, size()));
         }
         return wordFreqVector[index];
     }
@@ -153,9 +153,9 @@ public class CountingVocabulary extends Vocabulary {
     public CountingVocabulary trimTail(int minCount, int minDocs) {
         CountingVocabulary newVocab = new CountingVocabulary();
         newVocab.setNumDocs(numDocs);
-        for(int i = 0; i < vocab.size(); i++) {
+        for(int i = 0; i < size(); i++) {
             if(docFreqVector[i] >= minDocs && wordFreqVector[i] >= minCount) {
-                int newIndex = newVocab.getOrAdd(index2Word.get(i));
+                int newIndex = newVocab.getOrAdd(getWord(i));
                 newVocab.docFreqVector[newIndex] = docFreqVector[i];
                 newVocab.wordFreqVector[newIndex] = wordFreqVector[i];
                 newVocab.numTokens += wordFreqVector[i];
@@ -0,0 +1,480 @@
+package com.arunge.nlp.vocab;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arunge.nlp.api.MappedRegion;
+import com.arunge.nlp.api.NgramKeyCompression;
+import com.arunge.nlp.api.StringHashing;
+
+/**
+ *
+ *<p>A read-only view of an {@link NGramIndexer} (or {@link CountingNGramIndexer}) stored in a binary index file that
+ *   is memory mapped and queried in place. Opening an index does not deserialize anything, so it is close to
+ *   instantaneous regardless of the size of the vocabulary, and multiple processes opening the same file share
+ *   its pages through the operating system's page cache.
+ *
+ *   The file starts with a header (magic number, format version, flags, n-gram order and section sizes), followed
+ *   by the sections below, each aligned to 8 bytes and stored big-endian:
+ *   <ul>
+ *   <li>n-gram keys by index (long[size + 1])</li>
+ *   <li>document frequencies and n-gram frequencies by index (int[size + 1] each, counting indexers only)</li>
+ *   <li>for each order, an open addressing table from n-gram key to index (long[capacity] keys, int[capacity] indices)</li>
+ *   <li>the vocabulary: word offsets (int[vocabSize + 1]), a char arena holding all words, and an open
+ *   addressing table from word to index (int[capacity], storing index + 1)</li>
+ *   </ul>
+ *   Index files are written using {@link #write(NGramIndexer, File)}.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class MappedNGramIndexer {
+
+    private static Logger LOG = LoggerFactory.getLogger(MappedNGramIndexer.class);
+
+    private static final int MAGIC = 0x4E47494E;
+    private static final int VERSION = 1;
+    private static final int FLAG_COUNTS = 1;
+    private static final int FIXED_HEADER_BYTES = 40;
+
+    private int order;
+    private int size;
+    private int vocabSize;
+    private int numDocs;
+    private boolean hasCounts;
+    private long[] numNgrams;
+
+    private MappedRegion index2Keys;
+    private MappedRegion docFreqs;
+    private MappedRegion ngramFreqs;
+    private MappedRegion[] tableKeys;
+    private MappedRegion[] tableIndexes;
+    private int[] tableMasks;
+    private int[] tableSizes;
+    private MappedRegion wordOffsets;
+    private MappedRegion wordChars;
+    private MappedRegion wordTable;
+    private int wordTableMask;
+
+    private MappedNGramIndexer() {
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the number of n-gram indices, including the unused index 0, matching {@link NGramIndexer#size()}.
+     * @return
+     */
+    public int size() {
+        return size + 1;
+    }
+
+    public int size(int order) {
+        validateOrder(order);
+        return tableSizes[order - 1];
+    }
+
+    /**
+     * Returns the number of words in the vocabulary, including the dummy word at index 0.
+     * @return
+     */
+    public int vocabularySize() {
+        return vocabSize;
+    }
+
+    public boolean hasCounts() {
+        return hasCounts;
+    }
+
+    public boolean contains(String...ngram) {
+        return getIndex(ngram) != -1;
+    }
+
+    /**
+     * Returns the index of the n-gram, or -1 if the n-gram is not present in the index.
+     * @param ngram
+     * @return
+     */
+    public int getIndex(String...ngram) {
+        if(ngram == null) {
+            return -1;
+        }
+        if(ngram.length == 0 || ngram.length > this.order) {
+            LOG.error("Invalid n-gram order. Order: {}, Max supported order: {}", ngram.length, this.order);
+            return -1;
+        }
+        int[] indexedNgram = new int[ngram.length];
+        for(int i = 0; i < ngram.length; i++) {
+            indexedNgram[i] = getWordIndex(ngram[i]);
+            if(indexedNgram[i] == -1) {
+                return -1;
+            }
+        }
+        return getIndex(NgramKeyCompression.generateKey(indexedNgram), ngram.length);
+    }
+
+    /**
+     * Retrieve the index for a given ngram key, or -1 if the n-gram is not present in the index.
+     * @param ngramKey
+     * @param order
+     * @return
+     */
+    public int getIndex(long ngramKey, int order) {
+        if(order == 0 || order > this.order) {
+            LOG.error("Invalid n-gram order. Order: {}, Max supported order: {}", order, this.order);
+            return -1;
+        }
+        MappedRegion keys = tableKeys[order - 1];
+        MappedRegion indexes = tableIndexes[order - 1];
+        int mask = tableMasks[order - 1];
+        int slot = slot(ngramKey) & mask;
+        while(true) {
+            int index = indexes.getInt(slot);
+            if(index == 0) {
+                return -1;
+            }
+            if(keys.getLong(slot) == ngramKey) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public String[] getNgram(int index) {
+        validateIndex(index);
+        int[] indexedNgram = NgramKeyCompression.extractKey(index2Keys.getLong(index));
+        String[] words = new String[indexedNgram.length];
+        for(int i = 0; i < words.length; i++) {
+            words[i] = getWord(indexedNgram[i]);
+        }
+        return words;
+    }
+
+    public long getNgramKey(int index) {
+        validateIndex(index);
+        return index2Keys.getLong(index);
+    }
+
+    /**
+     * Returns the vocabulary index of the word, or -1 if the word is not present.
+     * @param word
+     * @return
+     */
+    public int getWordIndex(CharSequence word) {
+        int slot = StringHashing.hash(word) & wordTableMask;
+        while(true) {
+            int entry = wordTable.getInt(slot);
+            if(entry == 0) {
+                return -1;
+            }
+            int id = entry - 1;
+            if(wordMatches(id, word)) {
+                return id;
+            }
+            slot = (slot + 1) & wordTableMask;
+        }
+    }
+
+    public String getWord(int index) {
+        if(index < 0 || index >= vocabSize) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, vocabSize));
+        }
+        int start = wordOffsets.getInt(index);
+        int end = wordOffsets.getInt(index + 1);
+        char[] chars = new char[end - start];
+        for(int i = 0; i < chars.length; i++) {
+            chars[i] = wordChars.getChar(start + i);
+        }
+        return new String(chars);
+    }
+
+    public int getDocFrequency(int index) {
+        validateCounts();
+        validateIndex(index);
+        return docFreqs.getInt(index);
+    }
+
+    public long getNgramFrequency(int index) {
+        validateCounts();
+        validateIndex(index);
+        return ngramFreqs.getInt(index);
+    }
+
+    public int getNumDocs() {
+        validateCounts();
+        return numDocs;
+    }
+
+    public long getNumNgrams(int order) {
+        validateCounts();
+        validateOrder(order);
+        return numNgrams[order - 1];
+    }
+
+    public double[] computeIDFVector() {
+        validateCounts();
+        if(numDocs == 0) {
+            return new double[0];
+        }
+        double[] idfVector = new double[size + 1];
+        for(int i = 1; i <= size; i++) {
+            int docFreq = docFreqs.getInt(i);
+            if(docFreq != 0) {
+                idfVector[i] = Math.log(numDocs / ((double) docFreq));
+            }
+        }
+        return idfVector;
+    }
+
+    private boolean wordMatches(int id, CharSequence word) {
+        int start = wordOffsets.getInt(id);
+        int end = wordOffsets.getInt(id + 1);
+        if(end - start != word.length()) {
+            return false;
+        }
+        for(int i = 0; i < word.length(); i++) {
+            if(wordChars.getChar(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void validateIndex(int index) {
+        if(index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of bounds, current size: %d", index, size + 1));
+        }
+    }
+
+    private void validateOrder(int order) {
+        if(order < 1 || order > this.order) {
+            throw new UnsupportedOperationException("Invalid order: " + order + ", Maximum supported order: " + this.order);
+        }
+    }
+
+    private void validateCounts() {
+        if(!hasCounts) {
+            throw new UnsupportedOperationException("Index file was not written from a CountingNGramIndexer and has no frequency counts.");
+        }
+    }
+
+    /**
+     * Writes the indexer to the provided file in the mapped index format. Frequency counts are included
+     * if the indexer is a {@link CountingNGramIndexer}.
+     * @param indexer
+     * @param f
+     * @throws IOException
+     */
+    public static void write(NGramIndexer indexer, File f) throws IOException {
+        boolean counting = indexer instanceof CountingNGramIndexer;
+        int order = indexer.getOrder();
+        int size = indexer.size;
+        Vocabulary vocab = indexer.getVocabulary();
+        int vocabSize = vocab.size();
+        long numChars = 0;
+        for(int i = 0; i < vocabSize; i++) {
+            numChars += vocab.getWord(i).length();
+        }
+        if(numChars > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Vocabulary is too large to be written as a mapped index: " + numChars + " characters");
+        }
+
+        int[] tableCapacities = new int[order];
+        long[][] keyTables = new long[order][];
+        int[][] indexTables = new int[order][];
+        for(int o = 0; o < order; o++) {
+            tableCapacities[o] = capacityFor(indexer.size(o + 1));
+            keyTables[o] = new long[tableCapacities[o]];
+            indexTables[o] = new int[tableCapacities[o]];
+        }
+        for(int i = 1; i <= size; i++) {
+            long key = indexer.index2Keys[i];
+            int o = NgramKeyCompression.extractOrder(key) - 1;
+            int mask = tableCapacities[o] - 1;
+            int slot = slot(key) & mask;
+            while(indexTables[o][slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keyTables[o][slot] = key;
+            indexTables[o][slot] = i;
+        }
+        int wordCapacity = capacityFor(vocabSize);
+        int[] wordTable = new int[wordCapacity];
+        for(int i = 0; i < vocabSize; i++) {
+            int slot = StringHashing.hash(vocab.getWord(i)) & (wordCapacity - 1);
+            while(wordTable[slot] != 0) {
+                slot = (slot + 1) & (wordCapacity - 1);
+            }
+            wordTable[slot] = i + 1;
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(counting ? FLAG_COUNTS : 0);
+            out.writeInt(order);
+            out.writeInt(size);
+            out.writeInt(vocabSize);
+            out.writeInt(counting ? ((CountingNGramIndexer) indexer).getNumDocs() : 0);
+            out.writeInt(wordCapacity);
+            out.writeLong(numChars);
+            for(int o = 0; o < order; o++) {
+                out.writeLong(counting ? ((CountingNGramIndexer) indexer).getNumNgrams(o + 1) : 0);
+            }
+            for(int o = 0; o < order; o++) {
+                out.writeInt(tableCapacities[o]);
+                out.writeInt(indexer.size(o + 1));
+            }
+
+            for(int i = 0; i <= size; i++) {
+                out.writeLong(indexer.index2Keys[i]);
+            }
+            if(counting) {
+                CountingNGramIndexer counts = (CountingNGramIndexer) indexer;
+                for(int i = 0; i <= size; i++) {
+                    out.writeInt(counts.getDocFrequency(i));
+                }
+                pad(out, (size + 1) * 4L);
+                for(int i = 0; i <= size; i++) {
+                    out.writeInt((int) counts.getNgramFrequency(i));
+                }
+                pad(out, (size + 1) * 4L);
+            }
+            for(int o = 0; o < order; o++) {
+                for(long key : keyTables[o]) {
+                    out.writeLong(key);
+                }
+                for(int index : indexTables[o]) {
+                    out.writeInt(index);
+                }
+                pad(out, tableCapacities[o] * 4L);
+            }
+            int offset = 0;
+            for(int i = 0; i < vocabSize; i++) {
+                out.writeInt(offset);
+                offset += vocab.getWord(i).length();
+            }
+            out.writeInt(offset);
+            pad(out, (vocabSize + 1) * 4L);
+            for(int i = 0; i < vocabSize; i++) {
+                out.writeChars(vocab.getWord(i));
+            }
+            pad(out, numChars * 2);
+            for(int entry : wordTable) {
+                out.writeInt(entry);
+            }
+        }
+    }
+
+    /**
+     * Opens an index file written by {@link #write(NGramIndexer, File)}.
+     * @param f
+     * @return
+     * @throws IOException
+     */
+    public static MappedNGramIndexer open(File f) throws IOException {
+        try(FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            if(channel.size() < FIXED_HEADER_BYTES) {
+                throw new IOException("File is too small to be an n-gram index: " + f.getAbsolutePath());
+            }
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, FIXED_HEADER_BYTES);
+            if(header.getInt() != MAGIC) {
+                throw new IOException("File is not an n-gram index: " + f.getAbsolutePath());
+            }
+            int version = header.getInt();
+            if(version != VERSION) {
+                throw new IOException(String.format("Unsupported n-gram index version %d in file %s, expected %d", version, f.getAbsolutePath(), VERSION));
+            }
+            MappedNGramIndexer indexer = new MappedNGramIndexer();
+            indexer.hasCounts = (header.getInt() & FLAG_COUNTS) != 0;
+            indexer.order = header.getInt();
+            indexer.size = header.getInt();
+            indexer.vocabSize = header.getInt();
+            indexer.numDocs = header.getInt();
+            int wordCapacity = header.getInt();
+            long numChars = header.getLong();
+
+            int order = indexer.order;
+            ByteBuffer orderHeader = channel.map(MapMode.READ_ONLY, FIXED_HEADER_BYTES, order * 16L);
+            indexer.numNgrams = new long[order];
+            for(int o = 0; o < order; o++) {
+                indexer.numNgrams[o] = orderHeader.getLong();
+            }
+            int[] tableCapacities = new int[order];
+            indexer.tableSizes = new int[order];
+            for(int o = 0; o < order; o++) {
+                tableCapacities[o] = orderHeader.getInt();
+                indexer.tableSizes[o] = orderHeader.getInt();
+            }
+
+            long offset = FIXED_HEADER_BYTES + order * 16L;
+            long entries = indexer.size + 1L;
+            indexer.index2Keys = new MappedRegion(channel, offset, entries * 8);
+            offset += aligned(entries * 8);
+            if(indexer.hasCounts) {
+                indexer.docFreqs = new MappedRegion(channel, offset, entries * 4);
+                offset += aligned(entries * 4);
+                indexer.ngramFreqs = new MappedRegion(channel, offset, entries * 4);
+                offset += aligned(entries * 4);
+            }
+            indexer.tableKeys = new MappedRegion[order];
+            indexer.tableIndexes = new MappedRegion[order];
+            indexer.tableMasks = new int[order];
+            for(int o = 0; o < order; o++) {
+                indexer.tableKeys[o] = new MappedRegion(channel, offset, tableCapacities[o] * 8L);
+                offset += aligned(tableCapacities[o] * 8L);
+                indexer.tableIndexes[o] = new MappedRegion(channel, offset, tableCapacities[o] * 4L);
+                offset += aligned(tableCapacities[o] * 4L);
+                indexer.tableMasks[o] = tableCapacities[o] - 1;
+            }
+            indexer.wordOffsets = new MappedRegion(channel, offset, (indexer.vocabSize + 1L) * 4);
+            offset += aligned((indexer.vocabSize + 1L) * 4);
+            indexer.wordChars = new MappedRegion(channel, offset, numChars * 2);
+            offset += aligned(numChars * 2);
+            indexer.wordTable = new MappedRegion(channel, offset, wordCapacity * 4L);
+            indexer.wordTableMask = wordCapacity - 1;
+            offset += wordCapacity * 4L;
+            if(offset > channel.size()) {
+                throw new IOException("N-gram index file is truncated: " + f.getAbsolutePath());
+            }
+            return indexer;
+        }
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = 2;
+        while(capacity < entries * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static long aligned(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static void pad(DataOutputStream out, long sectionBytes) throws IOException {
+        for(long i = sectionBytes; i < aligned(sectionBytes); i++) {
+            out.writeByte(0);
+        }
+    }
+
+    private static int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -199,9 +199,27 @@ public class NGramIndexer implements Serializable {
         }
     }
     
+    /**
+     * Adds the n-gram with the provided key and order if it is not already present and returns its index.
+     * Unlike {@link #getOrAdd(boolean, String...)}, lower order n-grams are never added. Returns -1 if the 
+     * n-gram is not present and the indexer is frozen.
+     * @param ngramKey
+     * @param order
+     * @return
+     */
+    public int getOrAdd(long ngramKey, int order) {
+        if(order == 0 || order > this.order) { 
+            LOG.error("Unable to process n-gram. N-gram order: {}, Max order: {}", order, this.order);
+            return -1;
+        }
+        return addNgram(ngramKey, order);
+    }
+    
     protected int addNgram(int[] indexedNgram, int from, int to) {
-        int order = to - from;
-        long ngramKey = NgramKeyCompression.generateKey(indexedNgram, from, to);
+        return addNgram(NgramKeyCompression.generateKey(indexedNgram, from, to), to - from);
+    }
+    
+    protected int addNgram(long ngramKey, int order) {
         int index = indexers[order - 1].get(ngramKey);
         if(index == 0 && !frozen) {
             this.size += 1;
@@ -219,6 +237,56 @@ public class NGramIndexer implements Serializable {
         }
     }
     
+    /**
+     * Removes all n-grams mapped to -1 by the provided index map, and moves every other n-gram i to index
+     * oldToNew[i]. The map must preserve the relative order of the retained n-grams, so that n-grams are
+     * only ever moved to lower indices. The vocabulary is compacted to the words used by the retained n-grams,
+     * numbered in order of their first occurrence, and the n-gram keys are rewritten accordingly.
+     * @param oldToNew Map from each current n-gram index to its new index, or -1 if it should be removed.
+     * @param newSize The number of retained n-grams.
+     */
+    protected void retainNgrams(int[] oldToNew, int newSize) {
+        for(int i = 1; i <= size; i++) {
+            int newIndex = oldToNew[i];
+            if(newIndex > 0) {
+                index2Keys[newIndex] = index2Keys[i];
+            }
+        }
+        Arrays.fill(index2Keys, newSize + 1, size + 1, 0L);
+        
+        //Number the words used by the retained n-grams in order of first occurrence, keeping the dummy word at 0
+        int[] wordMap = new int[vocabulary.size()];
+        int[] newToOldWord = new int[vocabulary.size()];
+        int numWords = 1;
+        for(int i = 1; i <= newSize; i++) {
+            long key = index2Keys[i];
+            int keyOrder = NgramKeyCompression.extractOrder(key);
+            for(int w = 0; w < keyOrder; w++) {
+                int word = NgramKeyCompression.extractWord(key, w);
+                if(wordMap[word] == 0) {
+                    wordMap[word] = numWords;
+                    newToOldWord[numWords] = word;
+                    numWords += 1;
+                }
+            }
+        }
+        
+        int[] orderSizes = new int[order];
+        for(int i = 1; i <= newSize; i++) {
+            orderSizes[NgramKeyCompression.extractOrder(index2Keys[i]) - 1] += 1;
+        }
+        for(int o = 0; o < order; o++) {
+            indexers[o] = new Long2IntOpenHashMap(orderSizes[o]);
+        }
+        for(int i = 1; i <= newSize; i++) {
+            long key = NgramKeyCompression.remapKey(index2Keys[i], wordMap);
+            index2Keys[i] = key;
+            indexers[NgramKeyCompression.extractOrder(key) - 1].put(key, i);
+        }
+        this.vocabulary = vocabulary.subset(newToOldWord, numWords);
+        this.size = newSize;
+    }
+    
     private int[] lookupIndexes(String[] words, boolean addIfMiss) {
         int[] indexes = new int[words.length];
         for(int i = 0; i < words.length; i++ ) {
@@ -8,9 +8,10 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
 
+import com.arunge.nlp.api.CompactStringTable;
 import com.arunge.nlp.api.StringIndexer;
 
 /**
@@ -41,21 +42,46 @@ public class Vocabulary extends StringIndexer {
         this.frozen = other.frozen;
     }
     
+    protected Vocabulary(CompactStringTable strings, boolean frozen) {
+        super(strings);
+        this.frozen = frozen;
+    }
+    
+    /**
+     * Creates a new vocabulary containing the words with the first n of the provided indices, where the word
+     * with index ids[i] is assigned index i. The new vocabulary is frozen if this one is.
+     * @param ids
+     * @param n
+     * @return
+     */
+    public Vocabulary subset(int[] ids, int n) {
+        return new Vocabulary(strings.select(ids, n), frozen);
+    }
+    
     @Override
-    public int getOrAdd(String word) {
-        if(!vocab.containsKey(word)) {
-            if(frozen) {
-                return -1;
-            } else {
-                vocab.put(word, index2Word.size());
-                index2Word.add(word);
-            }
+    public int getOrAdd(CharSequence word) {
+        if(frozen) {
+            return getIndex(word);
         }
-        return vocab.get(word);
+        return super.getOrAdd(word);
     }
     
+    /**
+     * Returns an unmodifiable view of the words in the vocabulary, in index order.
+     * @return
+     */
     public List<String> getVocabWords() {
-        return Collections.unmodifiableList(index2Word);
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getWord(index);
+            }
+
+            @Override
+            public int size() {
+                return Vocabulary.this.size();
+            }
+        };
     }
     
     public boolean isFrozen() {
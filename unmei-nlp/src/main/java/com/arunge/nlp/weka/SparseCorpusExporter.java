@@ -0,0 +1,307 @@
+package com.arunge.nlp.weka;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arunge.nlp.api.FeatureIndexer;
+import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.corpus.NGramCorpus;
+import com.arunge.nlp.vocab.MappedNGramIndexer;
+import com.arunge.nlp.vocab.NGramIndexer;
+
+/**
+ *
+ *<p>Writes the documents of a corpus to sparse ARFF or LibSVM/SVMlight text files one document at a time, without
+ *   building Weka {@link weka.core.Instances} or {@link weka.core.Attribute}s in memory. Memory use does not depend on
+ *   the number of documents, so documents can be streamed from any iterable such as a
+ *   {@link com.arunge.nlp.corpus.io.ColumnarCorpusReader}.
+ *
+ *   The attributes are laid out as in {@link WekaCorpusModelBuilder}: one numeric attribute per n-gram in the indexer,
+ *   followed by one per structured feature, an optional string id attribute and the nominal class attribute. Output
+ *   files whose names end with .gz are gzipped.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class SparseCorpusExporter {
+
+    private static Logger LOG = LoggerFactory.getLogger(SparseCorpusExporter.class);
+
+    private int numNgrams;
+    private IntFunction<String[]> ngrams;
+    private FeatureIndexer features;
+    private List<String> classLabels;
+    private Map<String, Integer> labelIndices;
+    private String relation;
+    private String classAttribute;
+    private boolean includeIds;
+    private int[] indices;
+    private double[] values;
+
+    public SparseCorpusExporter(NGramIndexer indexer, FeatureIndexer features, List<String> classLabels) {
+        this(indexer.size(), indexer::getNgram, features, classLabels);
+    }
+
+    /**
+     * Creates an exporter whose n-gram attributes are read from a memory mapped index, such as the vocabulary of a
+     * corpus exported by {@link com.arunge.nlp.corpus.Corpus#exportColumnar(File)}, so that the vocabulary does not
+     * need to be deserialized either.
+     * @param indexer
+     * @param features
+     * @param classLabels
+     */
+    public SparseCorpusExporter(MappedNGramIndexer indexer, FeatureIndexer features, List<String> classLabels) {
+        this(indexer.size(), indexer::getNgram, features, classLabels);
+    }
+
+    private SparseCorpusExporter(int numNgrams, IntFunction<String[]> ngrams, FeatureIndexer features, List<String> classLabels) {
+        this.numNgrams = numNgrams;
+        this.ngrams = ngrams;
+        this.features = features;
+        this.classLabels = new ArrayList<>(classLabels);
+        this.labelIndices = new HashMap<>();
+        for(int i = 0; i < this.classLabels.size(); i++) {
+            labelIndices.put(this.classLabels.get(i), i);
+        }
+        this.relation = "Corpus";
+        this.classAttribute = "class";
+        this.indices = new int[256];
+        this.values = new double[256];
+    }
+
+    public SparseCorpusExporter(NGramCorpus corpus) {
+        this(corpus.getNgramIndexer(), corpus.getFeatures(), new ArrayList<>(corpus.getClassLabels()));
+    }
+
+    public SparseCorpusExporter withRelation(String relation) {
+        this.relation = relation;
+        return this;
+    }
+
+    public SparseCorpusExporter withClassAttribute(String classAttribute) {
+        this.classAttribute = classAttribute;
+        return this;
+    }
+
+    /**
+     * Writes the id of each document, as a string attribute in ARFF files and as a trailing comment in LibSVM files.
+     * @return
+     */
+    public SparseCorpusExporter includeIds() {
+        this.includeIds = true;
+        return this;
+    }
+
+    /**
+     * Writes the documents to a sparse ARFF file and returns the number of documents written.
+     * @param docs
+     * @param output
+     * @return
+     * @throws IOException
+     */
+    public int writeArff(Iterable<CorpusDocument> docs, File output) throws IOException {
+        try(Writer writer = open(output)) {
+            return writeArff(docs, writer);
+        }
+    }
+
+    public int writeArff(Iterable<CorpusDocument> docs, Writer writer) throws IOException {
+        writeArffHeader(writer);
+        int totalVocabAttrs = numNgrams;
+        int idAttr = totalVocabAttrs + features.size();
+        int classAttr = includeIds ? idAttr + 1 : idAttr;
+        int written = 0;
+        for(CorpusDocument doc : docs) {
+            int n = collect(doc, totalVocabAttrs);
+            writer.write('{');
+            for(int i = 0; i < n; i++) {
+                if(i > 0) {
+                    writer.write(',');
+                }
+                writer.write(Integer.toString(indices[i]));
+                writer.write(' ');
+                writeNumber(writer, values[i]);
+            }
+            String separator = n > 0 ? "," : "";
+            if(includeIds) {
+                writer.write(separator);
+                writer.write(Integer.toString(idAttr));
+                writer.write(' ');
+                writer.write(quote(doc.getDocId()));
+                separator = ",";
+            }
+            //Omitted values of sparse instances are 0, which for the class attribute would be its first label
+            writer.write(separator);
+            writer.write(Integer.toString(classAttr));
+            writer.write(' ');
+            String label = doc.getLabel();
+            writer.write(label == null || label.isEmpty() ? "?" : quote(classLabels.get(labelIndex(doc))));
+            writer.write("}\n");
+            written = logProgress(written);
+        }
+        LOG.info("Wrote {} documents in sparse ARFF format.", written);
+        return written;
+    }
+
+    private void writeArffHeader(Writer writer) throws IOException {
+        writer.write("@relation ");
+        writer.write(quote(relation));
+        writer.write("\n\n");
+        StringBuilder name = new StringBuilder();
+        for(int i = 0; i < numNgrams; i++) {
+            name.setLength(0);
+            WekaCorpusConverters.appendNgramLabel(name, ngrams.apply(i));
+            writeAttribute(writer, name.toString(), "numeric");
+        }
+        for(int i = 0; i < features.size(); i++) {
+            writeAttribute(writer, features.getFeature(i).getName(), "numeric");
+        }
+        if(includeIds) {
+            writeAttribute(writer, "__id", "string");
+        }
+        StringBuilder labels = new StringBuilder("{");
+        for(int i = 0; i < classLabels.size(); i++) {
+            if(i > 0) {
+                labels.append(',');
+            }
+            labels.append(quote(classLabels.get(i)));
+        }
+        writeAttribute(writer, classAttribute, labels.append('}').toString());
+        writer.write("\n@data\n");
+    }
+
+    private void writeAttribute(Writer writer, String name, String type) throws IOException {
+        writer.write("@attribute ");
+        writer.write(quote(name));
+        writer.write(' ');
+        writer.write(type);
+        writer.write('\n');
+    }
+
+    /**
+     * Writes the documents to a LibSVM/SVMlight file and returns the number of documents written. Feature numbers
+     * are the 1-based attribute indices, and labels are the 1-based positions of the class labels, with 0 for
+     * documents that have no label.
+     * @param docs
+     * @param output
+     * @return
+     * @throws IOException
+     */
+    public int writeLibSvm(Iterable<CorpusDocument> docs, File output) throws IOException {
+        try(Writer writer = open(output)) {
+            return writeLibSvm(docs, writer);
+        }
+    }
+
+    public int writeLibSvm(Iterable<CorpusDocument> docs, Writer writer) throws IOException {
+        int totalVocabAttrs = numNgrams;
+        int written = 0;
+        for(CorpusDocument doc : docs) {
+            String label = doc.getLabel();
+            writer.write(Integer.toString(label == null || label.isEmpty() ? 0 : labelIndex(doc) + 1));
+            int n = collect(doc, totalVocabAttrs);
+            for(int i = 0; i < n; i++) {
+                writer.write(' ');
+                writer.write(Integer.toString(indices[i] + 1));
+                writer.write(':');
+                writeNumber(writer, values[i]);
+            }
+            if(includeIds) {
+                writer.write(" # ");
+                writer.write(doc.getDocId());
+            }
+            writer.write('\n');
+            written = logProgress(written);
+        }
+        LOG.info("Wrote {} documents in LibSVM format.", written);
+        return written;
+    }
+
+    private int collect(CorpusDocument doc, int totalVocabAttrs) {
+        int maxValues = WekaCorpusConverters.countValues(doc);
+        if(maxValues > indices.length) {
+            int size = Math.max(maxValues, indices.length * 2);
+            indices = new int[size];
+            values = new double[size];
+        }
+        return WekaCorpusConverters.collectValues(doc, totalVocabAttrs, indices, values);
+    }
+
+    private int labelIndex(CorpusDocument doc) {
+        Integer index = labelIndices.get(doc.getLabel());
+        if(index == null) {
+            throw new IllegalArgumentException(String.format("Label %s of document %s is not one of the class labels", doc.getLabel(), doc.getDocId()));
+        }
+        return index;
+    }
+
+    private int logProgress(int written) {
+        written++;
+        if(written % 10000 == 0) {
+            LOG.info("Exported {} corpus entries.", written);
+        }
+        return written;
+    }
+
+    private static Writer open(File output) throws IOException {
+        OutputStream out = new FileOutputStream(output);
+        if(output.getName().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Writes whole numbers without a fractional part, which keeps count-valued files considerably smaller.
+     */
+    private static void writeNumber(Writer writer, double value) throws IOException {
+        if(value == Math.rint(value) && Math.abs(value) < 1e15) {
+            writer.write(Long.toString((long) value));
+        } else {
+            writer.write(Double.toString(value));
+        }
+    }
+
+    /**
+     * Quotes names and values for ARFF files in the same cases as Weka's Utils.quote.
+     */
+    static String quote(String value) {
+        boolean needsQuotes = value.isEmpty() || value.equals("?");
+        for(int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c <= ' ' || "{}',\"%\\".indexOf(c) >= 0;
+        }
+        if(!needsQuotes) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('\'');
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch(c) {
+            case '\'': sb.append("\\'"); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default: sb.append(c);
+            }
+        }
+        return sb.append('\'').toString();
+    }
+
+}
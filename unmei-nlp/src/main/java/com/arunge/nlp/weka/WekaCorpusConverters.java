@@ -1,22 +1,62 @@
 package com.arunge.nlp.weka;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.arunge.nlp.corpus.Corpus;
 import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.corpus.SparseVector;
 import com.arunge.nlp.vocab.CountingNGramIndexer;
 import com.arunge.nlp.vocab.NGramIndexer;
 import com.arunge.nlp.vocab.Vocabulary;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.SparseInstance;
 
+/**
+ *
+ *<p>Converts corpora, their vocabularies and their documents to Weka {@link Attribute}s and {@link Instance}s.
+ *
+ *   The n-gram attributes of a vocabulary file can be loaded with {@link #loadNgramVocabAttributes(File)}, which
+ *   builds them once, caches their names in a file next to the vocabulary and shares the attributes of the most 
+ *   recently used vocabularies within the JVM, so repeated training runs and evaluations on the same vocabulary 
+ *   do not rebuild them.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
 public class WekaCorpusConverters {
 
+    private static Logger LOG = LoggerFactory.getLogger(WekaCorpusConverters.class);
+    
+    private static final String ATTRIBUTE_CACHE_SUFFIX = ".attrs";
+    private static final int ATTRIBUTE_CACHE_VERSION = 1;
+    
+    private static final int MAX_SHARED_VOCABULARIES = 4;
+    
+    private static final Cache<String, NgramAttributes> SHARED_NGRAM_ATTRIBUTES = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SHARED_VOCABULARIES)
+            .build();
+
     /**
      * Create a list of {@link Attribute}s from a {@link Vocabulary} for use in creating instances from a {@link Corpus}.
      * @param vocab The corpus <code>Vocabulary</code> containing all words that should be turned into <code>Attribute</code>s.
@@ -33,55 +73,261 @@ public class WekaCorpusConverters {
         return attributes;
     }
     
+    /**
+     * Create one numeric {@link Attribute} per n-gram in the indexer, named by joining the words of the n-gram with underscores.
+     * @param indexer
+     * @return
+     */
     public static ArrayList<Attribute> createNgramVocabAttributes(NGramIndexer indexer) {
-        ArrayList<Attribute> attributes = new ArrayList<>();
+        ArrayList<Attribute> attributes = new ArrayList<>(indexer.size());
+        StringBuilder label = new StringBuilder();
         for(int i = 0; i < indexer.size(); i++) {
-            String[] key = indexer.getNgram(i);
-            String label = Arrays.stream(key).reduce("",  (a, b) -> {
-                if(a.isEmpty()) {
-                    return b;
-                } else if(b.isEmpty()) {
-                    return a;
-                } else {
-                    return a + "_" + b;
-                }
-            });
-            attributes.add(new Attribute(label));
+            label.setLength(0);
+            appendNgramLabel(label, indexer.getNgram(i));
+            attributes.add(new Attribute(label.toString()));
         }
         return attributes;
     }
+    
+    /**
+     * Joins the non-empty words of an n-gram with underscores.
+     * @param sb
+     * @param ngram
+     */
+    public static void appendNgramLabel(StringBuilder sb, String[] ngram) {
+        boolean first = true;
+        for(String word : ngram) {
+            if(word == null || word.isEmpty()) {
+                continue;
+            }
+            if(!first) {
+                sb.append('_');
+            }
+            sb.append(word);
+            first = false;
+        }
+    }
+    
+    /**
+     * Returns the n-gram attributes of the {@link CountingNGramIndexer} stored in the vocabulary file, as created by
+     * {@link #createNgramVocabAttributes(NGramIndexer)}.<p>
+     * 
+     * The attribute names are cached in a file next to the vocabulary file, and the attributes themselves are shared
+     * by all callers in the JVM until the vocabulary file changes. Attributes are kept for the few most recently
+     * loaded vocabularies only, so loading many vocabularies does not retain all of their attributes. The returned list cannot be modified; copy it to
+     * add further attributes. The attributes are numeric, so the same attributes can be used by multiple
+     * <code>Instances</code> as long as they keep the same positions.
+     * @param vocabFile
+     * @return
+     * @throws IOException
+     */
+    public static List<Attribute> loadNgramVocabAttributes(File vocabFile) throws IOException {
+        String key = vocabFile.getCanonicalPath();
+        long lastModified = vocabFile.lastModified();
+        long length = vocabFile.length();
+        try {
+            return SHARED_NGRAM_ATTRIBUTES.asMap().compute(key, (k, cached) -> {
+                if(cached != null && cached.lastModified == lastModified && cached.length == length) {
+                    return cached;
+                }
+                try {
+                    return new NgramAttributes(lastModified, length, loadNgramAttributeNames(vocabFile, lastModified, length));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).attributes;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private static List<String> loadNgramAttributeNames(File vocabFile, long lastModified, long length) throws IOException {
+        File cacheFile = new File(vocabFile.getPath() + ATTRIBUTE_CACHE_SUFFIX);
+        if(cacheFile.exists()) {
+            List<String> names = readAttributeCache(cacheFile, lastModified, length);
+            if(names != null) {
+                LOG.info("Loaded {} n-gram attribute names from {}", names.size(), cacheFile);
+                return names;
+            }
+        }
+        LOG.info("Building n-gram attributes from vocabulary {}", vocabFile);
+        NGramIndexer indexer = CountingNGramIndexer.read(vocabFile);
+        List<String> names = new ArrayList<>(indexer.size());
+        StringBuilder label = new StringBuilder();
+        for(int i = 0; i < indexer.size(); i++) {
+            label.setLength(0);
+            appendNgramLabel(label, indexer.getNgram(i));
+            names.add(label.toString());
+        }
+        try {
+            writeAttributeCache(cacheFile, lastModified, length, names);
+        } catch (IOException e) {
+            LOG.warn("Unable to write n-gram attribute cache {}", cacheFile);
+        }
+        return names;
+    }
+    
+    /**
+     * Reads the attribute names from the cache file, or returns null if the cache was written for a different
+     * version of the vocabulary file.
+     */
+    private static List<String> readAttributeCache(File cacheFile, long lastModified, long length) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 1 << 16))) {
+            if(in.readInt() != ATTRIBUTE_CACHE_VERSION || in.readLong() != lastModified || in.readLong() != length) {
+                return null;
+            }
+            int size = in.readInt();
+            List<String> names = new ArrayList<>(size);
+            for(int i = 0; i < size; i++) {
+                names.add(in.readUTF());
+            }
+            return names;
+        }
+    }
+    
+    private static void writeAttributeCache(File cacheFile, long lastModified, long length, List<String> names) throws IOException {
+        //Written to a temporary file first so concurrent readers never see a partial cache
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(ATTRIBUTE_CACHE_VERSION);
+            out.writeLong(lastModified);
+            out.writeLong(length);
+            out.writeInt(names.size());
+            for(String name : names) {
+                out.writeUTF(name);
+            }
+        }
+        Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
         
     /**
-     * Create a Weka {@link Instance} from a {@link CorpusDocument}. If the document specifies a label, it will be added to the end of the attribute list.
+     * Create a Weka {@link Instance} from a {@link CorpusDocument}, as in {@link #convert(CorpusDocument, int, List, boolean)}.
      * @param doc The document to process
      * @param totalVocabAttrs The total number of vocabulary attributes for all n-gram orders
      * @param indexer The n-gram indexer
-     * @param vocabAttrIndices Map of ngram order --> list of vocab attributes
      * @param attributes Complete list of all attributes.
      * @return
+     * @deprecated The indexer is not used; use {@link #convert(CorpusDocument, int, List, boolean)} instead.
      */
+    @Deprecated
     public static Instance convert(CorpusDocument doc, int totalVocabAttrs, NGramIndexer indexer, 
             List<Attribute> attributes, boolean includeId) { 
-        double[] values = new double[attributes.size()];
-
-        for(int i = 1; i <= doc.getOrder(); i++) {
-            Map<Integer, Double> docNgrams = doc.getNgrams(i);
-            for(Integer k : docNgrams.keySet()) {
-                values[k] = docNgrams.get(k);
+        return convert(doc, totalVocabAttrs, attributes, includeId);
+    }
+    
+    /**
+     * Create a Weka {@link Instance} from a {@link CorpusDocument}. If the document specifies a label, it will be added to the end of the attribute list.
+     * 
+     * The instance is built directly from the sorted n-gram and feature vectors of the document, so the work done
+     * is proportional to the number of non-zero values in the document rather than the number of attributes.
+     * @param doc The document to process
+     * @param totalVocabAttrs The total number of vocabulary attributes for all n-gram orders
+     * @param attributes Complete list of all attributes.
+     * @param includeId
+     * @return
+     */
+    public static Instance convert(CorpusDocument doc, int totalVocabAttrs, List<Attribute> attributes, boolean includeId) { 
+        int maxValues = countValues(doc) + 1;
+        int[] indices = new int[maxValues];
+        double[] values = new double[maxValues];
+        int n = collectValues(doc, totalVocabAttrs, indices, values);
+        String label = doc.getLabel();
+        if(label != null && !label.isEmpty()) {
+            Attribute classAttr = attributes.get(attributes.size() - 1);
+            int labelIndex = classAttr.indexOfValue(label);
+            if(labelIndex < 0) {
+                throw new IllegalArgumentException(String.format("Label %s of document %s is not a value of the class attribute", label, doc.getDocId()));
             }
+            indices[n] = attributes.size() - 1;
+            values[n++] = labelIndex;
         }
-        Map<Integer, Double> docFeats = doc.getFeatures();
-        for(int featIndex : docFeats.keySet()) {
-            values[totalVocabAttrs + featIndex] = docFeats.get(featIndex);
+        if(n < maxValues) {
+            indices = Arrays.copyOf(indices, n);
+            values = Arrays.copyOf(values, n);
         }
-        Instance instance = new SparseInstance(1.0, values);
+        Instance instance = new SparseInstance(1.0, values, indices, attributes.size());
         if(includeId) { 
             instance.setValue(attributes.get(attributes.size() - 2), doc.getDocId());
         }
-        if(doc.getLabel() != null && !doc.getLabel().isEmpty()) {
-            instance.setValue(attributes.get(attributes.size() - 1), doc.getLabel());
-        }
         return instance;
     }
     
+    /**
+     * Returns the maximum number of values {@link #collectValues(CorpusDocument, int, int[], double[])} writes for the document.
+     */
+    static int countValues(CorpusDocument doc) {
+        int count = doc.getFeatures().size();
+        for(int i = 1; i <= doc.getOrder(); i++) {
+            count += doc.getNumNgrams(i);
+        }
+        return count;
+    }
+    
+    /**
+     * Writes the attribute indices and values of the non-zero n-grams and features of the document in ascending
+     * attribute order, with the features following the vocabulary attributes. Returns the number of values written.
+     */
+    static int collectValues(CorpusDocument doc, int totalVocabAttrs, int[] indices, double[] values) {
+        SparseVector[] ngrams = new SparseVector[doc.getOrder()];
+        for(int i = 0; i < ngrams.length; i++) {
+            ngrams[i] = doc.getNgramVector(i + 1);
+        }
+        int n = mergeNgrams(ngrams, indices, values);
+        SparseVector features = doc.getFeatureVector();
+        for(int pos = 0; pos < features.size(); pos++) {
+            double value = features.valueAt(pos);
+            if(value != 0.0) {
+                indices[n] = totalVocabAttrs + features.indexAt(pos);
+                values[n++] = value;
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Merges the non-zero values of the n-gram vectors of each order, which share one index space, into indices and
+     * values in ascending index order. Returns the number of values written.
+     */
+    private static int mergeNgrams(SparseVector[] ngrams, int[] indices, double[] values) {
+        int[] positions = new int[ngrams.length];
+        int n = 0;
+        while(true) {
+            int next = -1;
+            for(int i = 0; i < ngrams.length; i++) {
+                if(positions[i] < ngrams[i].size() && (next < 0 || ngrams[i].indexAt(positions[i]) < ngrams[next].indexAt(positions[next]))) {
+                    next = i;
+                }
+            }
+            if(next < 0) {
+                return n;
+            }
+            int index = ngrams[next].indexAt(positions[next]);
+            double value = ngrams[next].valueAt(positions[next]++);
+            if(n > 0 && indices[n - 1] == index) {
+                //Indices shared between orders keep the value of the highest order
+                values[n - 1] = value;
+            } else if(value != 0.0) {
+                indices[n] = index;
+                values[n++] = value;
+            }
+        }
+    }
+    
+    private static class NgramAttributes {
+        
+        final long lastModified;
+        final long length;
+        final List<Attribute> attributes;
+        
+        NgramAttributes(long lastModified, long length, List<String> names) {
+            this.lastModified = lastModified;
+            this.length = length;
+            List<Attribute> attributes = new ArrayList<>(names.size());
+            for(String name : names) {
+                attributes.add(new Attribute(name));
+            }
+            this.attributes = Collections.unmodifiableList(attributes);
+        }
+    }
+    
 }
@@ -4,18 +4,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arunge.nlp.api.FeatureDescriptor;
+import com.arunge.nlp.api.FeatureIndexer;
 import com.arunge.nlp.corpus.Corpus;
 import com.arunge.nlp.corpus.CorpusDocument;
 import com.arunge.nlp.corpus.NGramCorpus;
+import com.arunge.nlp.corpus.io.ColumnarCorpusReader;
 import com.arunge.nlp.vocab.CountingNGramIndexer;
 
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.AggregateableEvaluation;
 import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.functions.LibLINEAR;
 import weka.classifiers.functions.LibSVM;
@@ -43,6 +52,8 @@ public class WekaCorpusModelBuilder {
     
     private static Logger LOG = LoggerFactory.getLogger(WekaCorpusModelBuilder.class);
     
+    private static final String CLASS_ATTRIBUTE = "patent_class_label";
+    
     private File vocabFile;
     private File corpusFile;
     private Instances instances;
@@ -51,6 +62,16 @@ public class WekaCorpusModelBuilder {
     private boolean includeIds;
     
     
+    /**
+     * Creates a builder over a corpus and its vocabulary. The corpus file is either a corpus serialized by
+     * {@link Corpus#export(String, String)} or a directory written by {@link Corpus#exportColumnar(File)}, in which
+     * case {@link #saveInstances(File)} and {@link #saveLibSvm(File)} stream the documents and use the vocabulary
+     * stored in the directory.
+     * @param vocabFile
+     * @param corpusFile
+     * @param type
+     * @param includeIds
+     */
     public WekaCorpusModelBuilder(File vocabFile, File corpusFile, CorpusType type, boolean includeIds) {
         this.vocabFile = vocabFile;
         this.corpusFile = corpusFile;
@@ -66,6 +87,20 @@ public class WekaCorpusModelBuilder {
         this.includeIds = includeIds;
     }
     
+    /**
+     * Creates a builder over instances that are already in memory. The class index of the instances must be set.
+     * @param instances
+     * @param includeIds
+     */
+    public WekaCorpusModelBuilder(Instances instances, boolean includeIds) {
+        if(instances.classIndex() < 0) {
+            throw new IllegalArgumentException("The class index of the instances must be set");
+        }
+        this.instances = instances;
+        this.type = CorpusType.ARFF;
+        this.includeIds = includeIds;
+    }
+    
     public Classifier trainClassifier(WekaModelType modelType) throws Exception {
         switch(modelType) {
         case LIBSVM_LINEAR:
@@ -85,6 +120,20 @@ public class WekaCorpusModelBuilder {
         }
     }
     
+    /**
+     * Trains a classifier of the configured type and options on all instances.
+     * @param config
+     * @return
+     * @throws Exception
+     */
+    public Classifier trainClassifier(WekaModelConfig config) throws Exception {
+        if(instances == null) {
+            instances = loadInstances();
+        }
+        LOG.info("Training classifier {}", config);
+        return trainClassifier(createClassifier(config));
+    }
+    
     private Classifier trainClassifier(Classifier classifier) throws Exception {
         if(instances == null) {
             instances = loadInstances();
@@ -93,12 +142,31 @@ public class WekaCorpusModelBuilder {
         return classifier;
     }
     
-    public Classifier trainNaiveBayes() throws Exception {
-        if(instances == null) {
-            instances = loadInstances();
+    /**
+     * Creates an untrained classifier of the configured type and options. When ids are included, the classifier 
+     * is wrapped in a filter that removes the id attribute before training and classification.
+     */
+    private Classifier createClassifier(WekaModelConfig config) throws Exception {
+        AbstractClassifier classifier;
+        switch(config.getType()) {
+        case LIBSVM_LINEAR:
+        case LIBSVM_POLYNOMIAL:
+        case LIBSVM_RBF:
+            classifier = new LibSVM();
+            break;
+        case LIBLIN_PRIMAL:
+            classifier = new LibLINEAR();
+            break;
+        case NAIVE_BAYES:
+            classifier = new NaiveBayes();
+            break;
+        case J48:
+            classifier = new J48();
+            break;
+        default:
+            throw new RuntimeException("Unrecognized weka model type");
         }
-        NaiveBayes classifier = new NaiveBayes();
-        LOG.info("Training Naive Bayes classifier");
+        classifier.setOptions(config.getOptions());
         if(includeIds) { 
             Remove rm = new Remove();
             //The remove filter indexes attributes starting at 1, so really this removes the attribute label @ classIndex - 1
@@ -106,80 +174,146 @@ public class WekaCorpusModelBuilder {
             FilteredClassifier filtered = new FilteredClassifier();
             filtered.setFilter(rm);
             filtered.setClassifier(classifier);
-            return trainClassifier(filtered);
+            return filtered;
         }
-        return trainClassifier(classifier);
-        
+        return classifier;
+    }
+    
+    public Classifier trainNaiveBayes() throws Exception {
+        if(instances == null) {
+            instances = loadInstances();
+        }
+        LOG.info("Training Naive Bayes classifier");
+        return trainClassifier(createClassifier(new WekaModelConfig(WekaModelType.NAIVE_BAYES)));
     }
     
     public Classifier trainJ48() throws Exception {
         if(instances == null) {
             instances = loadInstances();
         }
-        String[] options = new String[]{"-C", "0.25", "-M", "5", "-doNotMakeSplitPointActualValue"};
-        J48 classifier = new J48();
-        classifier.setOptions(options);
         LOG.info("Training J48 classifier");
-        Remove rm = new Remove();
-        //The remove filter indexes attributes starting at 1, so really this removes the attribute label @ classIndex - 1
-        rm.setAttributeIndices("" + (instances.classIndex()));
-        FilteredClassifier filtered = new FilteredClassifier();
-        filtered.setFilter(rm);
-        filtered.setClassifier(classifier);
-        return trainClassifier(filtered);
+        return trainClassifier(createClassifier(new WekaModelConfig(WekaModelType.J48)));
     }
     
-    
-    
     public Classifier trainSVM(SVMKernelType kernelType) throws Exception {
         if(instances == null) {
             instances = loadInstances();
         }
-        String[] options = null;
+        WekaModelType modelType = null;
         switch(kernelType) {
         case LINEAR:
-            options = new String[] {"-S", "0", "-K", "0", "-D", "2", "-G", "0.0", "-R", "0.0", "-N", "0.5", "-M", "40.0", "-C", "1000.0", "-E", "0.001", "-P", "0.1", "-B"};
+            modelType = WekaModelType.LIBSVM_LINEAR;
             break;
         case POLYNOMIAL:
-            options = new String[] {"-S", "0", "-K", "1", "-D", "2", "-G", "1", "-R", "0.0", "-N", "0.5", "-M", "40.0", "-C", "10000.0", "-E", "0.001", "-P", "0.1", "-B"};
+            modelType = WekaModelType.LIBSVM_POLYNOMIAL;
             break;
         case RADIAL:
-            options = new String[] {"-S", "0", "-K", "2", "-D", "2", "-G", "0.1", "-R", "0.0", "-N", "0.5", "-M", "40.0", "-C", "1000.0", "-E", "0.001", "-P", "0.1", "-B"};
+            modelType = WekaModelType.LIBSVM_RBF;
             break;
         }
-        LibSVM svm = new LibSVM();
-        svm.setOptions(options);
         LOG.info("Training SVM classifier with {} kernel", kernelType.name());
-        if(includeIds) { 
-            Remove rm = new Remove();
-            //The remove filter indexes attributes starting at 1, so really this removes the attribute label @ classIndex - 1
-            rm.setAttributeIndices("" + (instances.classIndex()));
-            FilteredClassifier filtered = new FilteredClassifier();
-            filtered.setFilter(rm);
-            filtered.setClassifier(svm);
-            return trainClassifier(filtered);
-        }
-        return trainClassifier(svm);
+        return trainClassifier(createClassifier(new WekaModelConfig(modelType)));
     }
     
     public Classifier trainLibLinear() throws Exception {
         if(instances == null) {
             instances = loadInstances();
         }
-        LibLINEAR libLinear = new LibLINEAR();
-        String[] options = new String[] {"-S", "0", "-C", "1000.0", "-E", "0.001", "-B", "1.0", "-P", "-L", "0.1", "-I", "1000"};
-        libLinear.setOptions(options);
         LOG.info("Training LibLinear SVM classifier");
-        if(includeIds) { 
-            Remove rm = new Remove();
-            //The remove filter indexes attributes starting at 1, so really this removes the attribute label @ classIndex - 1
-            rm.setAttributeIndices("" + (instances.classIndex()));
-            FilteredClassifier filtered = new FilteredClassifier();
-            filtered.setFilter(rm);
-            filtered.setClassifier(libLinear);
-            return trainClassifier(filtered);
+        return trainClassifier(createClassifier(new WekaModelConfig(WekaModelType.LIBLIN_PRIMAL)));
+    }
+    
+    /**
+     * Cross-validates each configuration on the instances, training and evaluating the folds of all configurations 
+     * in parallel on a pool of the provided number of threads. The instances are loaded once and shared read-only by 
+     * all threads; each fold builds its own training and test split. Results are returned in the order of the 
+     * configurations, and a configuration whose training fails is reported as failed without stopping the sweep.
+     * @param configs
+     * @param folds Number of cross-validation folds, at least 2.
+     * @param threads
+     * @param seed Seed used to shuffle the instances into folds, so that all configurations are evaluated on the same folds.
+     * @return
+     * @throws Exception
+     */
+    public List<WekaSweepResult> sweep(List<WekaModelConfig> configs, int folds, int threads, long seed) throws Exception {
+        if(folds < 2 || threads < 1) {
+            throw new IllegalArgumentException(String.format("Invalid sweep configuration: %d folds, %d threads", folds, threads));
+        }
+        if(instances == null) {
+            instances = loadInstances();
+        }
+        Instances data = new Instances(instances);
+        data.randomize(new Random(seed));
+        if(data.classAttribute().isNominal()) {
+            data.stratify(folds);
         }
-        return trainClassifier(libLinear);
+        LOG.info("Cross-validating {} configurations with {} folds on {} threads", configs.size(), folds, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "weka-model-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<List<Future<FoldResult>>> futures = new ArrayList<>(configs.size());
+            for(WekaModelConfig config : configs) {
+                List<Future<FoldResult>> configFutures = new ArrayList<>(folds);
+                for(int fold = 0; fold < folds; fold++) {
+                    int f = fold;
+                    configFutures.add(pool.submit(() -> runFold(data, config, folds, f, seed)));
+                }
+                futures.add(configFutures);
+            }
+            List<WekaSweepResult> results = new ArrayList<>(configs.size());
+            for(int i = 0; i < configs.size(); i++) {
+                WekaSweepResult result = collectFolds(configs.get(i), folds, futures.get(i));
+                LOG.info("{}", result);
+                results.add(result);
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private FoldResult runFold(Instances data, WekaModelConfig config, int folds, int fold, long seed) throws Exception {
+        Instances train = data.trainCV(folds, fold, new Random(seed));
+        Instances test = data.testCV(folds, fold);
+        Classifier classifier = createClassifier(config);
+        long start = System.nanoTime();
+        classifier.buildClassifier(train);
+        long trained = System.nanoTime();
+        Evaluation evaluation = new Evaluation(train);
+        evaluation.evaluateModel(classifier, test);
+        long evaluated = System.nanoTime();
+        return new FoldResult(evaluation, trained - start, evaluated - trained);
+    }
+    
+    private WekaSweepResult collectFolds(WekaModelConfig config, int folds, List<Future<FoldResult>> futures) throws InterruptedException {
+        AggregateableEvaluation aggregate = null;
+        long trainNanos = 0;
+        long evalNanos = 0;
+        for(Future<FoldResult> future : futures) {
+            try {
+                FoldResult fold = future.get();
+                if(aggregate == null) {
+                    aggregate = new AggregateableEvaluation(fold.evaluation);
+                }
+                aggregate.aggregate(fold.evaluation);
+                trainNanos += fold.trainNanos;
+                evalNanos += fold.evalNanos;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (ExecutionException e) {
+                LOG.error("Error cross-validating " + config, e.getCause());
+                for(Future<FoldResult> other : futures) {
+                    other.cancel(true);
+                }
+                return new WekaSweepResult(config, folds, e.getCause());
+            } catch (Exception e) {
+                return new WekaSweepResult(config, folds, e);
+            }
+        }
+        return new WekaSweepResult(config, folds, aggregate, trainNanos / 1000000, evalNanos / 1000000);
     }
     
     public static Classifier loadClassifier(String path) throws Exception {
@@ -194,7 +328,30 @@ public class WekaCorpusModelBuilder {
         SerializationHelper.write(path, classifier);
     }
     
+    /**
+     * Saves the instances to an arff file. N-gram corpora that have not already been loaded as instances are
+     * streamed to a sparse arff file one document at a time by a {@link SparseCorpusExporter}.
+     * 
+     * If the corpus file is a directory written by {@link Corpus#exportColumnar(File)}, the documents are read from
+     * it through a {@link ColumnarCorpusReader} and the vocabulary is memory mapped, so memory use is bounded by the
+     * attribute header and a single document, regardless of the number of documents. A corpus serialized by
+     * {@link Corpus#export(String, String)} can only be deserialized as a whole, and is held in memory while
+     * it is written.
+     * @param arffOutput
+     * @throws IOException
+     */
     public void saveInstances(File arffOutput) throws IOException {
+        if(instances == null && type == CorpusType.NGRAM) {
+            LOG.info("Streaming corpus to sparse arff file");
+            if(corpusFile.isDirectory()) {
+                ColumnarCorpusReader reader = ColumnarCorpusReader.open(corpusFile);
+                createExporter(reader).writeArff(reader, arffOutput);
+            } else {
+                NGramCorpus corpus = loadNgramCorpus();
+                createExporter(corpus).writeArff(corpus, arffOutput);
+            }
+            return;
+        }
         if(instances == null) {
             instances = loadInstances();
         }
@@ -209,6 +366,47 @@ public class WekaCorpusModelBuilder {
         saveInstances(new File(arffOutput));
     }
     
+    /**
+     * Streams an n-gram corpus to a LibSVM/SVMlight file for use with external trainers. Memory use is bounded as
+     * described in {@link #saveInstances(File)}.
+     * @param output
+     * @throws IOException
+     */
+    public void saveLibSvm(File output) throws IOException {
+        if(type != CorpusType.NGRAM) {
+            throw new UnsupportedOperationException("LibSVM export is only supported for n-gram corpora");
+        }
+        if(corpusFile.isDirectory()) {
+            ColumnarCorpusReader reader = ColumnarCorpusReader.open(corpusFile);
+            createExporter(reader).writeLibSvm(reader, output);
+        } else {
+            NGramCorpus corpus = loadNgramCorpus();
+            createExporter(corpus).writeLibSvm(corpus, output);
+        }
+    }
+    
+    private NGramCorpus loadNgramCorpus() throws IOException {
+        LOG.warn("Loading serialized corpus {} into memory; export it with Corpus.exportColumnar to stream it instead", corpusFile);
+        return (NGramCorpus) Corpus.loadCorpus(corpusFile);
+    }
+    
+    private SparseCorpusExporter createExporter(NGramCorpus corpus) throws IOException {
+        SparseCorpusExporter exporter = new SparseCorpusExporter(CountingNGramIndexer.read(vocabFile), corpus.getFeatures(), 
+                new ArrayList<>(corpus.getClassLabels()));
+        return configure(exporter);
+    }
+    
+    private SparseCorpusExporter createExporter(ColumnarCorpusReader reader) throws IOException {
+        SparseCorpusExporter exporter = new SparseCorpusExporter(reader.openNgramIndexer(), reader.getFeatures(), 
+                new ArrayList<>(reader.getClassLabels()));
+        return configure(exporter);
+    }
+    
+    private SparseCorpusExporter configure(SparseCorpusExporter exporter) {
+        exporter.withClassAttribute(CLASS_ATTRIBUTE);
+        return includeIds ? exporter.includeIds() : exporter;
+    }
+    
     private Instances loadInstances() throws IOException {
         if(instances == null) {
             switch(type) { 
@@ -242,26 +440,26 @@ public class WekaCorpusModelBuilder {
     }
     
     private Instances buildInstancesFromNgramCorpus() throws IOException {
-        CountingNGramIndexer indexer = CountingNGramIndexer.read(vocabFile);
-        ArrayList<Attribute> ngramAttrs = WekaCorpusConverters.createNgramVocabAttributes(indexer);
-        ArrayList<Attribute> attributes = new ArrayList<>(ngramAttrs);
+        ArrayList<Attribute> attributes = new ArrayList<>(WekaCorpusConverters.loadNgramVocabAttributes(vocabFile));
         int totalVocabAttrs = attributes.size();
         NGramCorpus corpus = (NGramCorpus) Corpus.loadCorpus(corpusFile);
-        for(Map.Entry<FeatureDescriptor, Integer> entry : corpus.getFeatures()) {
-            attributes.add(new Attribute(entry.getKey().getName()));
+        FeatureIndexer features = corpus.getFeatures();
+        //Feature values are stored at totalVocabAttrs + feature index, so the attributes must be in index order
+        for(int i = 0; i < features.size(); i++) {
+            attributes.add(new Attribute(features.getFeature(i).getName()));
         }
         ArrayList<String> nullList = null;
         if(includeIds) {
             Attribute idAttr = new Attribute("__id", nullList);
             attributes.add(idAttr);
         }
-        Attribute classAttr = new Attribute("patent_class_label", new ArrayList<>(corpus.getClassLabels()));
+        Attribute classAttr = new Attribute(CLASS_ATTRIBUTE, new ArrayList<>(corpus.getClassLabels()));
         attributes.add(classAttr);
         Instances instances = new Instances("Corpus", attributes, corpus.size());
         instances.setClassIndex(attributes.size() - 1);
         int docsRead = 0;
         for(CorpusDocument doc : corpus) {
-            instances.add(WekaCorpusConverters.convert((CorpusDocument) doc, totalVocabAttrs, indexer, attributes, includeIds));
+            instances.add(WekaCorpusConverters.convert(doc, totalVocabAttrs, attributes, includeIds));
             docsRead += 1;
             if(docsRead % 1000 == 0) { 
                 LOG.info("Processed {} corpus entries.", docsRead);
@@ -271,6 +469,17 @@ public class WekaCorpusModelBuilder {
         return instances;
     }
     
-
+    private static class FoldResult {
+        
+        final Evaluation evaluation;
+        final long trainNanos;
+        final long evalNanos;
+        
+        FoldResult(Evaluation evaluation, long trainNanos, long evalNanos) {
+            this.evaluation = evaluation;
+            this.trainNanos = trainNanos;
+            this.evalNanos = evalNanos;
+        }
+    }
     
 }
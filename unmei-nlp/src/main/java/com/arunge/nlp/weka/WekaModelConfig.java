@@ -0,0 +1,113 @@
+package com.arunge.nlp.weka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ *<p>A {@link WekaModelType} together with the command line options used to train it. Configurations start from the
+ *   default options used by {@link WekaCorpusModelBuilder} for the model type, and individual options can be
+ *   overridden with {@link #withOption(String, String)}, e.g. to build a grid of configurations for
+ *   {@link WekaCorpusModelBuilder#sweep(List, int, int, long)}.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class WekaModelConfig {
+
+    private final WekaModelType type;
+    private final String[] options;
+
+    public WekaModelConfig(WekaModelType type) {
+        this(type, defaultOptions(type));
+    }
+
+    public WekaModelConfig(WekaModelType type, String...options) {
+        this.type = type;
+        this.options = options.clone();
+    }
+
+    /**
+     * Returns the options {@link WekaCorpusModelBuilder} uses to train the provided model type.
+     * @param type
+     * @return
+     */
+    public static String[] defaultOptions(WekaModelType type) {
+        switch(type) {
+        case LIBSVM_LINEAR:
+            return new String[] {"-S", "0", "-K", "0", "-D", "2", "-G", "0.0", "-R", "0.0", "-N", "0.5", "-M", "40.0", "-C", "1000.0", "-E", "0.001", "-P", "0.1", "-B"};
+        case LIBSVM_POLYNOMIAL:
+            return new String[] {"-S", "0", "-K", "1", "-D", "2", "-G", "1", "-R", "0.0", "-N", "0.5", "-M", "40.0", "-C", "10000.0", "-E", "0.001", "-P", "0.1", "-B"};
+        case LIBSVM_RBF:
+            return new String[] {"-S", "0", "-K", "2", "-D", "2", "-G", "0.1", "-R", "0.0", "-N", "0.5", "-M", "40.0", "-C", "1000.0", "-E", "0.001", "-P", "0.1", "-B"};
+        case LIBLIN_PRIMAL:
+            return new String[] {"-S", "0", "-C", "1000.0", "-E", "0.001", "-B", "1.0", "-P", "-L", "0.1", "-I", "1000"};
+        case J48:
+            return new String[] {"-C", "0.25", "-M", "5", "-doNotMakeSplitPointActualValue"};
+        case NAIVE_BAYES:
+            return new String[0];
+        default:
+            throw new RuntimeException("Unrecognized weka model type");
+        }
+    }
+
+    /**
+     * Creates one configuration of the model type per value of the option, with all other options at their defaults.
+     * @param type
+     * @param flag
+     * @param values
+     * @return
+     */
+    public static List<WekaModelConfig> grid(WekaModelType type, String flag, String...values) {
+        List<WekaModelConfig> configs = new ArrayList<>(values.length);
+        WekaModelConfig base = new WekaModelConfig(type);
+        for(String value : values) {
+            configs.add(base.withOption(flag, value));
+        }
+        return configs;
+    }
+
+    /**
+     * Returns a copy of this configuration with the value of the option replaced, or the option added if it is not
+     * already set. A null value sets an option that takes no value.
+     * @param flag
+     * @param value
+     * @return
+     */
+    public WekaModelConfig withOption(String flag, String value) {
+        List<String> updated = new ArrayList<>(Arrays.asList(options));
+        int pos = updated.indexOf(flag);
+        if(pos < 0) {
+            updated.add(flag);
+            if(value != null) {
+                updated.add(value);
+            }
+        } else if(value != null) {
+            if(pos + 1 < updated.size() && !isFlag(updated.get(pos + 1))) {
+                updated.set(pos + 1, value);
+            } else {
+                updated.add(pos + 1, value);
+            }
+        }
+        return new WekaModelConfig(type, updated.toArray(new String[updated.size()]));
+    }
+
+    private static boolean isFlag(String option) {
+        return option.length() > 1 && option.charAt(0) == '-' && !Character.isDigit(option.charAt(1)) && option.charAt(1) != '.';
+    }
+
+    public WekaModelType getType() {
+        return type;
+    }
+
+    public String[] getOptions() {
+        return options.clone();
+    }
+
+    @Override
+    public String toString() {
+        return options.length == 0 ? type.name() : type.name() + " " + String.join(" ", options);
+    }
+
+}
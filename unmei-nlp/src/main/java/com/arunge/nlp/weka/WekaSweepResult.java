@@ -0,0 +1,107 @@
+package com.arunge.nlp.weka;
+
+import weka.classifiers.Evaluation;
+
+/**
+ *
+ *<p>The cross-validation result of one {@link WekaModelConfig} in a sweep run by
+ *   {@link WekaCorpusModelBuilder#sweep(java.util.List, int, int, long)}: the evaluation aggregated over all folds,
+ *   along with the total time spent training and evaluating the folds. If any fold failed, the result holds the
+ *   error instead of an evaluation.<p>
+ *
+ * @author Andrew Runge
+ *
+ */
+public class WekaSweepResult {
+
+    private final WekaModelConfig config;
+    private final int folds;
+    private final Evaluation evaluation;
+    private final long trainMillis;
+    private final long evalMillis;
+    private final Throwable error;
+
+    WekaSweepResult(WekaModelConfig config, int folds, Evaluation evaluation, long trainMillis, long evalMillis) {
+        this.config = config;
+        this.folds = folds;
+        this.evaluation = evaluation;
+        this.trainMillis = trainMillis;
+        this.evalMillis = evalMillis;
+        this.error = null;
+    }
+
+    WekaSweepResult(WekaModelConfig config, int folds, Throwable error) {
+        this.config = config;
+        this.folds = folds;
+        this.evaluation = null;
+        this.trainMillis = 0;
+        this.evalMillis = 0;
+        this.error = error;
+    }
+
+    public WekaModelConfig getConfig() {
+        return config;
+    }
+
+    public int getFolds() {
+        return folds;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns the evaluation aggregated over all folds, or null if the configuration failed.
+     * @return
+     */
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Returns the total time spent training the folds, summed over all threads.
+     * @return
+     */
+    public long getTrainMillis() {
+        return trainMillis;
+    }
+
+    /**
+     * Returns the total time spent evaluating the folds, summed over all threads.
+     * @return
+     */
+    public long getEvalMillis() {
+        return evalMillis;
+    }
+
+    public double getAccuracy() {
+        return evaluation == null ? Double.NaN : evaluation.pctCorrect();
+    }
+
+    public double getWeightedFMeasure() {
+        return evaluation == null ? Double.NaN : evaluation.weightedFMeasure();
+    }
+
+    public double getWeightedAreaUnderROC() {
+        return evaluation == null ? Double.NaN : evaluation.weightedAreaUnderROC();
+    }
+
+    public double getKappa() {
+        return evaluation == null ? Double.NaN : evaluation.kappa();
+    }
+
+    @Override
+    public String toString() {
+        if(isFailed()) {
+            return String.format("%s: failed (%s)", config, error);
+        }
+        return String.format("%s: accuracy %.2f%%, weighted F %.4f, weighted AUC %.4f, kappa %.4f, train %d ms, eval %d ms",
+                config, getAccuracy(), getWeightedFMeasure(), getWeightedAreaUnderROC(), getKappa(), trainMillis, evalMillis);
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.arunge.ingest.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.arunge.nlp.text.TextDocument;
+
+public class TestArchiveTextSources {
+
+    private static Path testDir;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        testDir = Files.createTempDirectory(Paths.get("src/test/resources/"), "tst");
+    }
+
+    @AfterClass
+    public static void teardown() throws IOException {
+        Files.delete(testDir);
+    }
+
+    @After
+    public void clearFiles() throws IOException {
+        for(File f : testDir.toFile().listFiles()) {
+            Files.delete(Paths.get(f.getAbsolutePath()));
+        }
+    }
+
+    @Test
+    public void testReadAhead() {
+        byte[] data = new byte[100000];
+        new Random(7).nextBytes(data);
+        try(InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), 1000, 3)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(data[0] & 0xff, in.read());
+            out.write(data[0]);
+            assertEquals(500, in.skip(500));
+            out.write(data, 1, 500);
+            byte[] buffer = new byte[777];
+            int n;
+            while((n = in.read(buffer, 0, buffer.length)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            assertTrue(Arrays.equals(data, out.toByteArray()));
+            assertEquals(-1, in.read());
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testJsonLines() {
+        try {
+            File file = testDir.resolve("docs.jsonl.gz").toFile();
+            try(Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file.toPath())), StandardCharsets.UTF_8)) {
+                writer.write("{\"id\": \"a\", \"text\": \"First document.\"}\n");
+                writer.write("{\"meta\": {\"tags\": [\"x\", \"}\"]}, \"text\": \"Line \\\"two\\\"\\nwith caf\\u00e9.\", \"id\": 2}\n");
+                writer.write("\n");
+                writer.write("{\"id\": \"c\"}\n");
+                writer.write("not json\n");
+                writer.write("{\"text\": \"No id.\", \"score\": -1.5e3, \"ok\": true}\n");
+            }
+            try(Stream<TextDocument> docs = new JsonLinesTextSource(file).getDocuments()) {
+                List<TextDocument> loaded = docs.collect(Collectors.toList());
+                assertEquals(3, loaded.size());
+                assertEquals("a", loaded.get(0).getId());
+                assertEquals("First document.", loaded.get(0).getText());
+                assertEquals("2", loaded.get(1).getId());
+                assertEquals("Line \"two\"\nwith café.", loaded.get(1).getText());
+                assertEquals("docs.jsonl.gz:6", loaded.get(2).getId());
+                assertEquals("No id.", loaded.get(2).getText());
+            }
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTar() {
+        try {
+            File file = testDir.resolve("docs.tar.gz").toFile();
+            StringBuilder longText = new StringBuilder();
+            for(int i = 0; i < 200; i++) {
+                longText.append("Sentence number ").append(i).append(". ");
+            }
+            try(OutputStream out = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+                writeTarEntry(out, "docs/", "", '5');
+                writeTarEntry(out, "docs/one.txt", "The first document.", '0');
+                writeTarEntry(out, "docs/notes.rtf", "Not a text file.", '0');
+                writeTarEntry(out, "docs/two.txt", longText.toString(), '0');
+                writeTarEntry(out, "docs/empty.txt", "", '0');
+                out.write(new byte[1024]);
+            }
+            try(Stream<TextDocument> docs = new TarTextSource(file, ".txt").getDocuments()) {
+                List<TextDocument> loaded = docs.collect(Collectors.toList());
+                assertEquals(Arrays.asList("docs/one.txt", "docs/two.txt", "docs/empty.txt"),
+                        loaded.stream().map(d -> d.getId()).collect(Collectors.toList()));
+                assertEquals("The first document.", loaded.get(0).getText());
+                assertEquals(longText.toString(), loaded.get(1).getText());
+                assertEquals("", loaded.get(2).getText());
+            }
+            try(Stream<TextDocument> docs = new TarTextSource(file).getDocuments()) {
+                assertEquals(4, docs.count());
+            }
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTarHeaderFormats() {
+        try {
+            File file = testDir.resolve("formats.tar").toFile();
+            try(OutputStream out = Files.newOutputStream(file.toPath())) {
+                writeTarEntry(out, "posix.txt", "long/path/to", "POSIX document.", "ustar\u000000");
+                //GNU headers keep the access and change times where POSIX headers keep the prefix
+                writeTarEntry(out, "gnu.txt", "13240577165", "GNU document.", "ustar  ");
+                out.write(new byte[1024]);
+            }
+            try(Stream<TextDocument> docs = new TarTextSource(file, ".txt").getDocuments()) {
+                assertEquals(Arrays.asList("long/path/to/posix.txt", "gnu.txt"),
+                        docs.map(d -> d.getId()).collect(Collectors.toList()));
+            }
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDelimited() {
+        try {
+            File file = testDir.resolve("docs.tsv").toFile();
+            try(Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+                writer.write("id\tlabel\ttext\n");
+                writer.write("1\tpos\tA good document.\n");
+                writer.write("2\tneg\tA bad document.\n");
+            }
+            try(Stream<TextDocument> docs = new DelimitedTextSource(file, "id", "text").getDocuments()) {
+                List<TextDocument> loaded = docs.collect(Collectors.toList());
+                assertEquals(2, loaded.size());
+                assertEquals("1", loaded.get(0).getId());
+                assertEquals("A good document.", loaded.get(0).getText());
+                assertEquals("A bad document.", loaded.get(1).getText());
+            }
+            try(Stream<TextDocument> docs = new DelimitedTextSource(file, "\t", "a", "c").withHeader("a\tb\tc").getDocuments()) {
+                assertEquals(Arrays.asList("id", "1", "2"), docs.map(d -> d.getId()).collect(Collectors.toList()));
+            }
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+    }
+
+    private void writeTarEntry(OutputStream out, String name, String content, char type) throws IOException {
+        writeTarEntry(out, name, "", content, type, "ustar\u000000");
+    }
+
+    private void writeTarEntry(OutputStream out, String name, String prefix, String content, String magic) throws IOException {
+        writeTarEntry(out, name, prefix, content, '0', magic);
+    }
+
+    private void writeTarEntry(OutputStream out, String name, String prefix, String content, char type, String magic) throws IOException {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        byte[] header = new byte[512];
+        putField(header, 0, name);
+        putField(header, 100, "0000644");
+        putField(header, 108, "0000000");
+        putField(header, 116, "0000000");
+        putField(header, 124, String.format("%011o", data.length));
+        putField(header, 136, String.format("%011o", 0));
+        header[156] = (byte) type;
+        putField(header, 257, magic);
+        putField(header, 345, prefix);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        int checksum = 0;
+        for(byte b : header) {
+            checksum += b & 0xff;
+        }
+        putField(header, 148, String.format("%06o", checksum));
+        out.write(header);
+        out.write(data);
+        out.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private void putField(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+}
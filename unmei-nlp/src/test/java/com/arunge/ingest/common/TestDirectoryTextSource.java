@@ -99,8 +99,47 @@ public class TestDirectoryTextSource {
         }
     }
     
+    @Test
+    public void testRecursivePrefetch() {
+        Path subDir = testDir.resolve("sub");
+        try {
+            Files.createDirectory(subDir);
+            Set<String> texts = new HashSet<>();
+            for(int i = 0; i < 20; i++) {
+                String text = "Test document " + i + ".";
+                createTempFile(i % 2 == 0 ? testDir : subDir, text, ".txt");
+                texts.add(text);
+            }
+            createTempFile(subDir, "Not a text file.", ".rtf");
+            DirectoryTextSource source = new DirectoryTextSource(testDir.toFile())
+                    .recursive()
+                    .withGlob("*.{txt,text}")
+                    .withPrefetch(2, 4);
+            try(Stream<TextDocument> docs = source.getDocuments()) {
+                List<String> loaded = docs.parallel().map(doc -> doc.getText()).collect(Collectors.toList());
+                assertEquals(texts.size(), loaded.size());
+                assertEquals(texts, new HashSet<>(loaded));
+            }
+            //Subdirectories are only included when recursing
+            try(Stream<TextDocument> docs = new DirectoryTextSource(testDir.toFile()).getDocuments()) {
+                assertEquals(10, docs.count());
+            }
+        } catch (IOException e) { 
+            fail("Threw exception: " + e.getMessage());
+        } finally {
+            for(File f : subDir.toFile().listFiles()) {
+                f.delete();
+            }
+            subDir.toFile().delete();
+        }
+    }
+    
     private void createTempFile(String content, String suffix) throws IOException {
-        Path temp = Files.createTempFile(testDir, "tst-", suffix);
+        createTempFile(testDir, content, suffix);
+    }
+    
+    private void createTempFile(Path dir, String content, String suffix) throws IOException {
+        Path temp = Files.createTempFile(dir, "tst-", suffix);
         try(BufferedWriter writer = new BufferedWriter(new FileWriter(temp.toFile()))){ 
             writer.write(content);
         }
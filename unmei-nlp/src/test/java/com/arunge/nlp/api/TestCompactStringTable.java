@@ -0,0 +1,87 @@
+package com.arunge.nlp.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+public class TestCompactStringTable {
+
+    @Test
+    public void testAddAndLookup() {
+        CompactStringTable table = new CompactStringTable();
+        assertEquals(0, table.add("this"));
+        assertEquals(1, table.add("is"));
+        assertEquals(2, table.add(""));
+        assertEquals(0, table.add("this"));
+        assertEquals(3, table.size());
+        assertEquals(1, table.get("is"));
+        assertEquals(2, table.get(""));
+        assertEquals(-1, table.get("a"));
+        assertEquals("this", table.getString(0));
+        assertEquals("", table.getString(2));
+        assertEquals(4, table.length(0));
+    }
+
+    @Test
+    public void testCharSequenceLookup() {
+        CompactStringTable table = new CompactStringTable();
+        table.add("vocabulary");
+        StringBuilder sb = new StringBuilder("vocab");
+        assertEquals(-1, table.get(sb));
+        sb.append("ulary");
+        assertEquals(0, table.get(sb));
+        sb.setLength(0);
+        sb.append("term");
+        assertEquals(1, table.add(sb));
+        sb.append("s");
+        assertEquals("term", table.getString(1));
+    }
+
+    @Test
+    public void testGrowth() {
+        CompactStringTable table = new CompactStringTable(4);
+        for(int i = 0; i < 10000; i++) {
+            assertEquals(i, table.add("word" + i));
+        }
+        assertEquals(10000, table.size());
+        for(int i = 0; i < 10000; i++) {
+            assertEquals(i, table.get("word" + i));
+            assertEquals("word" + i, table.getString(i));
+        }
+    }
+
+    @Test
+    public void testOutOfBounds() {
+        CompactStringTable table = new CompactStringTable();
+        table.add("word");
+        try {
+            table.getString(1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        CompactStringTable table = new CompactStringTable();
+        for(int i = 0; i < 100; i++) {
+            table.add("word" + i);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new ObjectOutputStream(baos).writeObject(table);
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        CompactStringTable deser = (CompactStringTable) in.readObject();
+        assertEquals(100, deser.size());
+        assertEquals(42, deser.get("word42"));
+        assertEquals(100, deser.add("new"));
+        assertEquals("new", deser.getString(100));
+        assertEquals(100, table.add("new"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.arunge.nlp.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.arunge.nlp.tokenization.CompiledTokenFilter;
+import com.arunge.nlp.tokenization.StopwordsFilter;
+import com.arunge.nlp.tokenization.TokenFilters.TokenFilter;
+
+public class TestCompiledTokenFilter {
+
+    private static final String[] SAMPLES = {"", "word", "Word", "THE", "the", "a1", "1,000", "...", "-", "--", "$5", "e-mail",
+            "café", "tab\tbed", "~", "don't", "abcdefghijklmnopqrstuvwxyz", "(", "a.b"};
+
+    @Test
+    public void testMatchesRegexFilters() {
+        Pattern number = Pattern.compile(".*[0-9]+.*");
+        Pattern punctuation = Pattern.compile("\\p{Punct}+");
+        Pattern ascii = Pattern.compile("[ -~]*");
+        StopwordsFilter stopwords = new StopwordsFilter(Arrays.asList("the", "a", "don't"));
+        TokenFilter compiled = CompiledTokenFilter.compile(Arrays.<TokenFilter>asList(
+                new CompiledTokenFilter().withMaxLength(20),
+                new CompiledTokenFilter().rejectNumbers(),
+                stopwords,
+                new CompiledTokenFilter().rejectPunctuation(),
+                new CompiledTokenFilter().requireAscii()));
+        for(String sample : SAMPLES) {
+            boolean expected = sample.length() <= 20
+                    && !number.matcher(sample).matches()
+                    && !Arrays.asList("the", "a", "don't").contains(sample.toLowerCase())
+                    && !punctuation.matcher(sample).matches()
+                    && ascii.matcher(sample).matches();
+            assertEquals(sample, expected, compiled.test(new Token(sample, 0, sample.length())));
+        }
+    }
+
+    @Test
+    public void testStopwords() {
+        StopwordsFilter stopwords = new StopwordsFilter(Arrays.asList("", "the", "and", "of", "Or"));
+        assertEquals(5, stopwords.size());
+        assertTrue(stopwords.contains("the"));
+        assertTrue(stopwords.contains("THE"));
+        assertTrue(stopwords.contains(new StringBuilder("aNd")));
+        assertTrue(stopwords.contains(""));
+        assertFalse(stopwords.contains("then"));
+        assertFalse(stopwords.contains("o"));
+        //Tokens are lowercased, but the stopwords are matched as given
+        assertFalse(stopwords.contains("Or"));
+        assertFalse(stopwords.contains("or"));
+    }
+
+    @Test
+    public void testOtherFilters() {
+        TokenFilter compiled = CompiledTokenFilter.compile(Arrays.<TokenFilter>asList(
+                new CompiledTokenFilter().rejectPunctuation(),
+                t -> !t.text().startsWith("x")));
+        assertTrue(compiled.test(new Token("word", 0, 4)));
+        assertFalse(compiled.test(new Token("xylophone", 0, 9)));
+        assertFalse(compiled.test(new Token("!", 0, 1)));
+    }
+}
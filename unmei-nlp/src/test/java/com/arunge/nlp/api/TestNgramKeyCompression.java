@@ -67,4 +67,10 @@ public class TestNgramKeyCompression {
             }
         }
         
+        @Test
+        public void testExtractOrder() {
+            assertEquals(1, NgramKeyCompression.extractOrder(NgramKeyCompression.generateKey(new int[] {123})));
+            assertEquals(2, NgramKeyCompression.extractOrder(NgramKeyCompression.generateBigramKey(123, 456)));
+            assertEquals(3, NgramKeyCompression.extractOrder(NgramKeyCompression.generateTrigramKey(123, 456, 789)));
+        }
 }
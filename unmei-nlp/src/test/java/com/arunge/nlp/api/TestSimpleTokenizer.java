@@ -0,0 +1,60 @@
+package com.arunge.nlp.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.arunge.nlp.processors.BasicNLPPreprocessingPipeline;
+import com.arunge.nlp.text.AnnotatedTextDocument;
+import com.arunge.nlp.text.TextDocument;
+import com.arunge.nlp.tokenization.SimpleSentenceSplitter;
+import com.arunge.nlp.tokenization.SimpleTokenizer;
+
+public class TestSimpleTokenizer {
+
+    @Test
+    public void testTokenize() {
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        String text = "Dr. Merriam-Webster paid $3.50 for 1,000 pills... \"Isn't that odd?\"";
+        List<Token> tokens = tokenizer.tokenizeToList(text);
+        assertEquals(Arrays.asList("Dr.", "Merriam-Webster", "paid", "$", "3.50", "for", "1,000", "pills", "...",
+                "\"", "Isn't", "that", "odd", "?", "\""), text(tokens));
+        for(Token t : tokens) {
+            assertEquals(t.text(), text.substring(t.start(), t.end()));
+        }
+        assertEquals(Arrays.asList("the", "U.S.", "and", "e.g.", "Fig", ".", "end", "-", "of", "-", "line"),
+                text(tokenizer.tokenizeToList("the U.S. and e.g. Fig . end - of - line")));
+    }
+
+    @Test
+    public void testSplit() {
+        SimpleSentenceSplitter splitter = new SimpleSentenceSplitter();
+        List<List<Token>> sentences = splitter.split("This is my first sentence. Now, Dr. Smith, here is the second sentence! "
+                + "What about the third one? \"This is the fourth one.\" He said");
+        assertEquals(5, sentences.size());
+        assertEquals(Arrays.asList("This", "is", "my", "first", "sentence", "."), text(sentences.get(0)));
+        assertEquals("!", sentences.get(1).get(sentences.get(1).size() - 1).text());
+        assertEquals(Arrays.asList("\"", "This", "is", "the", "fourth", "one", ".", "\""), text(sentences.get(3)));
+        assertEquals(Arrays.asList("He", "said"), text(sentences.get(4)));
+    }
+
+    @Test
+    public void testPipeline() {
+        BasicNLPPreprocessingPipeline pipeline = new BasicNLPPreprocessingPipeline()
+                .withTokenFilters(Arrays.asList(t -> Character.isLetterOrDigit(t.text().charAt(0))));
+        TextDocument doc = new TextDocument("a", "Neural networks are useful. They are the future.");
+        AnnotatedTextDocument processed = pipeline.apply(doc);
+        List<List<AnnotatedToken>> sentences = processed.getDefaultField().getSentences();
+        assertEquals(2, sentences.size());
+        assertEquals(Arrays.asList("Neural", "networks", "are", "useful"), text(sentences.get(0)));
+        assertEquals(TextDocument.DEFAULT_FIELD, sentences.get(1).get(0).getAnnotation(Annotator.SEGMENT).get());
+    }
+
+    private List<String> text(List<? extends Token> tokens) {
+        return tokens.stream().map(Token::text).collect(Collectors.toList());
+    }
+}
@@ -1,6 +1,12 @@
 package com.arunge.nlp.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -117,4 +123,48 @@ public class TestTokenSplitter {
         assertEquals(splitTokArr[4].text(), "slashes");
     }
     
+    @Test
+    public void testOffsets() {
+        Token t = new Token("state-of-the-art", 10, 26);
+        Token[] splitTokArr = TokenSplitters.hyphen().apply(t).toArray(Token[]::new);
+        assertEquals(7, splitTokArr.length);
+        assertEquals("of", splitTokArr[2].text());
+        assertEquals(16, splitTokArr[2].start());
+        assertEquals(18, splitTokArr[2].end());
+        assertEquals("art", splitTokArr[6].text());
+        assertEquals(23, splitTokArr[6].start());
+        assertEquals(26, splitTokArr[6].end());
+    }
+    
+    @Test
+    public void testLiteralMatchesPattern() {
+        TokenSplitter literal = TokenSplitters.slashes();
+        TokenSplitter pattern = new TokenSplitter("[\\/\\\\]");
+        for(String text : new String[] {"either/or", "/", "//a", "a\\b/c", "none", "end/"}) {
+            Token t = new Token(text, 5, 5 + text.length());
+            List<Token> expected = new ArrayList<>();
+            List<Token> actual = new ArrayList<>();
+            assertEquals(pattern.splitInto(t, expected), literal.splitInto(t, actual));
+            for(int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).text(), actual.get(i).text());
+                assertEquals(expected.get(i).start(), actual.get(i).start());
+                assertEquals(expected.get(i).end(), actual.get(i).end());
+            }
+        }
+    }
+    
+    @Test
+    public void testUnsplitTokens() {
+        TokenSplitter split = TokenSplitters.hyphen();
+        Token t = new Token("none", 0, 4);
+        assertFalse(split.mightSplit(t));
+        assertTrue(split.mightSplit(new Token("a-b", 0, 3)));
+        List<Token> tokens = new ArrayList<>();
+        assertEquals(1, split.splitInto(t, tokens));
+        assertSame(t, tokens.get(0));
+        Token hyphen = new Token("-", 0, 1);
+        split.splitInto(hyphen, tokens);
+        assertSame(hyphen, tokens.get(1));
+    }
+    
 }
@@ -0,0 +1,124 @@
+package com.arunge.nlp.corpus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.Annotator;
+import com.arunge.nlp.api.FeatureDescriptor;
+import com.arunge.nlp.text.AnnotatedTextField;
+import com.arunge.nlp.text.TextDocument;
+
+public class TestCorpusBuilder {
+
+    private static final String[] WORDS = {"generalization", "relational", "conditionally", "hopefulness", "formalities",
+            "sensitivity", "electrical", "adjustment", "dependence", "communication", "operational", "rationalization"};
+
+    @Test
+    public void testParallelStemming() {
+        List<TextDocument> docs = createDocuments(400);
+        Corpus sequential = CorpusBuilder.countingNGramCorpusBuilder(1, false)
+                .addSource(() -> docs.stream())
+                .withStemTokenForms()
+                .build();
+        Corpus parallel = CorpusBuilder.countingNGramCorpusBuilder(1, false)
+                .addSource(() -> docs.stream())
+                .withStemTokenForms()
+                .withParallelism(4)
+                .build();
+        assertEquals(sequential.getVocabulary().getVocabWords(), parallel.getVocabulary().getVocabWords());
+        assertEquals(sequential.getDocuments().size(), parallel.getDocuments().size());
+        for(int i = 0; i < sequential.getDocuments().size(); i++) {
+            assertEquals(sequential.getDocuments().get(i).getNgrams(1), parallel.getDocuments().get(i).getNgrams(1));
+        }
+    }
+
+    @Test
+    public void testParallelCoreNLPAnnotation() {
+        List<TextDocument> docs = createDocuments(50);
+        Corpus sequential = CorpusBuilder.countingNGramCorpusBuilder(2, false)
+                .addSource(() -> docs.stream())
+                .withCoreNLPTokenization()
+                .build();
+        Corpus parallel = CorpusBuilder.countingNGramCorpusBuilder(2, false)
+                .addSource(() -> docs.stream())
+                .withCoreNLPTokenization()
+                .withParallelism(3)
+                .build();
+        assertEquals(sequential.getVocabulary().getVocabWords(), parallel.getVocabulary().getVocabWords());
+        assertEquals(docs.size(), parallel.getDocuments().size());
+        for(int i = 0; i < docs.size(); i++) {
+            assertEquals(docs.get(i).getId(), parallel.getDocuments().get(i).getDocId());
+            assertEquals(sequential.getDocuments().get(i).getNgrams(2), parallel.getDocuments().get(i).getNgrams(2));
+        }
+    }
+
+    @Test
+    public void testParallelPOSTagging() {
+        List<TextDocument> docs = createDocuments(40);
+        Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        AtomicInteger untagged = new AtomicInteger();
+        //The POS tagger runs inside the pipeline call that precedes the extractors on the same thread, 
+        //so an extractor that sees tagged tokens on a worker thread means the tagging ran there too
+        Corpus corpus = CorpusBuilder.countingNGramCorpusBuilder(1, false)
+                .addSource(() -> docs.stream())
+                .addPOSTags()
+                .withParallelism(4)
+                .addTextFeatureExtractor(doc -> {
+                    threads.add(Thread.currentThread());
+                    for(AnnotatedTextField field : doc.getTextFields().values()) {
+                        for(AnnotatedToken token : field.getText()) {
+                            if(!token.hasAnnotation(Annotator.POS)) {
+                                untagged.incrementAndGet();
+                            }
+                        }
+                    }
+                    return Collections.singletonMap(FeatureDescriptor.of("length"), (double) doc.getLength());
+                })
+                .build();
+        assertEquals(docs.size(), corpus.getDocuments().size());
+        assertEquals(0, untagged.get());
+        assertFalse(threads.contains(Thread.currentThread()));
+        assertTrue("Expected documents to be tagged on more than one thread, was " + threads.size(), threads.size() > 1);
+    }
+
+    @Test
+    public void testSinglePassAnnotation() {
+        List<TextDocument> docs = createDocuments(20);
+        Corpus separate = CorpusBuilder.countingNGramCorpusBuilder(2, false)
+                .addSource(() -> docs.stream())
+                .withCoreNLPTokenization()
+                .build();
+        Corpus singlePass = CorpusBuilder.countingNGramCorpusBuilder(2, false)
+                .addSource(() -> docs.stream())
+                .withSinglePassAnnotation()
+                .build();
+        assertEquals(separate.getVocabulary().getVocabWords(), singlePass.getVocabulary().getVocabWords());
+        for(int i = 0; i < docs.size(); i++) {
+            assertEquals(separate.getDocuments().get(i).getNgrams(2), singlePass.getDocuments().get(i).getNgrams(2));
+        }
+    }
+
+    private List<TextDocument> createDocuments(int numDocs) {
+        List<TextDocument> docs = new ArrayList<>();
+        for(int i = 0; i < numDocs; i++) {
+            StringBuilder text = new StringBuilder();
+            for(int j = 0; j < 50; j++) {
+                text.append(WORDS[(i * 7 + j * 3) % WORDS.length]).append(j % 10 == 9 ? ". " : " ");
+            }
+            docs.add(new TextDocument("doc" + i, text.toString()));
+        }
+        return docs;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.arunge.nlp.corpus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestCorpusDocument {
+
+    @Test
+    public void testFreeze() {
+        CorpusDocument doc = buildDoc();
+        Map<Integer, Double> unigrams = new HashMap<>(doc.getNgrams(1));
+        Map<Integer, Double> bigrams = new HashMap<>(doc.getNgrams(2));
+        doc.freeze();
+        assertTrue(doc.isFrozen());
+        assertEquals(2, doc.getOrder());
+        assertEquals(unigrams, doc.getNgrams(1));
+        assertEquals(bigrams, doc.getNgrams(2));
+        assertEquals(3.0, doc.getNgramValue(7, 1), 0.0001);
+        assertEquals(0.0, doc.getNgramValue(8, 1), 0.0001);
+        assertEquals(6.0, doc.getNgramLength(1), 0.0001);
+        assertEquals(0.5, doc.getFeature(1).get(), 0.0001);
+        assertFalse(doc.getFeature(2).isPresent());
+        assertArrayEquals(new int[] {2, 3, 7}, doc.getNgramVector(1).getIndices());
+
+        doc.setNgramValue(7, 1, 1.5);
+        assertEquals(1.5, doc.getNgramValue(7, 1), 0.0001);
+        try {
+            doc.addOrIncrementNgram(8, 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            doc.setNgramValue(8, 1, 1.0);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    @Test
+    public void testFrozenLengthNorm() {
+        CorpusDocument doc = buildDoc();
+        doc.freeze();
+        CorpusDocument norm = doc.buildLengthNormCountDoc();
+        assertTrue(norm.isFrozen());
+        assertEquals(0.5, norm.getNgramValue(7, 1), 0.0001);
+        assertEquals(1.0, norm.getNgramLength(1), 0.0001);
+        //The original document is not modified by the copy
+        assertEquals(3.0, doc.getNgramValue(7, 1), 0.0001);
+    }
+
+    @Test
+    public void testForEach() {
+        for(boolean freeze : new boolean[] {false, true}) {
+            CorpusDocument doc = buildDoc();
+            if(freeze) {
+                doc.freeze();
+            }
+            Map<Integer, Double> visited = new HashMap<>();
+            doc.forEachNgram(1, (index, value) -> visited.put(index, value));
+            assertEquals(doc.getNgrams(1), visited);
+            assertEquals(3, doc.getNumNgrams(1));
+            visited.clear();
+            doc.forEachFeature((index, value) -> visited.put(index, value));
+            assertEquals(doc.getFeatures(), visited);
+        }
+    }
+
+    @Test
+    public void testCachedLength() {
+        CorpusDocument doc = buildDoc();
+        assertEquals(6.0, doc.getNgramLength(1), 0.0001);
+        doc.addOrIncrementNgram(2, 1, 2.0);
+        assertEquals(8.0, doc.getNgramLength(1), 0.0001);
+        doc.setNgramValue(7, 1, 1.0);
+        assertEquals(6.0, doc.getNgramLength(1), 0.0001);
+        doc.freeze();
+        doc.setNgramValue(3, 1, 4.0);
+        assertEquals(8.0, doc.getNgramLength(1), 0.0001);
+        assertEquals(1.0, doc.getNgramLength(2), 0.0001);
+    }
+
+    @Test
+    public void testRemap() {
+        int[] oldToNew = new int[] {0, 1, 2, -1, 3, 4, 5, 6, 7, -1, 8, 9, 10};
+        for(boolean freeze : new boolean[] {false, true}) {
+            CorpusDocument doc = buildDoc();
+            if(freeze) {
+                doc.freeze();
+            }
+            doc.remapNgrams(oldToNew);
+            assertEquals(2, doc.getNumNgrams(1));
+            assertEquals(3.0, doc.getNgramValue(6, 1), 0.0001);
+            assertEquals(1.0, doc.getNgramValue(2, 1), 0.0001);
+            assertEquals(4.0, doc.getNgramLength(1), 0.0001);
+            assertEquals(1.0, doc.getNgramValue(9, 2), 0.0001);
+            assertEquals(0.5, doc.getFeature(1).get(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testDot() {
+        SparseVector a = new SparseVector(new int[] {1, 4, 6, 9}, new double[] {1.0, 2.0, 3.0, 4.0});
+        SparseVector b = new SparseVector(new int[] {0, 4, 9, 12}, new double[] {5.0, 0.5, 2.0, 1.0});
+        assertEquals(9.0, a.dot(b), 0.0001);
+        assertEquals(9.0, b.dot(a), 0.0001);
+        assertEquals(Math.sqrt(30.0), a.norm(), 0.0001);
+        try {
+            new SparseVector(new int[] {2, 1}, new double[] {1.0, 1.0});
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private CorpusDocument buildDoc() {
+        CorpusDocument doc = new CorpusDocument("doc", 2);
+        doc.addOrIncrementNgram(7, 1, 3.0);
+        doc.addOrIncrementNgram(2, 1);
+        doc.addOrIncrementNgram(3, 1, 2.0);
+        doc.addOrIncrementNgram(11, 2);
+        doc.setFeature(1, 0.5);
+        return doc;
+    }
+}
@@ -4,9 +4,11 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -188,6 +190,85 @@ public class TestCountingNGramCorpus {
                 
     }
     
+    @Test
+    public void testSealOnGetDocuments() {
+        CountingNGramCorpus corpus = new CountingNGramCorpus(2);
+        corpus.addTokenizedDocument(createDocument("This is my first sentence."));
+        corpus.addTokenizedDocument(createDocument("This is my second sentence."));
+        //Finalizing only marks the corpus complete, the documents are frozen when they are first requested
+        corpus.finalize();
+        for(CorpusDocument doc : corpus.documents) {
+            assertFalse(doc.isFrozen());
+        }
+        for(CorpusDocument doc : corpus.getDocuments()) {
+            assertTrue(doc.isFrozen());
+        }
+    }
+    
+    @Test
+    public void testMergeShards() {
+        String[] texts = {"The dog buried the bone.", "The cat chased the dog.", "The dog chased the cat.", "A bird sang."};
+        CountingNGramCorpus first = new CountingNGramCorpus(2);
+        first.setTokenFormExtraction(TokenForms.lowercase());
+        first.addTokenizedDocument(createDocument(texts[0]));
+        first.addTokenizedDocument(createDocument(texts[1]));
+        CountingNGramCorpus second = new CountingNGramCorpus(2);
+        second.setTokenFormExtraction(TokenForms.lowercase());
+        second.addTokenizedDocument(createDocument(texts[2]));
+        second.addTokenizedDocument(createDocument(texts[3]));
+        CountingNGramCorpus expected = new CountingNGramCorpus(2);
+        expected.setTokenFormExtraction(TokenForms.lowercase());
+        for(String text : texts) {
+            expected.addTokenizedDocument(createDocument(text));
+        }
+        CountingNGramIndexer firstIndexer = (CountingNGramIndexer) first.getNgramIndexer();
+        CountingNGramIndexer secondIndexer = (CountingNGramIndexer) second.getNgramIndexer();
+
+        CountingNGramCorpus merged = CountingNGramCorpus.mergeShards(Arrays.asList(first, second));
+        CountingNGramIndexer mergedIndexer = (CountingNGramIndexer) merged.getNgramIndexer();
+        CountingNGramIndexer expectedIndexer = (CountingNGramIndexer) expected.getNgramIndexer();
+        assertEquals(expectedIndexer.size(), mergedIndexer.size());
+        assertEquals(4, mergedIndexer.getNumDocs());
+        //The indices of the first shard are kept, and n-grams only seen in later shards are appended. Index 0 is unused.
+        for(int i = 1; i < firstIndexer.size(); i++) {
+            assertEquals(i, mergedIndexer.getIndex(firstIndexer.getNgram(i)));
+        }
+        for(int i = 1; i < secondIndexer.size(); i++) {
+            String[] ngram = secondIndexer.getNgram(i);
+            int index = mergedIndexer.getIndex(ngram);
+            if(firstIndexer.getIndex(ngram) == -1) {
+                assertTrue(index >= firstIndexer.size());
+            } else {
+                assertEquals(firstIndexer.getIndex(ngram), index);
+            }
+        }
+        //Overlapping n-grams have their counts summed across the shards
+        assertEquals(2, mergedIndexer.getDocFrequency(mergedIndexer.getIndex("the", "cat")));
+        assertEquals(3, mergedIndexer.getDocFrequency(mergedIndexer.getIndex("dog")));
+        assertEquals(6, mergedIndexer.getNgramFrequency("the"));
+        assertEquals(1, mergedIndexer.getDocFrequency(mergedIndexer.getIndex("bird")));
+        for(int i = 1; i < expectedIndexer.size(); i++) {
+            int index = mergedIndexer.getIndex(expectedIndexer.getNgram(i));
+            assertEquals(expectedIndexer.getNgramFrequency(i), mergedIndexer.getNgramFrequency(index));
+            assertEquals(expectedIndexer.getDocFrequency(i), mergedIndexer.getDocFrequency(index));
+        }
+        //Documents are rewritten against the merged index, in shard order
+        List<CorpusDocument> expectedDocs = expected.getDocuments();
+        List<CorpusDocument> mergedDocs = merged.getDocuments();
+        assertEquals(4, mergedDocs.size());
+        for(int d = 0; d < expectedDocs.size(); d++) {
+            for(int o = 1; o <= 2; o++) {
+                Map<Integer, Double> expectedNgrams = expectedDocs.get(d).getNgrams(o);
+                Map<Integer, Double> mergedNgrams = mergedDocs.get(d).getNgrams(o);
+                assertEquals(expectedNgrams.size(), mergedNgrams.size());
+                for(Map.Entry<Integer, Double> ngram : expectedNgrams.entrySet()) {
+                    int index = mergedIndexer.getIndex(expectedIndexer.getNgram(ngram.getKey()));
+                    assertEquals(ngram.getValue(), mergedNgrams.get(index));
+                }
+            }
+        }
+    }
+    
     private AnnotatedTextDocument createDocument(String text) {
         TextDocument doc = new TextDocument(UUID.randomUUID().toString(), text);
         return pipeline.apply(doc);
@@ -0,0 +1,102 @@
+package com.arunge.nlp.corpus.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.corpus.CountingNGramCorpus;
+import com.arunge.nlp.processors.BasicNLPPreprocessingPipeline;
+import com.arunge.nlp.text.TextDocument;
+import com.arunge.nlp.vocab.CountingNGramIndexer;
+import com.arunge.nlp.vocab.MappedNGramIndexer;
+
+public class TestColumnarCorpus {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<CorpusDocument> docs = new ArrayList<>();
+        for(int d = 0; d < 50; d++) {
+            CorpusDocument doc = new CorpusDocument("doc-" + d, 2);
+            doc.setLabel(d % 3 == 0 ? null : "label" + (d % 3));
+            for(int i = d; i < d + 10; i++) {
+                doc.addOrIncrementNgram(i * 7 % 31, 1, i);
+            }
+            doc.addOrIncrementNgram(100 + d, 2, 2.5);
+            if(d % 2 == 0) {
+                doc.setFeature(d % 5, d / 10.0);
+            }
+            docs.add(doc);
+        }
+        docs.add(new CorpusDocument("empty", 1));
+
+        File dir = Files.createTempDirectory("corpus").toFile();
+        ColumnarCorpusWriter.write(docs, 2, dir);
+        ColumnarCorpusReader reader = ColumnarCorpusReader.open(dir);
+
+        assertEquals(docs.size(), reader.size());
+        assertEquals(2, reader.getOrder());
+        assertEquals(2, reader.getClassLabels().size());
+        assertTrue(reader.getClassLabels().contains("label1"));
+        Iterator<CorpusDocument> iter = reader.iterator();
+        for(CorpusDocument expected : docs) {
+            CorpusDocument actual = iter.next();
+            //Documents are read directly into their frozen, sorted representation
+            assertTrue(actual.isFrozen());
+            assertDocEquals(expected, actual);
+            for(int o = 1; o <= expected.getOrder(); o++) {
+                assertArrayEquals(expected.getNgramVector(o).getIndices(), actual.getNgramVector(o).getIndices());
+                assertArrayEquals(expected.getNgramVector(o).getValues(), actual.getNgramVector(o).getValues(), 0.0);
+            }
+        }
+        List<CorpusDocument> range = reader.getDocuments(10, 20);
+        assertEquals(10, range.size());
+        assertDocEquals(docs.get(15), range.get(5));
+        assertNull(reader.getLabel(0));
+        assertEquals("doc-7", reader.getDocId(7));
+    }
+
+    @Test
+    public void testNgramVocabulary() throws IOException {
+        BasicNLPPreprocessingPipeline pipeline = new BasicNLPPreprocessingPipeline();
+        CountingNGramCorpus corpus = new CountingNGramCorpus(2);
+        corpus.addTokenizedDocument(pipeline.apply(new TextDocument("a", "The dog buried the bone.")));
+        corpus.addTokenizedDocument(pipeline.apply(new TextDocument("b", "The cat chased the dog.")));
+        File dir = Files.createTempDirectory("corpus").toFile();
+        corpus.exportColumnar(dir);
+
+        ColumnarCorpusReader reader = ColumnarCorpusReader.open(dir);
+        MappedNGramIndexer mapped = reader.openNgramIndexer();
+        CountingNGramIndexer indexer = (CountingNGramIndexer) corpus.getNgramIndexer();
+        assertEquals(indexer.size(), mapped.size());
+        assertEquals(2, mapped.getNumDocs());
+        for(CorpusDocument doc : reader) {
+            for(int o = 1; o <= 2; o++) {
+                for(int index : doc.getNgrams(o).keySet()) {
+                    assertArrayEquals(indexer.getNgram(index), mapped.getNgram(index));
+                    assertEquals(indexer.getDocFrequency(index), mapped.getDocFrequency(index));
+                }
+            }
+        }
+        assertEquals(indexer.getIndex("the", "dog"), mapped.getIndex("the", "dog"));
+    }
+
+    private void assertDocEquals(CorpusDocument expected, CorpusDocument actual) {
+        assertEquals(expected.getDocId(), actual.getDocId());
+        assertEquals(expected.getLabel(), actual.getLabel());
+        for(int o = 1; o <= expected.getOrder(); o++) {
+            assertEquals(expected.getNgrams(o), actual.getNgrams(o));
+        }
+        assertEquals(expected.getFeatures(), actual.getFeatures());
+    }
+}
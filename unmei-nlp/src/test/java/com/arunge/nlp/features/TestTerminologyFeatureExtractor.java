@@ -9,6 +9,7 @@ import org.junit.Test;
 import com.arunge.nlp.api.Annotator;
 import com.arunge.nlp.api.FeatureDescriptor;
 import com.arunge.nlp.api.NLPPreprocessingPipeline;
+import com.arunge.nlp.processors.BasicNLPPreprocessingPipeline;
 import com.arunge.nlp.stanford.StanfordNLPPreprocessingPipeline;
 import com.arunge.nlp.text.AnnotatedTextDocument;
 import com.arunge.nlp.text.TextDocument;
@@ -46,4 +47,33 @@ public class TestTerminologyFeatureExtractor {
         assertEquals(features.get(FeatureDescriptor.of("field1_term_neural_network")).doubleValue(), 0.05, 0.0001);
     }
 
+    @Test
+    public void testPrefixMatch() {
+        String text = "Neural networks are the future of all machine learning techniques";
+        AnnotatedTextDocument doc = new BasicNLPPreprocessingPipeline().apply(new TextDocument("a", text));
+        TerminologyFeatureExtractor extractor = new TerminologyFeatureExtractor("src/test/resources/ai_terminology.txt", false);
+        Map<FeatureDescriptor, Double> features = extractor.extractFeatures(doc);
+        assertEquals(2, features.size());
+        assertEquals(0.1, features.get(FeatureDescriptor.of("term_machine_learning")).doubleValue(), 0.0001);
+        assertEquals(0.1, features.get(FeatureDescriptor.of("term_neural_network")).doubleValue(), 0.0001);
+        
+        doc = new BasicNLPPreprocessingPipeline().apply(new TextDocument("b", "Networks of neural nets, machine learning and machine learning"));
+        features = extractor.extractFeatures(doc);
+        assertEquals(1, features.size());
+        assertEquals(0.2, features.get(FeatureDescriptor.of("term_machine_learning")).doubleValue(), 0.0001);
+    }
+    
+    @Test
+    public void testSegmentedPrefixMatch() { 
+        TextDocument d = new TextDocument("a");
+        d.setTextField("field1", "Neural networks are the future of all natural language processing");
+        d.setTextField("field2", "Machine learning still uses many other techniques, however.");
+        AnnotatedTextDocument doc = new BasicNLPPreprocessingPipeline().apply(d);
+        TerminologyFeatureExtractor extractor = new TerminologyFeatureExtractor("src/test/resources/ai_terminology.txt", true);
+        Map<FeatureDescriptor, Double> features = extractor.extractFeatures(doc);
+        assertEquals(2, features.size());
+        assertEquals(0.05, features.get(FeatureDescriptor.of("field2_term_machine_learning")).doubleValue(), 0.0001);
+        assertEquals(0.05, features.get(FeatureDescriptor.of("field1_term_neural_network")).doubleValue(), 0.0001);
+    }
+
 }
@@ -0,0 +1,79 @@
+package com.arunge.nlp.stanford;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.Annotator;
+import com.arunge.nlp.text.AnnotatedTextDocument;
+import com.arunge.nlp.text.TextDocument;
+
+public class TestStanfordNLPPreprocessingPipeline {
+
+    @Test
+    public void testSinglePass() {
+        TextDocument doc = new TextDocument("a", "Neural networks have frequently been used in maximum entropy models. They are the future.");
+        AnnotatedTextDocument perSentence = new StanfordNLPPreprocessingPipeline(Annotator.POS, Annotator.LEMMA).apply(doc);
+        AnnotatedTextDocument singlePass = StanfordNLPPreprocessingPipeline.singlePass(Annotator.POS, Annotator.LEMMA).apply(doc);
+
+        List<List<AnnotatedToken>> expected = perSentence.getDefaultField().getSentences();
+        List<List<AnnotatedToken>> actual = singlePass.getDefaultField().getSentences();
+        assertEquals(expected.size(), actual.size());
+        for(int s = 0; s < expected.size(); s++) {
+            assertEquals(expected.get(s).size(), actual.get(s).size());
+            for(int t = 0; t < expected.get(s).size(); t++) {
+                AnnotatedToken token = actual.get(s).get(t);
+                assertEquals(expected.get(s).get(t).text(), token.text());
+                assertEquals(expected.get(s).get(t).start(), token.start());
+                assertTrue(token.hasAnnotation(Annotator.POS));
+                assertTrue(token.hasAnnotation(Annotator.LEMMA));
+            }
+        }
+        assertEquals("network", actual.get(0).get(1).getAnnotation(Annotator.LEMMA).get());
+        assertEquals("NNS", actual.get(0).get(1).getAnnotation(Annotator.POS).get());
+    }
+
+    @Test
+    public void testTokenizeOnly() {
+        TextDocument doc = new TextDocument("a", "This is a test.");
+        AnnotatedTextDocument processed = StanfordNLPPreprocessingPipeline.singlePass().apply(doc);
+        List<AnnotatedToken> sentence = processed.getDefaultField().getSentences().get(0);
+        assertEquals(5, sentence.size());
+        assertTrue(!sentence.get(0).hasAnnotation(Annotator.POS));
+        assertEquals(TextDocument.DEFAULT_FIELD, sentence.get(0).getAnnotation(Annotator.SEGMENT).get());
+    }
+
+    @Test
+    public void testApplyAll() {
+        List<TextDocument> docs = Arrays.asList(
+                new TextDocument("a", "Neural networks have frequently been used in maximum entropy models."),
+                new TextDocument("b", "They are the future. This is a test."),
+                new TextDocument("c", "Another short document."));
+        StanfordNLPPreprocessingPipeline pipeline = StanfordNLPPreprocessingPipeline.singlePass(Annotator.POS)
+                .withAnnotationThreads(2);
+        List<AnnotatedTextDocument> batched = pipeline.applyAll(docs);
+        List<AnnotatedTextDocument> streamed = pipeline.apply(docs.stream()).collect(Collectors.toList());
+        assertEquals(docs.size(), batched.size());
+        assertEquals(docs.size(), streamed.size());
+        for(int i = 0; i < docs.size(); i++) {
+            AnnotatedTextDocument expected = pipeline.apply(docs.get(i));
+            assertEquals(expected.getDocId(), batched.get(i).getDocId());
+            assertEquals(expected.getDocId(), streamed.get(i).getDocId());
+            assertEquals(tokenText(expected), tokenText(batched.get(i)));
+            assertEquals(tokenText(expected), tokenText(streamed.get(i)));
+        }
+    }
+
+    private List<String> tokenText(AnnotatedTextDocument doc) {
+        return doc.getDefaultField().getSentences().stream()
+                .flatMap(List::stream)
+                .map(t -> t.text() + "/" + t.getAnnotation(Annotator.POS).get())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,84 @@
+package com.arunge.nlp.text;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.NgramKeyCompression;
+import com.arunge.nlp.api.TokenForms;
+import com.arunge.nlp.vocab.Vocabulary;
+
+@DisplayName("An NGramKeyCursor")
+public class NGramKeyCursorTest {
+
+    static AnnotatedTextDocument doc;
+
+    @BeforeAll
+    static void setup() {
+        doc = new AnnotatedTextDocument("test");
+        AnnotatedTextField field = new AnnotatedTextField();
+        field.addSentence(sentence("I", "met", "you", "before", "the", "fall", "of", "Rome", "."));
+        field.addSentence(sentence("And", "I", "begged", "you", "to", "let", "me", "take", "you", "home", "."));
+        doc.addTextField(TextDocument.DEFAULT_FIELD, field);
+    }
+
+    @Test
+    @DisplayName("produces the same n-grams as an NGramIterator")
+    void testMatchesIterator() {
+        for(int order = 1; order <= 3; order++) {
+            Vocabulary vocab = new Vocabulary();
+            NGramKeyCursor cursor = new NGramKeyCursor(doc, TokenForms.lowercase(), order, vocab::getOrAdd);
+            NGramIterator iter = new NGramIterator(doc, TokenForms.lowercase(), order);
+            int numNgrams = 0;
+            while(cursor.next()) {
+                String[] expected = iter.next();
+                assertThat(cursor.order(), equalTo(expected.length));
+                assertThat(lookup(vocab, cursor.key()), equalTo(Arrays.asList(expected)));
+                numNgrams += 1;
+            }
+            assertThat(iter.hasNext(), equalTo(false));
+            assertThat(numNgrams > 0, equalTo(true));
+        }
+    }
+
+    @Test
+    @DisplayName("skips n-grams containing unknown words")
+    void testUnknownWords() {
+        Vocabulary vocab = new Vocabulary();
+        for(String word : new String[] {"i", "met", "before", "the", "fall"}) {
+            vocab.getOrAdd(word);
+        }
+        NGramKeyCursor cursor = new NGramKeyCursor(doc, TokenForms.lowercase(), 2, vocab::getIndex);
+        List<String> ngrams = new ArrayList<>();
+        while(cursor.next()) {
+            ngrams.add(String.join(" ", lookup(vocab, cursor.key())));
+        }
+        assertThat(ngrams, equalTo(Arrays.asList("i", "met", "i met", "before", "the", "before the", "fall", "the fall", "i")));
+    }
+
+    private static List<String> lookup(Vocabulary vocab, long key) {
+        List<String> words = new ArrayList<>();
+        for(int id : NgramKeyCompression.extractKey(key)) {
+            words.add(vocab.getWord(id));
+        }
+        return words;
+    }
+
+    private static List<AnnotatedToken> sentence(String...words) {
+        List<AnnotatedToken> tokens = new ArrayList<>();
+        int offset = 0;
+        for(String word : words) {
+            tokens.add(new AnnotatedToken(word, offset, offset + word.length()));
+            offset += word.length() + 1;
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,117 @@
+package com.arunge.nlp.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arunge.nlp.api.AnnotatedToken;
+import com.arunge.nlp.api.Annotator;
+import com.arunge.nlp.api.StringPool;
+import com.arunge.nlp.processors.BasicNLPPreprocessingPipeline;
+import com.arunge.nlp.tokenization.TokenSplitter;
+
+public class TestColumnarTextField {
+
+    @Test
+    public void testDocumentPools() {
+        TextDocument first = new TextDocument("a", "Neural networks are useful.");
+        first.setTextField("title", "Neural networks");
+        TextDocument second = new TextDocument("b", "Neural networks are useful.");
+        //By default the fields of a document share a pool, which is not shared with other documents
+        BasicNLPPreprocessingPipeline pipeline = new BasicNLPPreprocessingPipeline().withColumnarFields();
+        AnnotatedTextDocument firstProcessed = pipeline.apply(first);
+        AnnotatedTextDocument secondProcessed = pipeline.apply(second);
+        String body = firstProcessed.getDefaultField().getText().get(1).text();
+        assertEquals("networks", body);
+        assertSame(body, firstProcessed.getField("title").getText().get(1).text());
+        assertNotSame(body, secondProcessed.getDefaultField().getText().get(1).text());
+        //An explicit pool is shared by all documents
+        pipeline = new BasicNLPPreprocessingPipeline().withColumnarFields(new StringPool());
+        assertSame(pipeline.apply(first).getDefaultField().getText().get(1).text(), 
+                pipeline.apply(second).getDefaultField().getText().get(1).text());
+    }
+
+    @Test
+    public void testMatchesObjectFields() {
+        TextDocument doc = new TextDocument("a", "Neural networks are state-of-the-art. They are the future.");
+        doc.setTextField("title", "Neural networks");
+        List<TokenSplitter> splitters = Arrays.asList(new TokenSplitter("-"));
+        AnnotatedTextDocument expected = new BasicNLPPreprocessingPipeline().withTokenSplitters(splitters).apply(doc);
+        AnnotatedTextDocument actual = new BasicNLPPreprocessingPipeline().withTokenSplitters(splitters)
+                .withColumnarFields().apply(doc);
+        for(String fieldName : doc.getFieldNames()) {
+            assertTrue(actual.getField(fieldName) instanceof ColumnarTextField);
+            List<List<AnnotatedToken>> expectedSentences = expected.getField(fieldName).getSentences();
+            List<List<AnnotatedToken>> actualSentences = actual.getField(fieldName).getSentences();
+            assertEquals(expectedSentences.size(), actualSentences.size());
+            assertEquals(expected.getField(fieldName).getLength(), actual.getField(fieldName).getLength());
+            for(int s = 0; s < expectedSentences.size(); s++) {
+                assertEquals(expectedSentences.get(s).size(), actualSentences.get(s).size());
+                for(int t = 0; t < expectedSentences.get(s).size(); t++) {
+                    AnnotatedToken e = expectedSentences.get(s).get(t);
+                    AnnotatedToken a = actualSentences.get(s).get(t);
+                    assertEquals(e.text(), a.text());
+                    assertEquals(e.start(), a.start());
+                    assertEquals(e.end(), a.end());
+                    assertEquals(e.getAnnotations(), a.getAnnotations());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAnnotate() {
+        StringPool pool = new StringPool();
+        ColumnarTextField field = new ColumnarTextField("body", pool);
+        AnnotatedToken first = new AnnotatedToken("Dogs", 0, 4);
+        first.addAnnotation(Annotator.POS, "NNS");
+        field.addSentence(Arrays.asList(first, new AnnotatedToken("bark", 5, 9)));
+        field.addSentence(Arrays.asList(new AnnotatedToken("Cats", 10, 14)));
+        assertEquals(2, field.getNumSentences());
+        assertEquals(3, field.getLength());
+
+        AnnotatedToken dogs = field.getSentences().get(0).get(0);
+        AnnotatedToken bark = field.getSentences().get(0).get(1);
+        assertEquals("NNS", dogs.getAnnotation(Annotator.POS).get());
+        assertFalse(bark.hasAnnotation(Annotator.POS));
+        assertEquals("body", bark.getAnnotation(Annotator.SEGMENT).get());
+
+        //Annotations added through a view are written back to the field
+        bark.addAnnotation(Annotator.STEM, "bark");
+        assertEquals("bark", field.getSentences().get(0).get(1).getAnnotation(Annotator.STEM).get());
+        assertFalse(field.getSentences().get(1).get(0).hasAnnotation(Annotator.STEM));
+
+        //Token text is shared through the pool
+        field.addSentence(Arrays.asList(new AnnotatedToken(new String("bark"), 15, 19)));
+        assertTrue(field.getText().get(3).text() == bark.text());
+        field.trimToSize();
+        assertEquals("Cats", field.getText().get(2).text());
+    }
+
+    @Test
+    public void testAddAfterTrim() {
+        StringPool pool = new StringPool();
+        ColumnarTextField field = new ColumnarTextField("body", pool);
+        field.trimToSize();
+        AnnotatedToken dogs = new AnnotatedToken("Dogs", 0, 4);
+        dogs.addAnnotation(Annotator.POS, "NNS");
+        field.addSentence(Arrays.asList(dogs, new AnnotatedToken("bark", 5, 9)));
+        assertEquals(1, field.getNumSentences());
+        assertEquals(2, field.getLength());
+        field.trimToSize();
+        field.addSentence(Arrays.asList(new AnnotatedToken("Cats", 10, 14)));
+        field.addSentence(Arrays.asList(new AnnotatedToken("meow", 15, 19)));
+        assertEquals(3, field.getNumSentences());
+        assertEquals(4, field.getLength());
+        assertEquals("NNS", field.getSentences().get(0).get(0).getAnnotation(Annotator.POS).get());
+        assertFalse(field.getSentences().get(1).get(0).hasAnnotation(Annotator.POS));
+        assertEquals("meow", field.getSentences().get(2).get(0).text());
+    }
+}
@@ -7,9 +7,12 @@ import static org.junit.Assert.assertTrue;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.junit.Test;
 
+import com.arunge.nlp.api.NgramKeyCompression;
+
 public class TestDFNgramIndexer {
 
     @Test
@@ -167,6 +170,66 @@ public class TestDFNgramIndexer {
         
     }
     
+    @Test
+    public void testTrimTailInPlace() {
+        CountingNGramIndexer indexer = new CountingNGramIndexer(3);
+        String[] words = new String[] {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog"};
+        for(int d = 0; d < 20; d++) {
+            indexer.incrementNumDocs();
+            for(int i = 0; i + 2 < words.length; i += 1 + (d % 3)) {
+                String[] trigram = new String[] {words[i], words[(i + d) % words.length], words[i + 2]};
+                int tri = indexer.getOrAdd(trigram);
+                indexer.incrementNgramFrequency(tri);
+                indexer.incrementDocFrequency(tri);
+                int bi = indexer.getIndex(trigram[1], trigram[2]);
+                indexer.incrementNgramFrequency(bi, d % 4);
+                indexer.incrementDocFrequency(bi);
+                int uni = indexer.getIndex(trigram[0]);
+                indexer.incrementNgramFrequency(uni, 2);
+                indexer.incrementDocFrequency(uni);
+            }
+        }
+        String[][] oldNgrams = new String[indexer.size()][];
+        for(int i = 1; i < indexer.size(); i++) {
+            oldNgrams[i] = indexer.getNgram(i);
+        }
+        
+        CountingNGramIndexer copy = indexer.trimTail(4, 3);
+        int[] oldToNew = indexer.trimTailInPlace(4, 3);
+        
+        assertEquals(copy.size(), indexer.size());
+        assertEquals(copy.getVocabulary().size(), indexer.getVocabulary().size());
+        for(int w = 0; w < copy.getVocabulary().size(); w++) {
+            assertEquals(copy.getVocabulary().getWord(w), indexer.getVocabulary().getWord(w));
+        }
+        for(int o = 1; o <= 3; o++) {
+            assertEquals(copy.size(o), indexer.size(o));
+            assertEquals(copy.getNumNgrams(o), indexer.getNumNgrams(o));
+        }
+        for(int i = 1; i < indexer.size(); i++) {
+            assertArrayEquals(copy.getNgram(i), indexer.getNgram(i));
+            assertEquals(i, indexer.getIndex(indexer.getNgram(i)));
+            assertEquals(copy.getNgramFrequency(i), indexer.getNgramFrequency(i));
+            assertEquals(copy.getDocFrequency(i), indexer.getDocFrequency(i));
+        }
+        int retained = 0;
+        for(int i = 1; i < oldNgrams.length; i++) {
+            if(oldToNew[i] == -1) {
+                assertEquals(-1, indexer.getIndex(oldNgrams[i]));
+            } else {
+                retained += 1;
+                assertArrayEquals(oldNgrams[i], indexer.getNgram(oldToNew[i]));
+            }
+        }
+        assertEquals(indexer.size() - 1, retained);
+        assertTrue(retained < oldNgrams.length - 1);
+        
+        //Indexer remains usable after trimming
+        int added = indexer.getOrAdd("a", "new", "trigram");
+        assertEquals(added, indexer.getIndex("a", "new", "trigram"));
+        assertEquals(0, indexer.getDocFrequency(added));
+    }
+    
     @Test
     public void testSerialization() throws IOException { 
         CountingNGramIndexer indexer = new CountingNGramIndexer(3);
@@ -210,4 +273,67 @@ public class TestDFNgramIndexer {
         assertEquals(indexer.size(3), deser.size(3));
         assertArrayEquals(indexer.getDocFrequencies(), deser.getDocFrequencies());
     }
+    
+    @Test
+    public void testMerge() {
+        CountingNGramIndexer shard1 = new CountingNGramIndexer(2);
+        int s1Bi = shard1.getOrAdd("this", "is");
+        shard1.incrementNgramFrequency(s1Bi);
+        shard1.incrementDocFrequency(s1Bi);
+        shard1.incrementNgramFrequency(shard1.getIndex("this"));
+        shard1.incrementNumDocs();
+        
+        CountingNGramIndexer shard2 = new CountingNGramIndexer(2);
+        int s2Bi = shard2.getOrAdd("a", "test");
+        int s2Shared = shard2.getOrAdd("this", "is");
+        shard2.incrementNgramFrequency(s2Bi);
+        shard2.incrementDocFrequency(s2Bi);
+        shard2.incrementNgramFrequency(s2Shared, 2);
+        shard2.incrementDocFrequency(s2Shared);
+        shard2.incrementNumDocs();
+        shard2.incrementNumDocs();
+        
+        CountingNGramIndexer merged = new CountingNGramIndexer(2);
+        merged.mergeFrom(shard1);
+        int[] indexMap = merged.mergeFrom(shard2);
+        
+        assertEquals(4, merged.size(1));
+        assertEquals(2, merged.size(2));
+        assertEquals(3, merged.getNumDocs());
+        int bi = merged.getIndex("this", "is");
+        assertEquals(bi, indexMap[s2Shared]);
+        assertEquals(merged.getIndex("a", "test"), indexMap[s2Bi]);
+        assertEquals(3, merged.getNgramFrequency(bi));
+        assertEquals(2, merged.getDocFrequency(bi));
+        assertEquals(1, merged.getNgramFrequency(merged.getIndex("this")));
+        assertEquals(4, merged.getNumNgrams(2));
+        
+        CountingNGramIndexer staticMerged = CountingNGramIndexer.merge(Arrays.asList(shard1, shard2));
+        assertEquals(merged.size(), staticMerged.size());
+        assertArrayEquals(merged.getDocFrequencies(), staticMerged.getDocFrequencies());
+    }
+    
+    @Test
+    public void testIncrementAll() {
+        CountingNGramIndexer indexer = new CountingNGramIndexer(2);
+        int bi = indexer.getOrAdd("this", "is");
+        int uni1 = indexer.getIndex("this");
+        int uni2 = indexer.getIndex("is");
+        Vocabulary vocab = indexer.getVocabulary();
+        long uniKey = NgramKeyCompression.generateKey(new int[] {vocab.getIndex("this")});
+        long biKey = NgramKeyCompression.generateKey(new int[] {vocab.getIndex("this"), vocab.getIndex("is")});
+        long newKey = NgramKeyCompression.generateKey(new int[] {vocab.getIndex("is"), vocab.getIndex("this")});
+        long[] keys = new long[] {uniKey, biKey, uniKey, newKey, biKey};
+        indexer.incrementAll(keys, 4);
+        
+        assertEquals(2, indexer.getNgramFrequency(uni1));
+        assertEquals(0, indexer.getNgramFrequency(uni2));
+        assertEquals(1, indexer.getNgramFrequency(bi));
+        assertEquals(1, indexer.getNgramFrequency("is", "this"));
+        assertEquals(2, indexer.getNumNgrams(1));
+        assertEquals(2, indexer.getNumNgrams(2));
+        
+        indexer.incrementNgramFrequency(bi, 3);
+        assertEquals(5, indexer.getNumNgrams(2));
+    }
 }
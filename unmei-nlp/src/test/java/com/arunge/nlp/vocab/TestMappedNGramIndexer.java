@@ -0,0 +1,92 @@
+package com.arunge.nlp.vocab;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TestMappedNGramIndexer {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        CountingNGramIndexer indexer = new CountingNGramIndexer(3);
+        int tri1 = indexer.getOrAdd("this", "is", "a");
+        int tri2 = indexer.getOrAdd("is", "a", "test");
+        int bi = indexer.getIndex("a", "test");
+        int uni = indexer.getIndex("test");
+        indexer.incrementNumDocs();
+        indexer.incrementNumDocs();
+        indexer.incrementDocFrequency(tri1);
+        indexer.incrementDocFrequency(tri1);
+        indexer.incrementNgramFrequency(tri1, 3);
+        indexer.incrementDocFrequency(bi);
+        indexer.incrementNgramFrequency(uni);
+
+        File f = File.createTempFile("ngrams", ".idx");
+        f.deleteOnExit();
+        MappedNGramIndexer.write(indexer, f);
+        MappedNGramIndexer mapped = MappedNGramIndexer.open(f);
+
+        assertEquals(3, mapped.getOrder());
+        assertEquals(indexer.size(), mapped.size());
+        for(int o = 1; o <= 3; o++) {
+            assertEquals(indexer.size(o), mapped.size(o));
+        }
+        assertEquals(indexer.getVocabulary().size(), mapped.vocabularySize());
+        for(int i = 1; i < indexer.size(); i++) {
+            String[] ngram = indexer.getNgram(i);
+            assertArrayEquals(ngram, mapped.getNgram(i));
+            assertEquals(i, mapped.getIndex(ngram));
+            assertEquals(indexer.getDocFrequency(i), mapped.getDocFrequency(i));
+            assertEquals(indexer.getNgramFrequency(i), mapped.getNgramFrequency(i));
+        }
+        assertEquals(tri2, mapped.getIndex("is", "a", "test"));
+        assertEquals(-1, mapped.getIndex("a", "is"));
+        assertEquals(-1, mapped.getIndex("missing"));
+        assertEquals(indexer.getVocabulary().getIndex("test"), mapped.getWordIndex(new StringBuilder("test")));
+        assertEquals(2, mapped.getNumDocs());
+        assertEquals(3, mapped.getNumNgrams(3));
+        assertEquals(1, mapped.getNumNgrams(1));
+        assertEquals(Math.log(2.0), mapped.computeIDFVector()[bi], 0.0001);
+    }
+
+    @Test
+    public void testNonCountingIndexer() throws IOException {
+        NGramIndexer indexer = new NGramIndexer(2);
+        for(int i = 0; i < 1000; i++) {
+            indexer.getOrAdd("word" + i, "word" + (i + 1));
+        }
+        File f = File.createTempFile("ngrams", ".idx");
+        f.deleteOnExit();
+        MappedNGramIndexer.write(indexer, f);
+        MappedNGramIndexer mapped = MappedNGramIndexer.open(f);
+        assertEquals(indexer.size(), mapped.size());
+        for(int i = 0; i < 1000; i++) {
+            assertEquals(indexer.getIndex("word" + i, "word" + (i + 1)), mapped.getIndex("word" + i, "word" + (i + 1)));
+        }
+        assertTrue(!mapped.hasCounts());
+        try {
+            mapped.getDocFrequency(1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        File f = File.createTempFile("ngrams", ".idx");
+        f.deleteOnExit();
+        Files.write(f.toPath(), new byte[64]);
+        try {
+            MappedNGramIndexer.open(f);
+            fail();
+        } catch (IOException e) {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.arunge.nlp.weka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arunge.nlp.api.FeatureIndexer;
+import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.vocab.NGramIndexer;
+
+public class TestSparseCorpusExporter {
+
+    private NGramIndexer indexer;
+    private FeatureIndexer features;
+    private List<CorpusDocument> docs;
+
+    private void buildCorpus() {
+        indexer = new NGramIndexer(2);
+        int thisIs = indexer.getOrAdd("this", "is");
+        int isIt = indexer.getOrAdd("is", "it");
+        features = new FeatureIndexer();
+        int length = features.getOrAdd("doc length");
+        CorpusDocument first = new CorpusDocument("doc 1", 2);
+        first.addOrIncrementNgram(indexer.getIndex("this"), 1);
+        first.addOrIncrementNgram(indexer.getIndex("is"), 1, 2.0);
+        first.addOrIncrementNgram(thisIs, 2);
+        first.addOrIncrementNgram(isIt, 2, 0.5);
+        first.setFeature(length, 3.0);
+        first.setLabel("pos");
+        CorpusDocument second = new CorpusDocument("doc2", 2);
+        second.addOrIncrementNgram(indexer.getIndex("it"), 1);
+        second.setLabel("neg");
+        second.freeze();
+        CorpusDocument unlabeled = new CorpusDocument("doc3", 2);
+        docs = Arrays.asList(first, second, unlabeled);
+    }
+
+    @Test
+    public void testArff() {
+        buildCorpus();
+        StringWriter out = new StringWriter();
+        try {
+            int written = new SparseCorpusExporter(indexer, features, Arrays.asList("neg", "pos"))
+                    .withRelation("test corpus")
+                    .includeIds()
+                    .writeArff(docs, out);
+            assertEquals(3, written);
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+        String[] lines = out.toString().split("\n");
+        assertEquals("@relation 'test corpus'", lines[0]);
+        int size = indexer.size();
+        assertEquals("@attribute this numeric", lines[2 + indexer.getIndex("this")]);
+        assertEquals("@attribute this_is numeric", lines[2 + indexer.getIndex("this", "is")]);
+        assertEquals("@attribute 'doc length' numeric", lines[2 + size]);
+        assertEquals("@attribute __id string", lines[3 + size]);
+        assertEquals("@attribute class {neg,pos}", lines[4 + size]);
+        assertEquals("@data", lines[6 + size]);
+        String expected = String.format("{%d 1,%d 2,%d 1,%d 0.5,%d 3,%d 'doc 1',%d pos}", indexer.getIndex("this"), indexer.getIndex("is"),
+                indexer.getIndex("this", "is"), indexer.getIndex("is", "it"), size, size + 1, size + 2);
+        assertEquals(expected, lines[7 + size]);
+        assertEquals(String.format("{%d 1,%d doc2,%d neg}", indexer.getIndex("it"), size + 1, size + 2), lines[8 + size]);
+        assertEquals(String.format("{%d doc3,%d ?}", size + 1, size + 2), lines[9 + size]);
+    }
+
+    @Test
+    public void testLibSvm() {
+        buildCorpus();
+        StringWriter out = new StringWriter();
+        try {
+            new SparseCorpusExporter(indexer, features, Arrays.asList("neg", "pos")).writeLibSvm(docs, out);
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        }
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        String expected = String.format("2 %d:1 %d:2 %d:1 %d:0.5 %d:3", indexer.getIndex("this") + 1, indexer.getIndex("is") + 1,
+                indexer.getIndex("this", "is") + 1, indexer.getIndex("is", "it") + 1, indexer.size() + 1);
+        assertEquals(expected, lines[0]);
+        assertEquals("1 " + (indexer.getIndex("it") + 1) + ":1", lines[1]);
+        assertEquals("0", lines[2]);
+    }
+
+    @Test
+    public void testQuote() {
+        assertEquals("plain", SparseCorpusExporter.quote("plain"));
+        assertEquals("''", SparseCorpusExporter.quote(""));
+        assertEquals("'?'", SparseCorpusExporter.quote("?"));
+        assertEquals("'it\\'s, quoted'", SparseCorpusExporter.quote("it's, quoted"));
+        assertTrue(SparseCorpusExporter.quote("{x}").startsWith("'"));
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.arunge.nlp.weka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.arunge.nlp.corpus.CorpusDocument;
+import com.arunge.nlp.vocab.CountingNGramIndexer;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+public class TestWekaCorpusConverters {
+
+    private static final int VOCAB_ATTRS = 8;
+    private static final int FEATURE_ATTRS = 2;
+
+    @Test
+    public void testConvert() {
+        List<Attribute> attributes = createAttributes(true);
+        CorpusDocument doc = createDocument("b");
+        Instance instance = WekaCorpusConverters.convert(doc, VOCAB_ATTRS, attributes, true);
+        assertInstanceEquals(denseConvert(doc, VOCAB_ATTRS, attributes, true), instance, attributes);
+        //Index 3 is set for all three orders, and the highest order wins
+        assertEquals(7.0, instance.value(3), 0.0);
+        assertEquals(0.0, instance.value(5), 0.0);
+        assertEquals(1.5, instance.value(VOCAB_ATTRS), 0.0);
+        assertEquals(0.0, instance.value(VOCAB_ATTRS + 1), 0.0);
+        assertEquals("doc1", instance.stringValue(attributes.get(attributes.size() - 2)));
+        assertEquals("b", instance.stringValue(attributes.get(attributes.size() - 1)));
+
+        //Frozen documents convert from their sorted vectors to the same instance
+        doc.freeze();
+        assertInstanceEquals(instance, WekaCorpusConverters.convert(doc, VOCAB_ATTRS, attributes, true), attributes);
+    }
+
+    @Test
+    public void testConvertWithoutIdOrLabel() {
+        List<Attribute> attributes = createAttributes(false);
+        CorpusDocument doc = createDocument(null);
+        Instance instance = WekaCorpusConverters.convert(doc, VOCAB_ATTRS, attributes, false);
+        assertInstanceEquals(denseConvert(doc, VOCAB_ATTRS, attributes, false), instance, attributes);
+        assertEquals(0.0, instance.value(attributes.size() - 1), 0.0);
+
+        //The first class value is stored as a zero
+        doc.setLabel("a");
+        instance = WekaCorpusConverters.convert(doc, VOCAB_ATTRS, attributes, false);
+        assertInstanceEquals(denseConvert(doc, VOCAB_ATTRS, attributes, false), instance, attributes);
+        assertEquals("a", instance.stringValue(attributes.get(attributes.size() - 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvertUnknownLabel() {
+        WekaCorpusConverters.convert(createDocument("c"), VOCAB_ATTRS, createAttributes(true), true);
+    }
+
+    @Test
+    public void testNgramLabel() {
+        StringBuilder sb = new StringBuilder();
+        WekaCorpusConverters.appendNgramLabel(sb, new String[] {"new", "", "york"});
+        assertEquals("new_york", sb.toString());
+        sb.setLength(0);
+        WekaCorpusConverters.appendNgramLabel(sb, new String[] {"", "city"});
+        assertEquals("city", sb.toString());
+    }
+
+    @Test
+    public void testCachedAttributes() {
+        Path testDir = null;
+        try {
+            testDir = Files.createTempDirectory(Paths.get("src/test/resources/"), "tst");
+            File vocabFile = testDir.resolve("corpus.vocab").toFile();
+            CountingNGramIndexer indexer = new CountingNGramIndexer(2);
+            indexer.getOrAdd("this", "is");
+            indexer.getOrAdd("is", "a");
+            indexer.getOrAdd("a", "test");
+            indexer.write(vocabFile);
+            List<Attribute> attributes = WekaCorpusConverters.loadNgramVocabAttributes(vocabFile);
+            assertEquals(indexer.size(), attributes.size());
+            File cacheFile = new File(vocabFile.getPath() + ".attrs");
+            assertTrue(cacheFile.exists());
+            //Loaded again from the JVM cache
+            assertSame(attributes, WekaCorpusConverters.loadNgramVocabAttributes(vocabFile));
+            try {
+                attributes.add(null);
+                fail("Shared attributes should not be modifiable");
+            } catch (UnsupportedOperationException e) {
+            }
+            //A changed vocabulary replaces the cached attributes
+            indexer.getOrAdd("another", "test");
+            indexer.write(vocabFile);
+            vocabFile.setLastModified(vocabFile.lastModified() + 2000);
+            assertEquals(indexer.size(), WekaCorpusConverters.loadNgramVocabAttributes(vocabFile).size());
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        } finally {
+            if(testDir != null) {
+                for(File f : testDir.toFile().listFiles()) {
+                    f.delete();
+                }
+                testDir.toFile().delete();
+            }
+        }
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        Path testDir = null;
+        try {
+            testDir = Files.createTempDirectory(Paths.get("src/test/resources/"), "tst");
+            File[] vocabFiles = new File[10];
+            for(int i = 0; i < vocabFiles.length; i++) {
+                vocabFiles[i] = testDir.resolve("corpus" + i + ".vocab").toFile();
+                CountingNGramIndexer indexer = new CountingNGramIndexer(1);
+                indexer.getOrAdd("word" + i);
+                indexer.write(vocabFiles[i]);
+            }
+            List<Attribute> first = WekaCorpusConverters.loadNgramVocabAttributes(vocabFiles[0]);
+            for(int i = 1; i < vocabFiles.length; i++) {
+                WekaCorpusConverters.loadNgramVocabAttributes(vocabFiles[i]);
+            }
+            //The least recently used vocabularies are evicted, and are reloaded from their attribute cache files
+            List<Attribute> reloaded = WekaCorpusConverters.loadNgramVocabAttributes(vocabFiles[0]);
+            assertNotSame(first, reloaded);
+            assertEquals(first.get(1).name(), reloaded.get(1).name());
+        } catch (IOException e) {
+            fail("Threw exception: " + e.getMessage());
+        } finally {
+            if(testDir != null) {
+                for(File f : testDir.toFile().listFiles()) {
+                    f.delete();
+                }
+                testDir.toFile().delete();
+            }
+        }
+    }
+
+    private List<Attribute> createAttributes(boolean includeId) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for(int i = 0; i < VOCAB_ATTRS + FEATURE_ATTRS; i++) {
+            attributes.add(new Attribute("attr" + i));
+        }
+        if(includeId) {
+            attributes.add(new Attribute("id", (List<String>) null));
+        }
+        attributes.add(new Attribute("class", Arrays.asList("a", "b")));
+        //Sets the index of each attribute, which instances use to set values by attribute
+        new Instances("test", attributes, 0);
+        return attributes;
+    }
+
+    private CorpusDocument createDocument(String label) {
+        CorpusDocument doc = new CorpusDocument("doc1", 3);
+        doc.setNgramValue(1, 1, 2.0);
+        doc.setNgramValue(3, 1, 1.0);
+        doc.setNgramValue(5, 1, 0.0);
+        doc.setNgramValue(3, 2, 4.0);
+        doc.setNgramValue(4, 2, 1.0);
+        doc.setNgramValue(3, 3, 7.0);
+        doc.setNgramValue(7, 3, 3.0);
+        doc.setFeature(0, 1.5);
+        doc.setFeature(1, 0.0);
+        doc.setLabel(label);
+        return doc;
+    }
+
+    /**
+     * Builds the instance through a dense array of all attribute values, as the converter did before it
+     * built instances directly from the document vectors.
+     */
+    private Instance denseConvert(CorpusDocument doc, int totalVocabAttrs, List<Attribute> attributes, boolean includeId) {
+        double[] values = new double[attributes.size()];
+        for(int i = 1; i <= doc.getOrder(); i++) {
+            for(Map.Entry<Integer, Double> ngram : doc.getNgrams(i).entrySet()) {
+                values[ngram.getKey()] = ngram.getValue();
+            }
+        }
+        for(Map.Entry<Integer, Double> feature : doc.getFeatures().entrySet()) {
+            values[totalVocabAttrs + feature.getKey()] = feature.getValue();
+        }
+        Instance instance = new SparseInstance(1.0, values);
+        if(includeId) {
+            instance.setValue(attributes.get(attributes.size() - 2), doc.getDocId());
+        }
+        if(doc.getLabel() != null && !doc.getLabel().isEmpty()) {
+            instance.setValue(attributes.get(attributes.size() - 1), doc.getLabel());
+        }
+        return instance;
+    }
+
+    private void assertInstanceEquals(Instance expected, Instance actual, List<Attribute> attributes) {
+        assertEquals(attributes.size(), actual.numAttributes());
+        assertEquals(expected.weight(), actual.weight(), 0.0);
+        for(int i = 0; i < attributes.size(); i++) {
+            assertEquals("Value of attribute " + i, expected.value(i), actual.value(i), 0.0);
+        }
+    }
+
+}
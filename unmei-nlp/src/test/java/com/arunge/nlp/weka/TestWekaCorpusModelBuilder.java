@@ -0,0 +1,98 @@
+package com.arunge.nlp.weka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arunge.nlp.api.FeatureIndexer;
+import com.arunge.nlp.corpus.CountingNGramCorpus;
+import com.arunge.nlp.corpus.io.ColumnarCorpusReader;
+import com.arunge.nlp.processors.BasicNLPPreprocessingPipeline;
+import com.arunge.nlp.text.TextDocument;
+import com.arunge.nlp.weka.WekaCorpusModelBuilder.CorpusType;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class TestWekaCorpusModelBuilder {
+
+    @Test
+    public void testSweep() throws Exception {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("x"));
+        attributes.add(new Attribute("y"));
+        attributes.add(new Attribute("label", Arrays.asList("a", "b")));
+        Instances data = new Instances("sweep", attributes, 20);
+        data.setClassIndex(2);
+        for(int i = 0; i < 20; i++) {
+            int label = i % 2;
+            data.add(new DenseInstance(1.0, new double[] {label * 10 + (i % 5), (i % 3) - label * 5, label}));
+        }
+        List<WekaModelConfig> configs = Arrays.asList(
+                new WekaModelConfig(WekaModelType.NAIVE_BAYES),
+                new WekaModelConfig(WekaModelType.J48).withOption("-M", "2"));
+        WekaCorpusModelBuilder builder = new WekaCorpusModelBuilder(data, false);
+        List<WekaSweepResult> results = builder.sweep(configs, 2, 2, 1);
+        assertEquals(2, results.size());
+        for(int i = 0; i < configs.size(); i++) {
+            WekaSweepResult result = results.get(i);
+            assertSame(configs.get(i), result.getConfig());
+            assertFalse(result.isFailed());
+            assertEquals(2, result.getFolds());
+            assertNotNull(result.getEvaluation());
+            //Statistics are aggregated over the test instances of both folds
+            assertEquals(20.0, result.getEvaluation().numInstances(), 0.0);
+            assertEquals(100.0, result.getAccuracy(), 0.0);
+            assertTrue(result.getTrainMillis() >= 0);
+        }
+    }
+
+    @Test
+    public void testColumnarExport() throws IOException {
+        BasicNLPPreprocessingPipeline pipeline = new BasicNLPPreprocessingPipeline();
+        CountingNGramCorpus corpus = new CountingNGramCorpus(2);
+        corpus.addTokenizedDocument(pipeline.apply(new TextDocument("a", "The dog buried the bone.", "pos")));
+        corpus.addTokenizedDocument(pipeline.apply(new TextDocument("b", "The cat chased the dog.", "neg")));
+        corpus.addTokenizedDocument(pipeline.apply(new TextDocument("c", "The bone was buried.")));
+        corpus.finalize();
+        FeatureIndexer features = corpus.getFeatures();
+        int length = features.getOrAdd("doc length");
+        corpus.getDocuments().get(0).setFeatures(Collections.singletonMap(length, 5.0));
+        File dir = Files.createTempDirectory("corpus").toFile();
+        corpus.exportColumnar(dir);
+
+        List<String> labels = new ArrayList<>(ColumnarCorpusReader.open(dir).getClassLabels());
+        SparseCorpusExporter expected = new SparseCorpusExporter(corpus.getNgramIndexer(), features, labels)
+                .withClassAttribute("patent_class_label")
+                .includeIds();
+        StringWriter arff = new StringWriter();
+        expected.writeArff(corpus.getDocuments(), arff);
+        StringWriter libSvm = new StringWriter();
+        expected.writeLibSvm(corpus.getDocuments(), libSvm);
+
+        //The vocabulary file is not needed, the documents and vocabulary are read from the columnar directory
+        WekaCorpusModelBuilder builder = new WekaCorpusModelBuilder(null, dir, CorpusType.NGRAM, true);
+        File arffFile = new File(dir, "corpus.arff");
+        builder.saveInstances(arffFile);
+        assertEquals(arff.toString(), new String(Files.readAllBytes(arffFile.toPath()), StandardCharsets.UTF_8));
+        File libSvmFile = new File(dir, "corpus.svm");
+        builder.saveLibSvm(libSvmFile);
+        assertEquals(libSvm.toString(), new String(Files.readAllBytes(libSvmFile.toPath()), StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.arunge.nlp.weka;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestWekaModelConfig {
+
+    @Test
+    public void testWithOption() {
+        WekaModelConfig config = new WekaModelConfig(WekaModelType.LIBLIN_PRIMAL);
+        assertArrayEquals(WekaModelConfig.defaultOptions(WekaModelType.LIBLIN_PRIMAL), config.getOptions());
+        WekaModelConfig updated = config.withOption("-C", "10.0").withOption("-P", null).withOption("-W", null);
+        assertArrayEquals(new String[] {"-S", "0", "-C", "10.0", "-E", "0.001", "-B", "1.0", "-P", "-L", "0.1", "-I", "1000", "-W"}, updated.getOptions());
+        //Options that were set without a value can be given one
+        assertArrayEquals(new String[] {"-S", "0", "-C", "1000.0", "-E", "0.001", "-B", "1.0", "-P", "-1", "-L", "0.1", "-I", "1000"},
+                config.withOption("-P", "-1").getOptions());
+        //The original configuration is unchanged
+        assertEquals("1000.0", config.getOptions()[3]);
+    }
+
+    @Test
+    public void testGrid() {
+        List<WekaModelConfig> grid = WekaModelConfig.grid(WekaModelType.LIBSVM_RBF, "-G", "0.01", "0.1", "1");
+        assertEquals(3, grid.size());
+        for(int i = 0; i < grid.size(); i++) {
+            String[] options = grid.get(i).getOptions();
+            assertEquals(WekaModelType.LIBSVM_RBF, grid.get(i).getType());
+            assertEquals(new String[] {"0.01", "0.1", "1"}[i], options[7]);
+            assertEquals("1000.0", options[15]);
+        }
+        assertEquals("NAIVE_BAYES", new WekaModelConfig(WekaModelType.NAIVE_BAYES).toString());
+    }
+
+}